@@ -1,11 +1,10 @@
 package planettask;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
@@ -14,14 +13,10 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @EnableScheduling
 @EnableJpaRepositories(basePackages = "planettask.repos")
 @EntityScan(basePackages = "planettask.domain")
+@ConfigurationPropertiesScan(basePackages = "planettask.config")
 public class PlanetTaskApplication {
 
   public static void main(final String[] args) {
     SpringApplication.run(PlanetTaskApplication.class, args);
   }
-
-  @Bean
-  public ModelMapper modelMapper() {
-    return new ModelMapper();
-  }
 }
@@ -0,0 +1,396 @@
+package planettask.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import planettask.model.BookDTO;
+import planettask.model.ReservationDTO;
+import planettask.model.ReservationStatus;
+import planettask.model.UserDTO;
+
+
+/**
+ * Compact binary encoding of cache values.
+ * <p>
+ * A value is a format version byte, a flags byte and the encoded payload; payloads of at least
+ * {@code compressionThreshold} bytes are LZ4-compressed, with their original length stored in
+ * front. The DTOs are written field by field behind a bitmask of the non-null fields, numbers as
+ * variable-length integers and strings as length-prefixed UTF-8. Types without a dedicated
+ * encoding fall back to Java serialization, so any cacheable value can still be stored.
+ * <p>
+ * Values written with another version are read as cache misses, which lets old and new formats
+ * coexist during a rolling deploy. Bump {@link #VERSION} whenever the encoding of a type changes.
+ */
+@Slf4j
+public class BinaryCacheSerializer implements RedisSerializer<Object> {
+
+  static final byte VERSION = 1;
+
+  private static final byte FLAG_LZ4 = 1;
+
+  private static final byte TAG_NULL = 0;
+  private static final byte TAG_NULL_VALUE = 1;
+  private static final byte TAG_LONG = 2;
+  private static final byte TAG_INTEGER = 3;
+  private static final byte TAG_STRING = 4;
+  private static final byte TAG_LIST = 5;
+  private static final byte TAG_SET = 6;
+  private static final byte TAG_BOOK = 7;
+  private static final byte TAG_USER = 8;
+  private static final byte TAG_RESERVATION = 9;
+  private static final byte TAG_JDK = 127;
+
+  private final int compressionThreshold;
+  private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+  private final LZ4SafeDecompressor decompressor = LZ4Factory.fastestInstance().safeDecompressor();
+  private final JdkSerializationRedisSerializer fallback = new JdkSerializationRedisSerializer();
+
+  public BinaryCacheSerializer(final int compressionThreshold) {
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  @Override
+  public byte[] serialize(final Object value) {
+    final Output payload = new Output();
+    writeValue(payload, value);
+    final int length = payload.size();
+    if (length >= compressionThreshold) {
+      final byte[] compressed = new byte[compressor.maxCompressedLength(length)];
+      final int compressedLength = compressor.compress(payload.buffer(), 0, length, compressed, 0,
+          compressed.length);
+      final Output out = new Output();
+      out.write(VERSION);
+      out.write(FLAG_LZ4);
+      out.writeVarInt(length);
+      out.write(compressed, 0, compressedLength);
+      if (out.size() < length + 2) {
+        return out.toByteArray();
+      }
+    }
+    final byte[] bytes = new byte[length + 2];
+    bytes[0] = VERSION;
+    System.arraycopy(payload.buffer(), 0, bytes, 2, length);
+    return bytes;
+  }
+
+  @Override
+  public Object deserialize(final byte[] bytes) {
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    }
+    if (bytes[0] != VERSION) {
+      log.debug("Ignoring cache value written with format version {}", bytes[0]);
+      return null;
+    }
+    try {
+      ByteBuffer in = ByteBuffer.wrap(bytes, 2, bytes.length - 2);
+      if ((bytes[1] & FLAG_LZ4) != 0) {
+        final byte[] payload = new byte[readVarInt(in)];
+        if (decompressor.decompress(bytes, in.position(), in.remaining(), payload, 0)
+            != payload.length) {
+          throw new SerializationException("Truncated compressed cache value");
+        }
+        in = ByteBuffer.wrap(payload);
+      }
+      return readValue(in);
+    } catch (BufferUnderflowException | IllegalArgumentException ex) {
+      throw new SerializationException("Malformed cache value", ex);
+    } catch (LZ4Exception ex) {
+      throw new SerializationException("Corrupt compressed cache value", ex);
+    }
+  }
+
+  private void writeValue(final Output out, final Object value) {
+    switch (value) {
+      case null -> out.write(TAG_NULL);
+      case NullValue nullValue -> out.write(TAG_NULL_VALUE);
+      case Long number -> {
+        out.write(TAG_LONG);
+        out.writeVarLong(number);
+      }
+      case Integer number -> {
+        out.write(TAG_INTEGER);
+        out.writeVarLong(number);
+      }
+      case String string -> {
+        out.write(TAG_STRING);
+        out.writeString(string);
+      }
+      case BookDTO book -> {
+        out.write(TAG_BOOK);
+        writeBook(out, book);
+      }
+      case UserDTO user -> {
+        out.write(TAG_USER);
+        writeUser(out, user);
+      }
+      case ReservationDTO reservation -> {
+        out.write(TAG_RESERVATION);
+        writeReservation(out, reservation);
+      }
+      case List<?> list -> {
+        out.write(TAG_LIST);
+        writeElements(out, list);
+      }
+      case Set<?> set -> {
+        out.write(TAG_SET);
+        writeElements(out, set);
+      }
+      default -> {
+        out.write(TAG_JDK);
+        final byte[] serialized = fallback.serialize(value);
+        out.writeVarInt(serialized.length);
+        out.write(serialized, 0, serialized.length);
+      }
+    }
+  }
+
+  private Object readValue(final ByteBuffer in) {
+    final byte tag = in.get();
+    return switch (tag) {
+      case TAG_NULL -> null;
+      case TAG_NULL_VALUE -> NullValue.INSTANCE;
+      case TAG_LONG -> readVarLong(in);
+      case TAG_INTEGER -> (int) readVarLong(in);
+      case TAG_STRING -> readString(in);
+      case TAG_BOOK -> readBook(in);
+      case TAG_USER -> readUser(in);
+      case TAG_RESERVATION -> readReservation(in);
+      case TAG_LIST -> readElements(in, new ArrayList<>());
+      case TAG_SET -> readElements(in, new LinkedHashSet<>());
+      case TAG_JDK -> {
+        final byte[] serialized = new byte[readVarInt(in)];
+        in.get(serialized);
+        yield fallback.deserialize(serialized);
+      }
+      default -> throw new IllegalArgumentException("Unknown tag " + tag);
+    };
+  }
+
+  private void writeElements(final Output out, final Collection<?> elements) {
+    out.writeVarInt(elements.size());
+    elements.forEach(element -> writeValue(out, element));
+  }
+
+  private <C extends Collection<Object>> C readElements(final ByteBuffer in, final C elements) {
+    final int size = readVarInt(in);
+    for (int i = 0; i < size; i++) {
+      elements.add(readValue(in));
+    }
+    return elements;
+  }
+
+  private static void writeBook(final Output out, final BookDTO book) {
+    out.write(mask(book.getId(), book.getTitle(), book.getIsbn(), book.getAuthor(),
+        book.getAvailableCopies(), book.getTotalCopies()));
+    if (book.getId() != null) {
+      out.writeVarLong(book.getId());
+    }
+    if (book.getTitle() != null) {
+      out.writeString(book.getTitle());
+    }
+    if (book.getIsbn() != null) {
+      out.writeString(book.getIsbn());
+    }
+    if (book.getAuthor() != null) {
+      out.writeString(book.getAuthor());
+    }
+    if (book.getAvailableCopies() != null) {
+      out.writeVarLong(book.getAvailableCopies());
+    }
+    if (book.getTotalCopies() != null) {
+      out.writeVarLong(book.getTotalCopies());
+    }
+  }
+
+  private static BookDTO readBook(final ByteBuffer in) {
+    final int mask = in.get();
+    final BookDTO book = new BookDTO();
+    if ((mask & 1) != 0) {
+      book.setId(readVarLong(in));
+    }
+    if ((mask & 1 << 1) != 0) {
+      book.setTitle(readString(in));
+    }
+    if ((mask & 1 << 2) != 0) {
+      book.setIsbn(readString(in));
+    }
+    if ((mask & 1 << 3) != 0) {
+      book.setAuthor(readString(in));
+    }
+    if ((mask & 1 << 4) != 0) {
+      book.setAvailableCopies((int) readVarLong(in));
+    }
+    if ((mask & 1 << 5) != 0) {
+      book.setTotalCopies((int) readVarLong(in));
+    }
+    return book;
+  }
+
+  /**
+   * Writes the user without its reservations, which are never exposed through the API.
+   */
+  private static void writeUser(final Output out, final UserDTO user) {
+    out.write(mask(user.getUserId(), user.getUsername(), user.getEmail()));
+    if (user.getUserId() != null) {
+      out.writeVarLong(user.getUserId());
+    }
+    if (user.getUsername() != null) {
+      out.writeString(user.getUsername());
+    }
+    if (user.getEmail() != null) {
+      out.writeString(user.getEmail());
+    }
+  }
+
+  private static UserDTO readUser(final ByteBuffer in) {
+    final int mask = in.get();
+    final UserDTO user = new UserDTO();
+    if ((mask & 1) != 0) {
+      user.setUserId(readVarLong(in));
+    }
+    if ((mask & 1 << 1) != 0) {
+      user.setUsername(readString(in));
+    }
+    if ((mask & 1 << 2) != 0) {
+      user.setEmail(readString(in));
+    }
+    return user;
+  }
+
+  private static void writeReservation(final Output out, final ReservationDTO reservation) {
+    out.write(mask(reservation.getReservationId(), reservation.getStatus(), reservation.getUser(),
+        reservation.getBooks()));
+    if (reservation.getReservationId() != null) {
+      out.writeVarLong(reservation.getReservationId());
+    }
+    if (reservation.getStatus() != null) {
+      out.writeString(reservation.getStatus().name());
+    }
+    if (reservation.getUser() != null) {
+      writeUser(out, reservation.getUser());
+    }
+    if (reservation.getBooks() != null) {
+      out.writeVarInt(reservation.getBooks().size());
+      reservation.getBooks().forEach(book -> writeBook(out, book));
+    }
+  }
+
+  private static ReservationDTO readReservation(final ByteBuffer in) {
+    final int mask = in.get();
+    final ReservationDTO reservation = new ReservationDTO();
+    if ((mask & 1) != 0) {
+      reservation.setReservationId(readVarLong(in));
+    }
+    if ((mask & 1 << 1) != 0) {
+      reservation.setStatus(ReservationStatus.valueOf(readString(in)));
+    }
+    if ((mask & 1 << 2) != 0) {
+      reservation.setUser(readUser(in));
+    }
+    if ((mask & 1 << 3) != 0) {
+      final int size = readVarInt(in);
+      final Set<BookDTO> books = new LinkedHashSet<>();
+      for (int i = 0; i < size; i++) {
+        books.add(readBook(in));
+      }
+      reservation.setBooks(books);
+    }
+    return reservation;
+  }
+
+  private static int mask(final Object... fields) {
+    int mask = 0;
+    for (int i = 0; i < fields.length; i++) {
+      if (fields[i] != null) {
+        mask |= 1 << i;
+      }
+    }
+    return mask;
+  }
+
+  private static int readVarInt(final ByteBuffer in) {
+    final long value = readVarLong(in);
+    if (value < 0 || value > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid length " + value);
+    }
+    return (int) value;
+  }
+
+  /**
+   * Reads a zigzag-encoded variable-length integer.
+   */
+  private static long readVarLong(final ByteBuffer in) {
+    long raw = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final byte b = in.get();
+      raw |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return (raw >>> 1) ^ -(raw & 1);
+      }
+    }
+    throw new IllegalArgumentException("Malformed variable-length integer");
+  }
+
+  private static String readString(final ByteBuffer in) {
+    final int length = readVarInt(in);
+    if (length > in.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    final String value = new String(in.array(), in.arrayOffset() + in.position(), length,
+        StandardCharsets.UTF_8);
+    in.position(in.position() + length);
+    return value;
+  }
+
+  /**
+   * Growable buffer that exposes its backing array, so the payload is not copied before
+   * compression.
+   */
+  private static final class Output extends ByteArrayOutputStream {
+
+    Output() {
+      super(256);
+    }
+
+    byte[] buffer() {
+      return buf;
+    }
+
+    void writeVarInt(final int value) {
+      writeVarLong(value);
+    }
+
+    void writeVarLong(final long value) {
+      long raw = (value << 1) ^ (value >> 63);
+      while ((raw & ~0x7FL) != 0) {
+        write((int) ((raw & 0x7F) | 0x80));
+        raw >>>= 7;
+      }
+      write((int) raw);
+    }
+
+    void writeString(final String value) {
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(bytes.length);
+      write(bytes, 0, bytes.length);
+    }
+
+  }
+
+}
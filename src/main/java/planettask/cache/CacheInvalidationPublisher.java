@@ -0,0 +1,14 @@
+package planettask.cache;
+
+
+/**
+ * Tells the other nodes to drop an entry from their near caches.
+ */
+public interface CacheInvalidationPublisher {
+
+  /**
+   * @param key the entry's key as used by the near cache, or {@code null} to clear the cache
+   */
+  void publish(String cacheName, String key);
+
+}
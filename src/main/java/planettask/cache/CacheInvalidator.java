@@ -0,0 +1,101 @@
+package planettask.cache;
+
+import java.util.Collection;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import planettask.service.BookCopiesReleasedEvent;
+import planettask.service.BookCopiesTakenEvent;
+import planettask.service.BookCreatedEvent;
+import planettask.service.ReservationCreatedEvent;
+import planettask.service.ReservationsChangedEvent;
+import planettask.service.TableCounter.Table;
+import planettask.service.UserCreatedEvent;
+
+
+/**
+ * Evicts the cache entries a write has made stale.
+ * <p>
+ * Evictions run after the writing transaction commits. Evicting earlier would let a concurrent
+ * read put the old, still committed state straight back, and a rollback would evict for nothing.
+ * Entries keyed by id are evicted one by one. Page caches only hold ids, so they are cleared when
+ * entries are added rather than whenever one of their entities changes.
+ */
+@Component
+public class CacheInvalidator {
+
+  private final CacheManager cacheManager;
+
+  public CacheInvalidator(final CacheManager cacheManager) {
+    this.cacheManager = cacheManager;
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookCreated(final BookCreatedEvent event) {
+    evict(CacheNames.BOOK_NOT_FOUND, event.bookId());
+    evict(CacheNames.ISBN_NOT_FOUND, event.isbn());
+    evict(CacheNames.TABLE_COUNT, Table.BOOKS.name());
+    clear(CacheNames.BOOK_PAGE);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onUserCreated(final UserCreatedEvent event) {
+    evict(CacheNames.USER_NOT_FOUND, event.userId());
+    evict(CacheNames.TABLE_COUNT, Table.USERS.name());
+    clear(CacheNames.USER_PAGE);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCopiesTaken(final BookCopiesTakenEvent event) {
+    evictBooks(event.bookIds());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCopiesReleased(final BookCopiesReleasedEvent event) {
+    evictBooks(event.bookIds());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onReservationCreated(final ReservationCreatedEvent event) {
+    // Cancels and expiries change no row count, so only creation evicts it
+    evict(CacheNames.TABLE_COUNT, Table.RESERVATIONS.name());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onReservationsChanged(final ReservationsChangedEvent event) {
+    evict(CacheNames.RESERVATION, event.reservationIds());
+    evict(CacheNames.RESERVATIONS_BY_USER, event.userIds());
+    clear(CacheNames.RESERVATION_PAGE);
+  }
+
+  /**
+   * Cached reservations embed their books too, but are read with the copies of these entries, so
+   * a change of copies leaves them alone.
+   */
+  private void evictBooks(final Collection<Long> bookIds) {
+    evict(CacheNames.BOOK, bookIds);
+  }
+
+  private void evict(final String cacheName, final Collection<?> keys) {
+    final Cache cache = cacheManager.getCache(cacheName);
+    if (cache != null) {
+      keys.forEach(cache::evict);
+    }
+  }
+
+  private void evict(final String cacheName, final Object key) {
+    final Cache cache = cacheManager.getCache(cacheName);
+    if (cache != null && key != null) {
+      cache.evict(key);
+    }
+  }
+
+  private void clear(final String cacheName) {
+    final Cache cache = cacheManager.getCache(cacheName);
+    if (cache != null) {
+      cache.clear();
+    }
+  }
+
+}
@@ -0,0 +1,91 @@
+package planettask.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.util.ByteUtils;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Reads many keys of one cache at once. Redis caches are read with a single {@code MGET}, through
+ * the near cache first when there is one; other caches are read key by key. Keys without a
+ * cached value are left out of the result.
+ */
+@Component
+public class CacheMultiGet {
+
+  private final RedisConnectionFactory connectionFactory;
+
+  public CacheMultiGet(final ObjectProvider<RedisConnectionFactory> connectionFactory) {
+    this.connectionFactory = connectionFactory.getIfAvailable();
+  }
+
+  public Map<Object, Object> getAll(final Cache cache, final Collection<?> keys) {
+    if (keys.isEmpty()) {
+      return new HashMap<>();
+    }
+    if (cache instanceof CoalescingCache coalescing) {
+      return getAll(coalescing.getDelegate(), keys);
+    }
+    if (cache instanceof TwoTierCache twoTier) {
+      return twoTier.getAll(keys, remoteKeys -> getAll(twoTier.getRemote(), remoteKeys));
+    }
+    if (cache instanceof RedisCache redisCache && connectionFactory != null) {
+      return mget(redisCache, keys);
+    }
+    final Map<Object, Object> found = new HashMap<>();
+    for (Object key : keys) {
+      final ValueWrapper wrapper = cache.get(key);
+      if (wrapper != null && wrapper.get() != null) {
+        found.put(key, wrapper.get());
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Builds the keys the way {@link RedisCache} does: the cache's key prefix followed by the key
+   * converted with the cache's conversion service.
+   */
+  private Map<Object, Object> mget(final RedisCache cache, final Collection<?> keys) {
+    final RedisCacheConfiguration config = cache.getCacheConfiguration();
+    final List<?> keyList = List.copyOf(keys);
+    final byte[][] rawKeys = new byte[keyList.size()][];
+    for (int i = 0; i < rawKeys.length; i++) {
+      final Object key = keyList.get(i);
+      final String converted = key instanceof String string
+          ? string
+          : config.getConversionService().convert(key, String.class);
+      rawKeys[i] = ByteUtils.getBytes(config.getKeySerializationPair()
+          .write(config.getKeyPrefixFor(cache.getName()) + converted));
+    }
+    final List<byte[]> values;
+    try (RedisConnection connection = connectionFactory.getConnection()) {
+      values = connection.stringCommands().mGet(rawKeys);
+    }
+    final Map<Object, Object> found = new HashMap<>();
+    for (int i = 0; values != null && i < values.size(); i++) {
+      final byte[] bytes = values.get(i);
+      if (bytes == null) {
+        continue;
+      }
+      final Object value = config.getValueSerializationPair().read(ByteBuffer.wrap(bytes));
+      if (value != null && !(value instanceof NullValue)) {
+        found.put(keyList.get(i), value);
+      }
+    }
+    return found;
+  }
+
+}
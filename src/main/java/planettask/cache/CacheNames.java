@@ -0,0 +1,49 @@
+package planettask.cache;
+
+
+/**
+ * Names of the application caches. Each cache holds one kind of value under one kind of key, so
+ * a write knows exactly which entries it has to evict.
+ */
+public final class CacheNames {
+
+  /** {@code BookDTO} by book id. */
+  public static final String BOOK = "book";
+
+  /** Book id by ISBN. ISBNs never change, so entries are only added, never evicted. */
+  public static final String BOOK_ID_BY_ISBN = "bookIdByIsbn";
+
+  /** Ordered book ids of a page by page number, size and sort; see {@link PageCache}. */
+  public static final String BOOK_PAGE = "bookPageIds";
+
+  /** {@code UserDTO} by user id. */
+  public static final String USER = "user";
+
+  /** Ordered user ids of a page by page number, size and sort; see {@link PageCache}. */
+  public static final String USER_PAGE = "userPageIds";
+
+  /** {@code ReservationDTO} by reservation id. */
+  public static final String RESERVATION = "reservation";
+
+  /** Ordered reservation ids of a page by page number, size and sort; see {@link PageCache}. */
+  public static final String RESERVATION_PAGE = "reservationPageIds";
+
+  /** A user's {@code ReservationDTO}s by user id. */
+  public static final String RESERVATIONS_BY_USER = "reservationsByUser";
+
+  /** Book ids recently looked up in vain. */
+  public static final String BOOK_NOT_FOUND = "bookNotFound";
+
+  /** ISBNs recently looked up in vain. */
+  public static final String ISBN_NOT_FOUND = "isbnNotFound";
+
+  /** User ids recently looked up in vain. */
+  public static final String USER_NOT_FOUND = "userNotFound";
+
+  /** Exact row count by {@code TableCounter.Table} name. */
+  public static final String TABLE_COUNT = "tableCount";
+
+  private CacheNames() {
+  }
+
+}
@@ -0,0 +1,163 @@
+package planettask.cache;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import planettask.cache.HotKeyTracker.HotKey;
+import planettask.cache.HotKeyTracker.Kind;
+import planettask.config.CacheWarmupProperties;
+import planettask.service.BookService;
+import planettask.service.UserService;
+
+
+/**
+ * Preloads the caches with the keys that were hottest before the last shutdown.
+ * <p>
+ * The {@link HotKeyTracker}'s top keys are written to a local snapshot file periodically and on
+ * shutdown. On startup they are read back and loaded with batched multi-id queries. This runs as
+ * an {@link ApplicationRunner}, so the readiness state only switches to accepting traffic once
+ * the preload has finished or {@code timeout} has passed, whichever comes first.
+ */
+@Component
+@ConditionalOnProperty(prefix = "planet.cache.warmup", name = "enabled", havingValue = "true")
+@Slf4j
+public class CacheWarmup implements ApplicationRunner {
+
+  private final HotKeyTracker hotKeyTracker;
+  private final BookService bookService;
+  private final UserService userService;
+  private final CacheWarmupProperties properties;
+
+  public CacheWarmup(final HotKeyTracker hotKeyTracker, final BookService bookService,
+      final UserService userService, final CacheWarmupProperties properties) {
+    this.hotKeyTracker = hotKeyTracker;
+    this.bookService = bookService;
+    this.userService = userService;
+    this.properties = properties;
+  }
+
+  @Override
+  public void run(final ApplicationArguments args) {
+    final List<HotKey> keys = readSnapshot();
+    if (keys.isEmpty()) {
+      return;
+    }
+    final long started = System.nanoTime();
+    final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    final Future<Integer> preload = executor.submit(() -> preload(keys));
+    try {
+      final int loaded = preload.get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+      log.info("Cache warm-up loaded {} of {} hot key(s) in {} ms", loaded, keys.size(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    } catch (TimeoutException ex) {
+      preload.cancel(true);
+      log.warn("Cache warm-up did not finish within {}, continuing startup",
+          properties.getTimeout());
+    } catch (ExecutionException ex) {
+      log.warn("Cache warm-up failed, continuing startup", ex.getCause());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${planet.cache.warmup.snapshot-interval:5m}",
+      initialDelayString = "${planet.cache.warmup.snapshot-interval:5m}")
+  public void saveSnapshot() {
+    final List<HotKey> keys = hotKeyTracker.top(properties.getTopK());
+    if (keys.isEmpty()) {
+      return;
+    }
+    final Path file = properties.getSnapshotFile().toAbsolutePath();
+    try {
+      final Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(),
+          ".tmp");
+      Files.write(temp, keys.stream().map(key -> key.kind() + "\t" + key.key()).toList());
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      log.debug("Saved {} hot key(s) to {}", keys.size(), file);
+    } catch (IOException ex) {
+      log.warn("Could not save cache warm-up snapshot to {}: {}", file, ex.getMessage());
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    saveSnapshot();
+  }
+
+  /**
+   * Loads the keys batch by batch, hottest first, so that a timeout still leaves the most useful
+   * entries cached.
+   */
+  int preload(final List<HotKey> keys) {
+    int loaded = 0;
+    for (int from = 0; from < keys.size() && !Thread.currentThread().isInterrupted();
+        from += properties.getBatchSize()) {
+      final Map<Kind, List<String>> batch = new EnumMap<>(Kind.class);
+      for (HotKey key : keys.subList(from, Math.min(from + properties.getBatchSize(),
+          keys.size()))) {
+        batch.computeIfAbsent(key.kind(), kind -> new ArrayList<>()).add(key.key());
+      }
+      loaded += bookService.preload(toIds(batch.get(Kind.BOOK)),
+          batch.getOrDefault(Kind.ISBN, List.of()));
+      loaded += userService.preload(toIds(batch.get(Kind.USER)));
+    }
+    return loaded;
+  }
+
+  private List<HotKey> readSnapshot() {
+    final Path file = properties.getSnapshotFile();
+    if (!Files.isReadable(file)) {
+      return List.of();
+    }
+    final List<HotKey> keys = new ArrayList<>();
+    try {
+      for (String line : Files.readAllLines(file)) {
+        final int tab = line.indexOf('\t');
+        if (tab > 0) {
+          keys.add(new HotKey(Kind.valueOf(line.substring(0, tab)), line.substring(tab + 1)));
+        }
+      }
+    } catch (IOException | IllegalArgumentException ex) {
+      log.warn("Ignoring unreadable cache warm-up snapshot {}: {}", file, ex.getMessage());
+      return List.of();
+    }
+    return keys;
+  }
+
+  private static List<Long> toIds(final List<String> keys) {
+    if (keys == null) {
+      return List.of();
+    }
+    final List<Long> ids = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      try {
+        ids.add(Long.valueOf(key));
+      } catch (NumberFormatException ex) {
+        // Not an id; cannot have been recorded by this version
+      }
+    }
+    return ids;
+  }
+
+}
@@ -0,0 +1,349 @@
+package planettask.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+
+
+/**
+ * Cache decorator that loads a missing entry once per key, however many callers miss it at the
+ * same time.
+ * <p>
+ * The first caller to miss a key loads it and every concurrent caller waits on the same future,
+ * so an expired hot key costs one database query per node rather than one per request. With a
+ * {@link RedisLoadLock} the loader also takes a per-key lock in Redis; nodes that lose the race
+ * poll the cache for the winner's value and only load it themselves if none shows up in time.
+ * <p>
+ * With {@code refreshAfter} set, a hit on an entry this node loaded longer ago than that reloads
+ * it in the background, so hot keys are replaced before they expire and never miss at all.
+ * <p>
+ * Every load is a fill: a load, a reload, or a read whose results the caller caches with
+ * {@link #fill}. A fill is dropped if its key is evicted while it runs, since what it read may
+ * predate the change behind the eviction, which would then stay cached until the entry expires.
+ * Evictions on other nodes cancel fills here too, through the near cache's invalidation channel.
+ * <p>
+ * Only {@link #get(Object, Callable)}, which {@code @Cacheable(sync = true)} uses, is coalesced,
+ * and only when {@code coalesce} is set; the other operations go straight to the delegate.
+ */
+@Slf4j
+public class CoalescingCache implements Cache {
+
+  private static final long LOCK_POLL_MILLIS = 20;
+
+  private final Cache delegate;
+  private final boolean coalesce;
+  private final RedisLoadLock loadLock;
+  private final long refreshAfterNanos;
+  private final com.github.benmanes.caffeine.cache.Cache<Object, Long> loadedAt;
+  private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  // A token per key being loaded, keyed like near cache entries so that invalidation messages
+  // name them; evicting a key removes it, which cancels the fill
+  private final Map<String, Object> fills = new ConcurrentHashMap<>();
+  // Counts evictions, for fills that only learn their keys from what they read
+  private final AtomicLong evictions = new AtomicLong();
+  private final Counter coalescedWaits;
+  private final Counter lockWaits;
+  private final Counter refreshes;
+
+  public CoalescingCache(final Cache delegate, final Duration refreshAfter,
+      final RedisLoadLock loadLock, final MeterRegistry meterRegistry) {
+    this(delegate, true, refreshAfter, loadLock, meterRegistry);
+  }
+
+  public CoalescingCache(final Cache delegate, final boolean coalesce,
+      final Duration refreshAfter, final RedisLoadLock loadLock,
+      final MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.coalesce = coalesce;
+    this.loadLock = loadLock;
+    this.refreshAfterNanos = refreshAfter != null ? refreshAfter.toNanos() : 0;
+    this.loadedAt = refreshAfter != null
+        ? Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(refreshAfter.multipliedBy(2))
+            .build()
+        : null;
+    this.coalescedWaits = Counter.builder("cache.coalesced.waits")
+        .description("Cache misses that waited for another caller's load of the same key")
+        .tag("cache", delegate.getName())
+        .register(meterRegistry);
+    this.lockWaits = Counter.builder("cache.coalesced.lock.waits")
+        .description("Cache misses that waited for another node's load of the same key")
+        .tag("cache", delegate.getName())
+        .register(meterRegistry);
+    this.refreshes = Counter.builder("cache.refresh.ahead")
+        .description("Entries reloaded in the background before they expire")
+        .tag("cache", delegate.getName())
+        .register(meterRegistry);
+  }
+
+  @Override
+  public String getName() {
+    return delegate.getName();
+  }
+
+  public Cache getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return delegate.getNativeCache();
+  }
+
+  @Override
+  public ValueWrapper get(final Object key) {
+    return delegate.get(key);
+  }
+
+  @Override
+  public <T> T get(final Object key, final Class<T> type) {
+    return delegate.get(key, type);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(final Object key, final Callable<T> valueLoader) {
+    final ValueWrapper cached = delegate.get(key);
+    if (cached != null) {
+      refreshIfDue(key, valueLoader);
+      return (T) cached.get();
+    }
+    if (!coalesce) {
+      final Object fill = startFill(key);
+      try {
+        return (T) load(key, valueLoader, fill);
+      } finally {
+        endFill(key, fill);
+      }
+    }
+    final CompletableFuture<Object> load = new CompletableFuture<>();
+    final CompletableFuture<Object> existing = inFlight.putIfAbsent(key, load);
+    if (existing != null) {
+      coalescedWaits.increment();
+      return (T) await(existing);
+    }
+    final Object fill = startFill(key);
+    try {
+      final Object value = loadAndPut(key, valueLoader, fill, true);
+      load.complete(value);
+      return (T) value;
+    } catch (RuntimeException ex) {
+      load.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      endFill(key, fill);
+      inFlight.remove(key, load);
+    }
+  }
+
+  @Override
+  public void put(final Object key, final Object value) {
+    // A fill still running read before this put
+    fills.remove(fillKey(key));
+    delegate.put(key, value);
+  }
+
+  @Override
+  public ValueWrapper putIfAbsent(final Object key, final Object value) {
+    return delegate.putIfAbsent(key, value);
+  }
+
+  @Override
+  public void evict(final Object key) {
+    cancelFills(fillKey(key));
+    delegate.evict(key);
+    if (loadedAt != null) {
+      loadedAt.invalidate(key);
+    }
+  }
+
+  @Override
+  public void clear() {
+    cancelFills(null);
+    delegate.clear();
+    if (loadedAt != null) {
+      loadedAt.invalidateAll();
+    }
+  }
+
+  /**
+   * Registers a read of the key from the database, whose value is then cached with
+   * {@link #fill}. Reads of the same key running at once share a token.
+   */
+  public Object startFill(final Object key) {
+    return fills.computeIfAbsent(fillKey(key), k -> new Object());
+  }
+
+  /**
+   * Caches a value read since {@link #startFill} returned the token, unless the key was evicted
+   * in between. Runs under the map's lock for the key, so an eviction either comes after the put
+   * or cancels it.
+   */
+  public void fill(final Object key, final Object fill, final Object value) {
+    fills.computeIfPresent(fillKey(key), (k, current) -> {
+      if (current != fill) {
+        return current;
+      }
+      store(key, value);
+      return null;
+    });
+  }
+
+  /**
+   * Ends a fill started with {@link #startFill}, whether or not it cached anything.
+   */
+  public void endFill(final Object key, final Object fill) {
+    fills.remove(fillKey(key), fill);
+  }
+
+  /**
+   * Evictions so far, to pass to {@link #fillSince} by a read that does not know beforehand which
+   * keys it reads.
+   */
+  public long evictions() {
+    return evictions.get();
+  }
+
+  /**
+   * Caches a value read since {@link #evictions} returned {@code since}, unless any key of the
+   * cache was evicted in between.
+   */
+  public void fillSince(final long since, final Object key, final Object value) {
+    if (evictions.get() != since) {
+      return;
+    }
+    store(key, value);
+    if (evictions.get() != since) {
+      // An eviction ran between the check and the put
+      delegate.evict(key);
+    }
+  }
+
+  /**
+   * Applies an eviction made on another node, or with a {@code null} key a clear, to the fills
+   * running here.
+   */
+  void cancelFills(final String fillKey) {
+    evictions.incrementAndGet();
+    if (fillKey == null) {
+      fills.clear();
+    } else {
+      fills.remove(fillKey);
+    }
+  }
+
+  /**
+   * Loads the key and caches it unless the {@code fill} was cancelled. A background reload does
+   * not {@code waitForLock}.
+   */
+  private Object loadAndPut(final Object key, final Callable<?> valueLoader, final Object fill,
+      final boolean waitForLock) {
+    if (loadLock == null) {
+      return load(key, valueLoader, fill);
+    }
+    final long deadline = System.nanoTime() + loadLock.getTimeout().toNanos();
+    String token = loadLock.tryAcquire(getName(), key);
+    if (token == null && waitForLock) {
+      lockWaits.increment();
+      while (token == null && System.nanoTime() < deadline) {
+        final ValueWrapper loaded = delegate.get(key);
+        if (loaded != null) {
+          return loaded.get();
+        }
+        sleep();
+        token = loadLock.tryAcquire(getName(), key);
+      }
+    }
+    if (token == null && !waitForLock) {
+      // Another node is already refreshing this key
+      return null;
+    }
+    try {
+      return load(key, valueLoader, fill);
+    } finally {
+      if (token != null) {
+        loadLock.release(getName(), key, token);
+      }
+    }
+  }
+
+  private Object load(final Object key, final Callable<?> valueLoader, final Object fill) {
+    final Object value;
+    try {
+      value = valueLoader.call();
+    } catch (Exception ex) {
+      throw new ValueRetrievalException(key, valueLoader, ex);
+    }
+    fill(key, fill, value);
+    return value;
+  }
+
+  private void store(final Object key, final Object value) {
+    delegate.put(key, value);
+    if (loadedAt != null) {
+      loadedAt.put(key, System.nanoTime());
+    }
+  }
+
+  private void refreshIfDue(final Object key, final Callable<?> valueLoader) {
+    if (loadedAt == null) {
+      return;
+    }
+    final Long at = loadedAt.getIfPresent(key);
+    if (at == null || System.nanoTime() - at < refreshAfterNanos) {
+      return;
+    }
+    final Object refresh = new Object();
+    if (fills.putIfAbsent(fillKey(key), refresh) != null) {
+      // Already being loaded or reloaded
+      return;
+    }
+    // Until the reload finishes, hits keep getting the current value rather than waiting
+    refreshes.increment();
+    Thread.ofVirtual().name("cache-refresh-" + getName()).start(() -> {
+      try {
+        loadAndPut(key, valueLoader, refresh, false);
+      } catch (RuntimeException ex) {
+        log.warn("Refresh-ahead of {} in cache {} failed: {}", key, getName(), ex.getMessage());
+      } finally {
+        endFill(key, refresh);
+      }
+    });
+  }
+
+  private Object await(final CompletableFuture<Object> load) {
+    try {
+      return load.join();
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw ex;
+    }
+  }
+
+  private static String fillKey(final Object key) {
+    return TwoTierCache.localKey(key);
+  }
+
+  private static void sleep() {
+    try {
+      TimeUnit.MILLISECONDS.sleep(LOCK_POLL_MILLIS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a cache load", ex);
+    }
+  }
+
+}
@@ -0,0 +1,65 @@
+package planettask.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+
+/**
+ * Wraps every cache of another {@link CacheManager} in a {@link CoalescingCache}.
+ */
+public class CoalescingCacheManager implements CacheManager {
+
+  private final CacheManager delegate;
+  private final boolean coalesce;
+  private final Duration refreshAfter;
+  private final RedisLoadLock loadLock;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, CoalescingCache> caches = new ConcurrentHashMap<>();
+
+  public CoalescingCacheManager(final CacheManager delegate, final boolean coalesce,
+      final Duration refreshAfter, final RedisLoadLock loadLock,
+      final MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.coalesce = coalesce;
+    this.refreshAfter = refreshAfter;
+    this.loadLock = loadLock;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public Cache getCache(final String name) {
+    final CoalescingCache cache = caches.get(name);
+    if (cache != null) {
+      return cache;
+    }
+    final Cache target = delegate.getCache(name);
+    if (target == null) {
+      return null;
+    }
+    return caches.computeIfAbsent(name,
+        cacheName -> new CoalescingCache(target, coalesce, refreshAfter, loadLock,
+            meterRegistry));
+  }
+
+  @Override
+  public Collection<String> getCacheNames() {
+    return delegate.getCacheNames();
+  }
+
+  /**
+   * Cancels this node's fills of an entry, or with a {@code null} key of the whole cache, evicted
+   * on another node.
+   */
+  public void onInvalidation(final String cacheName, final String key) {
+    final CoalescingCache cache = caches.get(cacheName);
+    if (cache != null) {
+      cache.cancelFills(key);
+    }
+  }
+
+}
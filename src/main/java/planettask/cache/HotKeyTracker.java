@@ -0,0 +1,57 @@
+package planettask.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.stereotype.Component;
+import planettask.config.CacheWarmupProperties;
+
+
+/**
+ * Counts requests per book id, ISBN and user id, so that the hottest keys can be preloaded after
+ * a restart. The counters live in a bounded Caffeine cache whose frequency-based admission keeps
+ * hot keys while one-off lookups, such as crawlers walking ids, are dropped.
+ */
+@Component
+public class HotKeyTracker {
+
+  public enum Kind {
+    BOOK, ISBN, USER
+  }
+
+  public record HotKey(Kind kind, String key) {
+
+  }
+
+  private final boolean enabled;
+  private final Cache<HotKey, LongAdder> counts;
+
+  public HotKeyTracker(final CacheWarmupProperties properties) {
+    this.enabled = properties.isEnabled();
+    this.counts = Caffeine.newBuilder()
+        .maximumSize(Math.max(properties.getTopK(), 1) * 8L)
+        .build();
+  }
+
+  public void record(final Kind kind, final Object key) {
+    if (enabled) {
+      counts.get(new HotKey(kind, String.valueOf(key)), hotKey -> new LongAdder()).increment();
+    }
+  }
+
+  /**
+   * The {@code limit} most requested keys, most requested first.
+   */
+  public List<HotKey> top(final int limit) {
+    return counts.asMap().entrySet().stream()
+        .sorted(Comparator.comparingLong(
+            (Map.Entry<HotKey, LongAdder> entry) -> entry.getValue().sum()).reversed())
+        .limit(limit)
+        .map(Map.Entry::getKey)
+        .toList();
+  }
+
+}
@@ -0,0 +1,246 @@
+package planettask.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+import planettask.config.ResponseCacheProperties;
+import planettask.service.BookCopiesReleasedEvent;
+import planettask.service.BookCopiesTakenEvent;
+import planettask.service.BookCreatedEvent;
+import planettask.service.UserCreatedEvent;
+
+
+/**
+ * Caches the serialized JSON of read responses, so a hit writes ready-made bytes to the servlet
+ * output stream instead of serializing a DTO again.
+ * <p>
+ * Each entry keeps its body, an ETag and, for larger bodies, a gzip variant, all computed once
+ * when the entry is created. The gzip variant is a different representation, so it is served
+ * with its own ETag, the body's with a {@code -gz} suffix. Entries are evicted on the same events
+ * as the shared caches; pages are dropped on any write to the resource they list.
+ * <p>
+ * Writes made on other nodes arrive as the shared caches' invalidations on the near cache's
+ * {@link RedisCacheInvalidationBus}. Without the near cache there is no such channel, so the
+ * response cache is then only safe on a single node.
+ */
+@Component
+@ConditionalOnProperty(prefix = "planet.cache.response", name = "enabled", havingValue = "true")
+public class JsonResponseCache {
+
+  private static final String GZIP = "gzip";
+  private static final String GZIP_ETAG_SUFFIX = "-gz";
+
+  public enum Resource {
+    BOOK, USER
+  }
+
+  private record EntityKey(Resource resource, Long id) {
+  }
+
+  private record PageKey(Resource resource, int page, int size, String sort) {
+  }
+
+  record CachedResponse(byte[] body, byte[] gzipBody, String etag) {
+  }
+
+  private final ObjectMapper objectMapper;
+  private final ResponseCacheProperties properties;
+  private final Cache<Object, CachedResponse> responses;
+  private final AtomicLong evictions = new AtomicLong();
+
+  public JsonResponseCache(final ObjectMapper objectMapper,
+      final ResponseCacheProperties properties,
+      final ObjectProvider<RedisCacheInvalidationBus> invalidationBus) {
+    this.objectMapper = objectMapper;
+    this.properties = properties;
+    this.responses = Caffeine.newBuilder()
+        .maximumSize(properties.getMaximumSize())
+        .expireAfterWrite(properties.getExpireAfterWrite())
+        .build();
+    invalidationBus.ifAvailable(bus -> bus.addListener(this::onInvalidation));
+  }
+
+  /**
+   * Writes the response for one entity, loading and serializing it on a miss.
+   */
+  public void writeEntity(final Resource resource, final Long id, final Supplier<?> loader,
+      final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+    write(new EntityKey(resource, id), loader, request, response);
+  }
+
+  /**
+   * Writes the response for one page, loading and serializing it on a miss.
+   */
+  public void writePage(final Resource resource, final int page, final int size,
+      final String sort, final Supplier<?> loader, final HttpServletRequest request,
+      final HttpServletResponse response) throws IOException {
+    write(new PageKey(resource, page, size, sort), loader, request, response);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookCreated(final BookCreatedEvent event) {
+    evictPages(Resource.BOOK);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onUserCreated(final UserCreatedEvent event) {
+    evictPages(Resource.USER);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCopiesTaken(final BookCopiesTakenEvent event) {
+    evictBooks(event.bookIds());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCopiesReleased(final BookCopiesReleasedEvent event) {
+    evictBooks(event.bookIds());
+  }
+
+  /**
+   * Applies an invalidation of a shared cache received from another node.
+   */
+  void onInvalidation(final String cacheName, final String key) {
+    switch (cacheName) {
+      case CacheNames.BOOK -> {
+        if (key == null) {
+          evictAll(Resource.BOOK);
+        } else {
+          evictBooks(List.of(Long.valueOf(key)));
+        }
+      }
+      case CacheNames.USER -> {
+        if (key == null) {
+          evictAll(Resource.USER);
+        } else {
+          evictions.incrementAndGet();
+          responses.invalidate(new EntityKey(Resource.USER, Long.valueOf(key)));
+          evictPages(Resource.USER);
+        }
+      }
+      case CacheNames.BOOK_PAGE -> evictPages(Resource.BOOK);
+      case CacheNames.USER_PAGE -> evictPages(Resource.USER);
+      default -> {
+        // Not behind any cached response
+      }
+    }
+  }
+
+  private void write(final Object key, final Supplier<?> loader,
+      final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+    final CachedResponse cached = get(key, loader);
+    final boolean gzip = cached.gzipBody() != null && acceptsGzip(request);
+    final String etag = gzip ? gzipEtag(cached.etag()) : cached.etag();
+    response.setHeader(HttpHeaders.ETAG, etag);
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+    final byte[] body;
+    if (gzip) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+      body = cached.gzipBody();
+    } else {
+      body = cached.body();
+    }
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  /**
+   * Loads and serializes a missing entry outside the cache's lock, so that a slow load holds up
+   * no other key. An entry loaded while an eviction ran may predate the write behind it, so it is
+   * served but not cached.
+   */
+  private CachedResponse get(final Object key, final Supplier<?> loader) {
+    final CachedResponse cached = responses.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+    final long evicted = evictions.get();
+    final CachedResponse loaded = serialize(loader.get());
+    if (evictions.get() != evicted) {
+      return loaded;
+    }
+    final CachedResponse existing = responses.asMap().putIfAbsent(key, loaded);
+    if (existing != null) {
+      return existing;
+    }
+    if (evictions.get() != evicted) {
+      // An eviction ran between the check and the put
+      responses.asMap().remove(key, loaded);
+    }
+    return loaded;
+  }
+
+  CachedResponse serialize(final Object value) {
+    final byte[] body;
+    try {
+      body = objectMapper.writeValueAsBytes(value);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("Could not serialize response", ex);
+    }
+    final byte[] gzipBody = body.length >= properties.getGzipMinSize() ? gzip(body) : null;
+    return new CachedResponse(body, gzipBody, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+  }
+
+  private void evictBooks(final Collection<Long> bookIds) {
+    evictions.incrementAndGet();
+    bookIds.forEach(bookId -> responses.invalidate(new EntityKey(Resource.BOOK, bookId)));
+    evictPages(Resource.BOOK);
+  }
+
+  private void evictAll(final Resource resource) {
+    evictions.incrementAndGet();
+    responses.asMap().keySet().removeIf(key -> key instanceof EntityKey entity
+        ? entity.resource() == resource
+        : ((PageKey) key).resource() == resource);
+  }
+
+  private void evictPages(final Resource resource) {
+    evictions.incrementAndGet();
+    responses.asMap().keySet()
+        .removeIf(key -> key instanceof PageKey page && page.resource() == resource);
+  }
+
+  private static String gzipEtag(final String etag) {
+    return etag.substring(0, etag.length() - 1) + GZIP_ETAG_SUFFIX + "\"";
+  }
+
+  private static boolean acceptsGzip(final HttpServletRequest request) {
+    final String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+    return acceptEncoding != null && acceptEncoding.contains(GZIP);
+  }
+
+  private static byte[] gzip(final byte[] body) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2 + 32);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(body);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return out.toByteArray();
+  }
+
+}
@@ -0,0 +1,50 @@
+package planettask.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import planettask.util.NotFoundException;
+
+
+/**
+ * Remembers lookups that found nothing, so repeated requests for a nonexistent key are answered
+ * without a database query. Entries live in their own short-lived caches and are evicted by
+ * {@link CacheInvalidator} when the key is created.
+ */
+@Component
+public class NegativeCache {
+
+  private final CacheManager cacheManager;
+  private final MeterRegistry meterRegistry;
+
+  public NegativeCache(final CacheManager cacheManager, final MeterRegistry meterRegistry) {
+    this.cacheManager = cacheManager;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Throws {@link NotFoundException} if the key was recently looked up in vain.
+   */
+  public void checkNotMissing(final String cacheName, final Object key) {
+    final Cache cache = cacheManager.getCache(cacheName);
+    if (cache != null && cache.get(key) != null) {
+      meterRegistry.counter("cache.negative.hits", "cache", cacheName).increment();
+      throw new NotFoundException();
+    }
+    meterRegistry.counter("cache.negative.misses", "cache", cacheName).increment();
+  }
+
+  /**
+   * Records that the key does not exist and returns the exception to report it with.
+   */
+  public NotFoundException missing(final String cacheName, final Object key) {
+    final Cache cache = cacheManager.getCache(cacheName);
+    if (cache != null) {
+      cache.put(key, Boolean.TRUE);
+      meterRegistry.counter("cache.negative.puts", "cache", cacheName).increment();
+    }
+    return new NotFoundException();
+  }
+
+}
@@ -0,0 +1,208 @@
+package planettask.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Caches pages as the ordered ids of their entries and assembles them from the per-entity caches.
+ * <p>
+ * A page entry holds nothing but ids, so a change to an entity only evicts that entity's own
+ * entry and every cached page picks up the new state; page caches only need clearing when
+ * membership or order changes. Assembling a page reads all its entities with one multi-get and
+ * loads the misses with one query.
+ * <p>
+ * What a query read is only cached if its key was not evicted while the query ran, as for a
+ * {@link CoalescingCache} load; otherwise a write committed in between would be undone until the
+ * entry expires.
+ */
+@Component
+public class PageCache {
+
+  private final CacheManager cacheManager;
+  private final CacheMultiGet multiGet;
+
+  public PageCache(final CacheManager cacheManager, final CacheMultiGet multiGet) {
+    this.cacheManager = cacheManager;
+    this.multiGet = multiGet;
+  }
+
+  /**
+   * Returns the page, from the caches where possible.
+   *
+   * @param loadPage queries the whole page, used when its ids are not cached
+   * @param loadByIds queries the given entities, used for those missing from the entity cache
+   */
+  public <T> List<T> get(final String pageCacheName, final String entityCacheName,
+      final Pageable pageable, final Function<T, Long> idOf, final Supplier<List<T>> loadPage,
+      final Function<Collection<Long>, List<T>> loadByIds) {
+    final Cache pageCache = cacheManager.getCache(pageCacheName);
+    final Cache entityCache = cacheManager.getCache(entityCacheName);
+    if (pageCache == null || entityCache == null) {
+      return loadPage.get();
+    }
+    final Object pageKey = pageKey(pageable);
+    final List<Long> ids = toIds(pageCache.get(pageKey, List.class));
+    if (ids != null) {
+      final List<T> page = assemble(entityCache, ids, idOf, loadByIds);
+      if (page != null) {
+        return page;
+      }
+    }
+    if (!(pageCache instanceof CoalescingCache guardedPages)
+        || !(entityCache instanceof CoalescingCache guardedEntities)) {
+      final List<T> page = loadPage.get();
+      page.forEach(entry -> entityCache.put(idOf.apply(entry), entry));
+      pageCache.put(pageKey, page.stream().map(idOf).toList());
+      return page;
+    }
+    final Object pageFill = guardedPages.startFill(pageKey);
+    // The page's entities are only known once it is read
+    final long entityEvictions = guardedEntities.evictions();
+    try {
+      final List<T> page = loadPage.get();
+      page.forEach(entry -> guardedEntities.fillSince(entityEvictions, idOf.apply(entry), entry));
+      guardedPages.fill(pageKey, pageFill, page.stream().map(idOf).toList());
+      return page;
+    } finally {
+      guardedPages.endFill(pageKey, pageFill);
+    }
+  }
+
+  /**
+   * Returns the entry cached under the given key, loading it on a miss at most once at a time per
+   * key, as {@code @Cacheable(sync = true)} does. Exceptions thrown by {@code load} are rethrown
+   * as they are.
+   */
+  public <T> T get(final String cacheName, final Object key, final Supplier<T> load) {
+    final Cache cache = cacheManager.getCache(cacheName);
+    if (cache == null) {
+      return load.get();
+    }
+    try {
+      return cache.get(key, load::get);
+    } catch (Cache.ValueRetrievalException ex) {
+      if (ex.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw ex;
+    }
+  }
+
+  /**
+   * Returns the entries with the given ids, in that order, from the entity cache where possible.
+   * Ids that no longer exist are left out.
+   */
+  public <T> List<T> getAll(final String entityCacheName, final List<Long> ids,
+      final Function<T, Long> idOf, final Function<Collection<Long>, List<T>> loadByIds) {
+    final Map<Object, Object> found = find(cacheManager.getCache(entityCacheName), ids, idOf,
+        loadByIds);
+    final List<T> entries = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      @SuppressWarnings("unchecked")
+      final T entry = (T) found.get(id);
+      if (entry != null) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Loads the entries with the given ids with one query and caches them, whether or not they are
+   * cached already. Returns the entries loaded.
+   */
+  public <T> List<T> load(final String entityCacheName, final Collection<Long> ids,
+      final Function<T, Long> idOf, final Function<Collection<Long>, List<T>> loadByIds) {
+    return loadAndFill(cacheManager.getCache(entityCacheName), ids, idOf, loadByIds);
+  }
+
+  /**
+   * Returns {@code null} if an id of the page no longer exists, in which case the page itself is
+   * stale and has to be queried again.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> List<T> assemble(final Cache entityCache, final List<Long> ids,
+      final Function<T, Long> idOf, final Function<Collection<Long>, List<T>> loadByIds) {
+    final Map<Object, Object> found = find(entityCache, ids, idOf, loadByIds);
+    final List<T> page = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      final Object entry = found.get(id);
+      if (entry == null) {
+        return null;
+      }
+      page.add((T) entry);
+    }
+    return page;
+  }
+
+  /**
+   * Reads the entries with one multi-get and loads the misses with one query, caching them.
+   */
+  private <T> Map<Object, Object> find(final Cache entityCache, final List<Long> ids,
+      final Function<T, Long> idOf, final Function<Collection<Long>, List<T>> loadByIds) {
+    final Map<Object, Object> found = entityCache != null
+        ? multiGet.getAll(entityCache, ids)
+        : new HashMap<>();
+    if (found.size() < ids.size()) {
+      final List<Long> missing = ids.stream().filter(id -> !found.containsKey(id)).toList();
+      loadAndFill(entityCache, missing, idOf, loadByIds)
+          .forEach(entry -> found.put(idOf.apply(entry), entry));
+    }
+    return found;
+  }
+
+  /**
+   * Loads the entries with one query and caches them, through the fill guard where the cache has
+   * one.
+   */
+  private static <T> List<T> loadAndFill(final Cache entityCache, final Collection<Long> ids,
+      final Function<T, Long> idOf, final Function<Collection<Long>, List<T>> loadByIds) {
+    if (!(entityCache instanceof CoalescingCache guarded)) {
+      final List<T> entries = loadByIds.apply(ids);
+      if (entityCache != null) {
+        entries.forEach(entry -> entityCache.put(idOf.apply(entry), entry));
+      }
+      return entries;
+    }
+    final Map<Long, Object> started = new HashMap<>();
+    ids.forEach(id -> started.put(id, guarded.startFill(id)));
+    try {
+      final List<T> entries = loadByIds.apply(ids);
+      entries.forEach(entry -> guarded.fill(idOf.apply(entry), started.get(idOf.apply(entry)),
+          entry));
+      return entries;
+    } finally {
+      started.forEach(guarded::endFill);
+    }
+  }
+
+  private static List<Long> toIds(final List<?> cached) {
+    if (cached == null) {
+      return null;
+    }
+    final List<Long> ids = new ArrayList<>(cached.size());
+    for (Object id : cached) {
+      if (!(id instanceof Number number)) {
+        return null;
+      }
+      ids.add(number.longValue());
+    }
+    return ids;
+  }
+
+  private static Object pageKey(final Pageable pageable) {
+    return List.of(pageable.getPageNumber(), pageable.getPageSize(),
+        pageable.getSort().toString());
+  }
+
+}
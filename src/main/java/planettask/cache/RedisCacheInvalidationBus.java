@@ -0,0 +1,73 @@
+package planettask.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+
+/**
+ * Carries near-cache invalidations between nodes over a Redis pub/sub channel. Messages are
+ * {@code node, cache, key} separated by a unit separator; an empty key slot means "clear the
+ * cache". A node ignores its own messages, having already applied them locally.
+ * <p>
+ * Besides the near cache, other per-node caches derived from the shared ones listen here, so
+ * that a write on any node evicts them everywhere.
+ */
+@Slf4j
+public class RedisCacheInvalidationBus implements CacheInvalidationPublisher, MessageListener {
+
+  private static final char SEPARATOR = '\u001f';
+  private static final char KEY_MARKER = 'k';
+
+  private final StringRedisTemplate redisTemplate;
+  private final String channel;
+  private final String nodeId = UUID.randomUUID().toString();
+  private final List<BiConsumer<String, String>> listeners = new CopyOnWriteArrayList<>();
+
+  public RedisCacheInvalidationBus(final StringRedisTemplate redisTemplate, final String channel) {
+    this.redisTemplate = redisTemplate;
+    this.channel = channel;
+  }
+
+  /**
+   * Registers a listener for invalidations from other nodes, called with the cache name and the
+   * key, or {@code null} when the whole cache is cleared.
+   */
+  public void addListener(final BiConsumer<String, String> listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void publish(final String cacheName, final String key) {
+    final String message = nodeId + SEPARATOR + cacheName + SEPARATOR
+        + (key == null ? "" : KEY_MARKER + key);
+    try {
+      redisTemplate.convertAndSend(channel, message);
+    } catch (DataAccessException ex) {
+      // Other nodes fall back on the near cache's expire-after-write
+      log.warn("Failed to publish invalidation of {} in cache {}: {}", key, cacheName,
+          ex.getMessage());
+    }
+  }
+
+  @Override
+  public void onMessage(final Message message, final byte[] pattern) {
+    final String body = new String(message.getBody(), StandardCharsets.UTF_8);
+    final int first = body.indexOf(SEPARATOR);
+    final int second = body.indexOf(SEPARATOR, first + 1);
+    if (first < 0 || second < 0 || body.substring(0, first).equals(nodeId)) {
+      return;
+    }
+    final String cacheName = body.substring(first + 1, second);
+    final String key = second + 1 < body.length() ? body.substring(second + 2) : null;
+    listeners.forEach(listener -> listener.accept(cacheName, key));
+  }
+
+}
@@ -0,0 +1,66 @@
+package planettask.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+
+/**
+ * Short-lived per-key lock in Redis that lets one node load a missing cache entry for the whole
+ * cluster. The lock expires on its own if its holder dies, and is only released by its holder.
+ */
+@Slf4j
+public class RedisLoadLock {
+
+  private static final String KEY_PREFIX = "cache-load-lock:";
+
+  private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+      "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) "
+          + "else return 0 end", Long.class);
+
+  private final StringRedisTemplate redisTemplate;
+  private final Duration timeout;
+
+  public RedisLoadLock(final StringRedisTemplate redisTemplate, final Duration timeout) {
+    this.redisTemplate = redisTemplate;
+    this.timeout = timeout;
+  }
+
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Returns the token to release the lock with, or {@code null} if another node holds it. If
+   * Redis is unreachable the lock is treated as acquired, so loading degrades to per node.
+   */
+  public String tryAcquire(final String cacheName, final Object key) {
+    final String token = UUID.randomUUID().toString();
+    try {
+      final Boolean acquired = redisTemplate.opsForValue()
+          .setIfAbsent(lockKey(cacheName, key), token, timeout);
+      return Boolean.TRUE.equals(acquired) ? token : null;
+    } catch (DataAccessException ex) {
+      log.warn("Could not take cache load lock, loading without it: {}", ex.getMessage());
+      return token;
+    }
+  }
+
+  public void release(final String cacheName, final Object key, final String token) {
+    try {
+      redisTemplate.execute(RELEASE, List.of(lockKey(cacheName, key)), token);
+    } catch (DataAccessException ex) {
+      log.debug("Could not release cache load lock, it will expire: {}", ex.getMessage());
+    }
+  }
+
+  private static String lockKey(final String cacheName, final Object key) {
+    return KEY_PREFIX + cacheName + "::" + key;
+  }
+
+}
@@ -0,0 +1,190 @@
+package planettask.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+
+/**
+ * {@link org.springframework.cache.Cache} that serves hits from an in-process Caffeine cache (L1)
+ * and falls through to a shared cache, normally Redis (L2).
+ * <p>
+ * L1 keys are the string form of the cache key, which is also what Redis keys are derived from,
+ * so invalidation messages name entries the same way on every node. Values are kept as
+ * {@link ValueWrapper}s so cached {@code null}s are served from L1 too.
+ * <p>
+ * Only evictions and clears are broadcast: entries change through eviction, and a put merely
+ * caches what was loaded, which other nodes load the same. An L1 fill after a remote read is
+ * dropped if the key is invalidated while the read runs, since the value read may be the one the
+ * invalidation was about.
+ */
+public class TwoTierCache implements org.springframework.cache.Cache {
+
+  private final String name;
+  private final org.springframework.cache.Cache remote;
+  private final Cache<String, ValueWrapper> local;
+  private final CacheInvalidationPublisher invalidationPublisher;
+  // A token per key being read from L2; invalidating the key removes it, which cancels the fill
+  private final Map<String, Object> fills = new ConcurrentHashMap<>();
+
+  public TwoTierCache(final String name, final org.springframework.cache.Cache remote,
+      final Cache<String, ValueWrapper> local,
+      final CacheInvalidationPublisher invalidationPublisher) {
+    this.name = name;
+    this.remote = remote;
+    this.local = local;
+    this.invalidationPublisher = invalidationPublisher;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return remote.getNativeCache();
+  }
+
+  @Override
+  public ValueWrapper get(final Object key) {
+    final String localKey = localKey(key);
+    final ValueWrapper cached = local.getIfPresent(localKey);
+    if (cached != null) {
+      return cached;
+    }
+    final Object fill = startFill(localKey);
+    final ValueWrapper loaded = remote.get(key);
+    if (loaded != null) {
+      fillLocal(localKey, fill, loaded.get());
+    }
+    return loaded;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(final Object key, final Class<T> type) {
+    final ValueWrapper wrapper = get(key);
+    final Object value = wrapper != null ? wrapper.get() : null;
+    if (value != null && type != null && !type.isInstance(value)) {
+      throw new IllegalStateException(
+          "Cached value is not of required type [" + type.getName() + "]: " + value);
+    }
+    return (T) value;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(final Object key, final Callable<T> valueLoader) {
+    final String localKey = localKey(key);
+    final ValueWrapper cached = local.getIfPresent(localKey);
+    if (cached != null) {
+      return (T) cached.get();
+    }
+    final Object fill = startFill(localKey);
+    final T value = remote.get(key, valueLoader);
+    fillLocal(localKey, fill, value);
+    return value;
+  }
+
+  @Override
+  public void put(final Object key, final Object value) {
+    remote.put(key, value);
+    final String localKey = localKey(key);
+    // A fill still running read before this put
+    fills.remove(localKey);
+    local.put(localKey, new SimpleValueWrapper(value));
+  }
+
+  @Override
+  public void evict(final Object key) {
+    remote.evict(key);
+    final String localKey = localKey(key);
+    invalidateLocal(localKey);
+    invalidationPublisher.publish(name, localKey);
+  }
+
+  @Override
+  public void clear() {
+    remote.clear();
+    invalidateLocal(null);
+    invalidationPublisher.publish(name, null);
+  }
+
+  org.springframework.cache.Cache getRemote() {
+    return remote;
+  }
+
+  /**
+   * Reads the given keys from the near cache, and those it does not hold with one call to
+   * {@code remoteGetAll}, which are then kept in the near cache too.
+   */
+  Map<Object, Object> getAll(final Collection<?> keys,
+      final Function<Collection<?>, Map<Object, Object>> remoteGetAll) {
+    final Map<Object, Object> found = new HashMap<>();
+    final List<Object> remoteKeys = new ArrayList<>();
+    for (Object key : keys) {
+      final ValueWrapper cached = local.getIfPresent(localKey(key));
+      if (cached != null && cached.get() != null) {
+        found.put(key, cached.get());
+      } else {
+        remoteKeys.add(key);
+      }
+    }
+    if (!remoteKeys.isEmpty()) {
+      final Map<String, Object> started = new HashMap<>();
+      remoteKeys.forEach(key -> started.put(localKey(key), startFill(localKey(key))));
+      final Map<Object, Object> loaded = remoteGetAll.apply(remoteKeys);
+      loaded.forEach((key, value) -> fillLocal(localKey(key), started.get(localKey(key)), value));
+      found.putAll(loaded);
+    }
+    return found;
+  }
+
+  /**
+   * Applies an invalidation received from another node.
+   */
+  void invalidateLocal(final String localKey) {
+    if (localKey == null) {
+      fills.clear();
+      local.invalidateAll();
+    } else {
+      fills.remove(localKey);
+      local.invalidate(localKey);
+    }
+  }
+
+  /**
+   * Registers a read of the key from L2; concurrent reads of the same key share its token.
+   */
+  private Object startFill(final String localKey) {
+    return fills.computeIfAbsent(localKey, k -> new Object());
+  }
+
+  /**
+   * Puts what a read got from L2 into L1, unless the key was invalidated since the read started.
+   * Runs under the map's lock for the key, so an invalidation either comes after the put or
+   * cancels it.
+   */
+  private void fillLocal(final String localKey, final Object fill, final Object value) {
+    fills.computeIfPresent(localKey, (k, current) -> {
+      if (current != fill) {
+        return current;
+      }
+      local.put(localKey, new SimpleValueWrapper(value));
+      return null;
+    });
+  }
+
+  static String localKey(final Object key) {
+    return String.valueOf(key);
+  }
+
+}
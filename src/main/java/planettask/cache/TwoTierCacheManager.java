@@ -0,0 +1,63 @@
+package planettask.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import planettask.config.NearCacheProperties;
+
+
+/**
+ * Puts a bounded Caffeine near cache in front of every cache of another {@link CacheManager}.
+ */
+public class TwoTierCacheManager implements CacheManager {
+
+  private final CacheManager remoteCacheManager;
+  private final NearCacheProperties properties;
+  private final CacheInvalidationPublisher invalidationPublisher;
+  private final Map<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+  public TwoTierCacheManager(final CacheManager remoteCacheManager,
+      final NearCacheProperties properties,
+      final CacheInvalidationPublisher invalidationPublisher) {
+    this.remoteCacheManager = remoteCacheManager;
+    this.properties = properties;
+    this.invalidationPublisher = invalidationPublisher;
+  }
+
+  @Override
+  public Cache getCache(final String name) {
+    final TwoTierCache cache = caches.get(name);
+    if (cache != null) {
+      return cache;
+    }
+    final Cache remote = remoteCacheManager.getCache(name);
+    if (remote == null) {
+      return null;
+    }
+    return caches.computeIfAbsent(name, cacheName -> new TwoTierCache(cacheName, remote,
+        Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumSize())
+            .expireAfterWrite(properties.getExpireAfterWrite())
+            .build(),
+        invalidationPublisher));
+  }
+
+  @Override
+  public Collection<String> getCacheNames() {
+    return remoteCacheManager.getCacheNames();
+  }
+
+  /**
+   * Drops an entry, or with a {@code null} key the whole cache, from this node's near cache.
+   */
+  public void onInvalidation(final String cacheName, final String key) {
+    final TwoTierCache cache = caches.get(cacheName);
+    if (cache != null) {
+      cache.invalidateLocal(key);
+    }
+  }
+
+}
@@ -0,0 +1,31 @@
+package planettask.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * Asynchronous reservation intake: requests are queued and answered with a ticket that is polled
+ * for the outcome.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.reservation.async")
+public class AsyncReservationProperties {
+
+  private int queueCapacity = 10_000;
+
+  private int workers = 16;
+
+  private int batchSize = 32;
+
+  /**
+   * How long a finished ticket can still be polled.
+   */
+  private Duration ticketTtl = Duration.ofMinutes(15);
+
+  private Duration purgeInterval = Duration.ofSeconds(60);
+
+}
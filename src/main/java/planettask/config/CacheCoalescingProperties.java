@@ -0,0 +1,38 @@
+package planettask.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * Single-flight loading for {@code @Cacheable(sync = true)} reads: on a miss one caller per node
+ * loads the value while the others wait for it. Disabling it leaves loads uncoalesced, but they
+ * are still dropped when their key is evicted while they run.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.cache.coalescing")
+public class CacheCoalescingProperties {
+
+  private boolean enabled = true;
+
+  /**
+   * Age after which a hit reloads the entry in the background, so hot keys are replaced before
+   * they expire. Should be below the cache's time-to-live; unset disables refresh-ahead.
+   */
+  private Duration refreshAfter;
+
+  /**
+   * Also takes a short Redis lock per key, so only one node in the cluster loads it.
+   */
+  private boolean distributedLock = false;
+
+  /**
+   * Lifetime of the Redis lock, and how long other nodes wait for its holder's value before
+   * loading it themselves.
+   */
+  private Duration lockTimeout = Duration.ofSeconds(5);
+
+}
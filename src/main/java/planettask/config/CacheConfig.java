@@ -0,0 +1,80 @@
+package planettask.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.cache.RedisCacheManagerBuilderCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import planettask.cache.BinaryCacheSerializer;
+import planettask.cache.CoalescingCacheManager;
+import planettask.cache.RedisCacheInvalidationBus;
+import planettask.cache.RedisLoadLock;
+
+
+@Configuration
+public class CacheConfig {
+
+  /**
+   * Decorates whichever {@link CacheManager} is in use, Redis or two-tier, with single-flight
+   * loading and with guarded fills, the latter even when coalescing is disabled. Static, and
+   * resolving its dependencies lazily, as post-processors are created before regular beans.
+   */
+  @Bean
+  public static BeanPostProcessor coalescingCacheManagerPostProcessor(
+      final ObjectProvider<CacheCoalescingProperties> properties,
+      final ObjectProvider<StringRedisTemplate> redisTemplate,
+      final ObjectProvider<MeterRegistry> meterRegistry,
+      final ObjectProvider<RedisCacheInvalidationBus> invalidationBus) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+        if (!(bean instanceof CacheManager cacheManager)
+            || bean instanceof CoalescingCacheManager) {
+          return bean;
+        }
+        final CacheCoalescingProperties coalescing = properties.getObject();
+        final boolean enabled = coalescing.isEnabled();
+        final RedisLoadLock loadLock = enabled && coalescing.isDistributedLock()
+            ? new RedisLoadLock(redisTemplate.getObject(), coalescing.getLockTimeout())
+            : null;
+        final CoalescingCacheManager coalescingCacheManager = new CoalescingCacheManager(
+            cacheManager, enabled, enabled ? coalescing.getRefreshAfter() : null, loadLock,
+            meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+        invalidationBus.ifAvailable(
+            bus -> bus.addListener(coalescingCacheManager::onInvalidation));
+        return coalescingCacheManager;
+      }
+    };
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "planet.cache.serialization", name = "format",
+      havingValue = "binary")
+  public BinaryCacheSerializer binaryCacheSerializer(
+      final CacheSerializationProperties properties) {
+    return new BinaryCacheSerializer(properties.getCompressionThreshold());
+  }
+
+  /**
+   * Applies the value serializer and then the per-cache TTLs on top of the default Redis cache
+   * configuration, so that every per-cache configuration inherits the serializer.
+   */
+  @Bean
+  public RedisCacheManagerBuilderCustomizer redisCacheCustomizer(
+      final CacheTtlProperties properties,
+      final ObjectProvider<BinaryCacheSerializer> binaryCacheSerializer) {
+    return builder -> {
+      binaryCacheSerializer.ifAvailable(serializer -> builder.cacheDefaults(
+          builder.cacheDefaults().serializeValuesWith(SerializationPair.fromSerializer(serializer))));
+      properties.getTimeToLive().forEach((cacheName, ttl) ->
+          builder.withCacheConfiguration(cacheName, builder.cacheDefaults().entryTtl(ttl)));
+    };
+  }
+
+}
@@ -0,0 +1,24 @@
+package planettask.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * Encoding of Redis cache values: {@code jdk} for Java serialization, {@code binary} for the
+ * compact {@link planettask.cache.BinaryCacheSerializer} format.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.cache.serialization")
+public class CacheSerializationProperties {
+
+  private String format = "jdk";
+
+  /**
+   * Encoded values of at least this many bytes are LZ4-compressed.
+   */
+  private int compressionThreshold = 1024;
+
+}
@@ -0,0 +1,22 @@
+package planettask.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * Per-cache time-to-live, keyed by cache name. Caches without an entry use
+ * {@code spring.cache.redis.time-to-live}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.cache")
+public class CacheTtlProperties {
+
+  private Map<String, Duration> timeToLive = new HashMap<>();
+
+}
@@ -0,0 +1,41 @@
+package planettask.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * Warm restarts: the most requested books, ISBNs and users are written to a local snapshot while
+ * running and on shutdown, and preloaded into the caches on startup before the application
+ * reports itself ready.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.cache.warmup")
+public class CacheWarmupProperties {
+
+  private boolean enabled = false;
+
+  private Path snapshotFile = Path.of("cache-warmup.snapshot");
+
+  /**
+   * Number of hottest keys kept in the snapshot.
+   */
+  private int topK = 1000;
+
+  /**
+   * Ids per multi-id query while preloading.
+   */
+  private int batchSize = 200;
+
+  /**
+   * Longest time startup waits for the preload; whatever is not loaded by then is skipped.
+   */
+  private Duration timeout = Duration.ofSeconds(30);
+
+  private Duration snapshotInterval = Duration.ofMinutes(5);
+
+}
@@ -0,0 +1,26 @@
+package planettask.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * Group commit for reservation requests: concurrent calls arriving within {@code maxWait} of the
+ * first one, up to {@code maxBatchSize}, share a single database transaction and commit.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.reservation.group-commit")
+public class GroupCommitProperties {
+
+  private boolean enabled = false;
+
+  private Duration maxWait = Duration.ofMillis(2);
+
+  private int maxBatchSize = 64;
+
+  private int queueCapacity = 4096;
+
+}
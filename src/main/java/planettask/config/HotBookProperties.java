@@ -0,0 +1,33 @@
+package planettask.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * Sharded stock for hot books. A book is promoted when it sees at least
+ * {@code promoteThreshold} reservation attempts within one evaluation window of a node, and
+ * demoted again by that node after a window with fewer than {@code demoteThreshold}. Ignored
+ * while the inventory ledger is enabled.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.inventory.hot-books")
+public class HotBookProperties {
+
+  private boolean enabled = false;
+
+  /**
+   * Slot rows a book is spread over when it is promoted; books already sharded keep theirs.
+   */
+  private int slots = 8;
+
+  private Duration evaluationInterval = Duration.ofSeconds(10);
+
+  private int promoteThreshold = 200;
+
+  private int demoteThreshold = 20;
+
+}
@@ -0,0 +1,41 @@
+package planettask.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * Replay of responses to requests carrying an {@code Idempotency-Key} header.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.idempotency")
+public class IdempotencyProperties {
+
+  /**
+   * Where first responses are kept: {@code redis}, shared by all nodes, or {@code memory}.
+   */
+  private String store = "memory";
+
+  private Duration ttl = Duration.ofHours(24);
+
+  /**
+   * Upper bound on responses kept by the in-memory store, least recently used evicted first.
+   */
+  private int maxEntries = 10_000;
+
+  /**
+   * How long a duplicate waits for the in-flight request with the same key, and how long a
+   * request holds its claim on the key.
+   */
+  private Duration inFlightTimeout = Duration.ofSeconds(30);
+
+  /**
+   * How often a duplicate checks the store while the request with the same key runs on another
+   * node.
+   */
+  private Duration inFlightPollInterval = Duration.ofMillis(100);
+
+}
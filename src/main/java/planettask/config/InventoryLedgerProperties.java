@@ -0,0 +1,24 @@
+package planettask.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * In-JVM inventory ledger. Only safe for single-node deployments: the ledger is the authority on
+ * available copies and the {@code books} table trails it by at most one flush interval.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.inventory.ledger")
+public class InventoryLedgerProperties {
+
+  private boolean enabled = false;
+
+  private Duration flushInterval = Duration.ofMillis(200);
+
+  private int flushBatchSize = 500;
+
+}
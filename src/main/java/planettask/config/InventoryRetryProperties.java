@@ -0,0 +1,28 @@
+package planettask.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * Retry policy for inventory writes that lose an optimistic-locking race on {@code books}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.inventory.retry")
+public class InventoryRetryProperties {
+
+  /**
+   * When disabled every operation runs exactly once and conflicts surface to the caller.
+   */
+  private boolean enabled = true;
+
+  private int maxAttempts = 5;
+
+  private Duration initialBackoff = Duration.ofMillis(10);
+
+  private Duration maxBackoff = Duration.ofMillis(200);
+
+}
@@ -0,0 +1,73 @@
+package planettask.config;
+
+import java.util.Set;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.autoconfigure.cache.RedisCacheManagerBuilderCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import planettask.cache.RedisCacheInvalidationBus;
+import planettask.cache.TwoTierCacheManager;
+
+
+/**
+ * Replaces the auto-configured Redis cache manager with a two-tier one when the near cache is
+ * enabled. The Redis tier is configured from the usual {@code spring.cache.*} properties.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "planet.cache.near", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(CacheProperties.class)
+public class NearCacheConfig {
+
+  @Bean
+  public RedisCacheInvalidationBus cacheInvalidationBus(final StringRedisTemplate redisTemplate,
+      final NearCacheProperties properties) {
+    return new RedisCacheInvalidationBus(redisTemplate, properties.getInvalidationChannel());
+  }
+
+  @Bean
+  public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+      final RedisConnectionFactory connectionFactory,
+      final RedisCacheInvalidationBus cacheInvalidationBus, final NearCacheProperties properties) {
+    final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    container.addMessageListener(cacheInvalidationBus,
+        new ChannelTopic(properties.getInvalidationChannel()));
+    return container;
+  }
+
+  @Bean
+  public TwoTierCacheManager cacheManager(final RedisConnectionFactory connectionFactory,
+      final CacheProperties cacheProperties, final NearCacheProperties properties,
+      final RedisCacheInvalidationBus cacheInvalidationBus,
+      final ObjectProvider<RedisCacheManagerBuilderCustomizer> customizers) {
+    RedisCacheConfiguration defaults = RedisCacheConfiguration.defaultCacheConfig();
+    final CacheProperties.Redis redis = cacheProperties.getRedis();
+    if (redis.getTimeToLive() != null) {
+      defaults = defaults.entryTtl(redis.getTimeToLive());
+    }
+    if (!redis.isCacheNullValues()) {
+      defaults = defaults.disableCachingNullValues();
+    }
+    final RedisCacheManager.RedisCacheManagerBuilder builder = RedisCacheManager
+        .builder(connectionFactory)
+        .cacheDefaults(defaults)
+        .initialCacheNames(Set.copyOf(cacheProperties.getCacheNames()));
+    customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+    final RedisCacheManager redisCacheManager = builder.build();
+    redisCacheManager.afterPropertiesSet();
+    final TwoTierCacheManager cacheManager = new TwoTierCacheManager(redisCacheManager,
+        properties, cacheInvalidationBus);
+    cacheInvalidationBus.addListener(cacheManager::onInvalidation);
+    return cacheManager;
+  }
+
+}
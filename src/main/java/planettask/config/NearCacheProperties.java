@@ -0,0 +1,30 @@
+package planettask.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * In-process cache in front of the Redis cache. Writes on any node evict the entry from every
+ * node's near cache through a Redis pub/sub channel; {@code expireAfterWrite} bounds how long an
+ * entry can outlive a lost invalidation message.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.cache.near")
+public class NearCacheProperties {
+
+  private boolean enabled = false;
+
+  /**
+   * Entries kept per cache; beyond it Caffeine's W-TinyLFU policy evicts the least useful ones.
+   */
+  private long maximumSize = 10_000;
+
+  private Duration expireAfterWrite = Duration.ofSeconds(30);
+
+  private String invalidationChannel = "planet:cache:invalidation";
+
+}
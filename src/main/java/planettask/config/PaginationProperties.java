@@ -0,0 +1,20 @@
+package planettask.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import planettask.service.TableCounter.Strategy;
+
+
+/**
+ * How the offset-paged listings compute the total they report in {@code X-Total-Count}; see
+ * {@link planettask.service.TableCounter}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.pagination")
+public class PaginationProperties {
+
+  private Strategy countStrategy = Strategy.EXACT;
+
+}
@@ -0,0 +1,44 @@
+package planettask.config;
+
+import org.quartz.CronScheduleBuilder;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import planettask.service.ReservationExpiryJob;
+import planettask.service.ReservationScheduler;
+
+
+/**
+ * Quartz jobs. With the JDBC job store in clustered mode every trigger fires on exactly one node.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "planet.reservation.expiry.continuous", name = "enabled",
+    havingValue = "false", matchIfMissing = true)
+public class QuartzConfig {
+
+  @Bean
+  public JobDetail reservationExpiryJobDetail() {
+    return JobBuilder.newJob(ReservationExpiryJob.class)
+        .withIdentity("reservation-expiry", ReservationScheduler.JOB_GROUP)
+        .storeDurably()
+        .build();
+  }
+
+  /**
+   * Every day at midnight. A run missed while the whole cluster was down fires once on startup.
+   */
+  @Bean
+  public Trigger reservationExpiryTrigger(final JobDetail reservationExpiryJobDetail) {
+    return TriggerBuilder.newTrigger()
+        .forJob(reservationExpiryJobDetail)
+        .withIdentity("reservation-expiry", ReservationScheduler.JOB_GROUP)
+        .withSchedule(CronScheduleBuilder.cronSchedule("0 0 0 * * ?")
+            .withMisfireHandlingInstructionFireAndProceed())
+        .build();
+  }
+
+}
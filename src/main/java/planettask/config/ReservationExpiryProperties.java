@@ -0,0 +1,53 @@
+package planettask.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * Chunked expiry of old reservations.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.reservation.expiry")
+public class ReservationExpiryProperties {
+
+  /**
+   * Reservations expired per transaction.
+   */
+  private int chunkSize = 1000;
+
+  /**
+   * Ranges of reservation ids the nightly expiry is split into; nodes of the cluster claim and
+   * expire them in parallel.
+   */
+  private int partitions = 8;
+
+  private Continuous continuous = new Continuous();
+
+  /**
+   * Expiry of each reservation as its own deadline passes, instead of the nightly batch.
+   */
+  @Getter
+  @Setter
+  public static class Continuous {
+
+    private boolean enabled = false;
+
+    /**
+     * Resolution of the deadline buckets and interval between expiry batches.
+     */
+    private Duration tick = Duration.ofSeconds(1);
+
+    /**
+     * How far ahead deadlines are loaded from the database; bounds the memory used.
+     */
+    private Duration horizon = Duration.ofHours(1);
+
+    private int batchSize = 200;
+
+  }
+
+}
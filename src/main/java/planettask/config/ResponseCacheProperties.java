@@ -0,0 +1,31 @@
+package planettask.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * In-process cache of serialized JSON responses of the book and user read endpoints. Entries are
+ * evicted by this node's writes and, through the near cache's invalidation channel, by those of
+ * other nodes; with more than one node, enable {@code planet.cache.near} too.
+ * {@code expireAfterWrite} bounds how long an entry can outlive a lost invalidation message.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.cache.response")
+public class ResponseCacheProperties {
+
+  private boolean enabled = false;
+
+  private long maximumSize = 10_000;
+
+  private Duration expireAfterWrite = Duration.ofMinutes(1);
+
+  /**
+   * Bodies from this size on also get a gzip variant, served to clients that accept it.
+   */
+  private int gzipMinSize = 1024;
+
+}
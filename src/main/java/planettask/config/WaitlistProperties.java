@@ -0,0 +1,28 @@
+package planettask.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * Fulfilment of waitlists when copies of a book are returned.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "planet.waitlist")
+public class WaitlistProperties {
+
+  /**
+   * Waiters loaded per query while handing out the copies of one book.
+   */
+  private int batchSize = 50;
+
+  /**
+   * Interval of the sweep that serves waiters of books whose copies came back without an event,
+   * e.g. released on another node.
+   */
+  private Duration sweepInterval = Duration.ofSeconds(60);
+
+}
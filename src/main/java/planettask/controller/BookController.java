@@ -1,8 +1,12 @@
 package planettask.controller;
 
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -17,8 +21,16 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import planettask.cache.HotKeyTracker;
+import planettask.cache.HotKeyTracker.Kind;
+import planettask.cache.JsonResponseCache;
+import planettask.cache.JsonResponseCache.Resource;
 import planettask.model.BookDTO;
+import planettask.model.CursorSliceDTO;
 import planettask.service.BookService;
+import planettask.service.TableCounter;
+import planettask.service.TableCounter.Table;
+import planettask.service.TableCounter.Total;
 
 
 @RestController
@@ -27,31 +39,83 @@ import planettask.service.BookService;
 public class BookController {
 
   private final BookService bookService;
+  private final HotKeyTracker hotKeyTracker;
+  private final JsonResponseCache responseCache;
+  private final TableCounter tableCounter;
 
-  public BookController(final BookService bookService) {
+  public BookController(final BookService bookService, final HotKeyTracker hotKeyTracker,
+      final ObjectProvider<JsonResponseCache> responseCache, final TableCounter tableCounter) {
     this.bookService = bookService;
+    this.tableCounter = tableCounter;
+    this.hotKeyTracker = hotKeyTracker;
+    this.responseCache = responseCache.getIfAvailable();
   }
 
   @GetMapping
   public ResponseEntity<List<BookDTO>> getAllBooks(@RequestParam(defaultValue = "0") final int page,
       @RequestParam(defaultValue = "10") final int size,
-      @RequestParam(defaultValue = "bookId,asc") final String[] sort) {
+      @RequestParam(defaultValue = "bookId,asc") final String[] sort,
+      final HttpServletRequest request, final HttpServletResponse response) throws IOException {
     final Sort.Direction sortDirection = sort[1].equalsIgnoreCase("desc")
         ? Sort.Direction.DESC
         : Sort.Direction.ASC;
     final Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sort[0]));
 
-    return ResponseEntity.ok(this.bookService.findAll(pageable));
+    final Total total = tableCounter.count(Table.BOOKS);
+    if (responseCache != null) {
+      total.toHeaders().forEach((name, values) -> response.setHeader(name, values.getFirst()));
+      // Written to the response directly; a null entity tells Spring there is nothing left to do
+      responseCache.writePage(Resource.BOOK, page, size, pageable.getSort().toString(),
+          () -> bookService.findAll(pageable), request, response);
+      return null;
+    }
+    return ResponseEntity.ok().headers(total.toHeaders())
+        .body(this.bookService.findAll(pageable));
+  }
+
+  /**
+   * Keyset-paginated variant of the listing above: pass the returned {@code nextCursor} back
+   * as {@code cursor}, with the same {@code sort}, to get the next slice.
+   */
+  @GetMapping("/scroll")
+  public ResponseEntity<CursorSliceDTO<BookDTO>> scrollBooks(
+      @RequestParam(defaultValue = "10") final int size,
+      @RequestParam(defaultValue = "bookId,asc") final String[] sort,
+      @RequestParam(required = false) final String cursor) {
+    final Sort.Direction sortDirection = sort.length > 1 && sort[1].equalsIgnoreCase("desc")
+        ? Sort.Direction.DESC
+        : Sort.Direction.ASC;
+    return ResponseEntity.ok(bookService.scroll(sort[0], sortDirection, size, cursor));
   }
 
   @GetMapping("/{bookId}")
-  public ResponseEntity<BookDTO> getBook(@PathVariable(name = "bookId") final Long bookId) {
-    return ResponseEntity.ok(bookService.get(bookId));
+  public ResponseEntity<BookDTO> getBook(@PathVariable(name = "bookId") final Long bookId,
+      final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+    if (responseCache != null) {
+      responseCache.writeEntity(Resource.BOOK, bookId, () -> bookService.get(bookId), request,
+          response);
+      hotKeyTracker.record(Kind.BOOK, bookId);
+      return null;
+    }
+    final BookDTO book = bookService.get(bookId);
+    hotKeyTracker.record(Kind.BOOK, bookId);
+    return ResponseEntity.ok(book);
   }
 
   @GetMapping("/isbn/{isbn:\\d{13}}")
-  public ResponseEntity<BookDTO> getBookByIsbn(@PathVariable(name = "isbn") final String isbn) {
-    return ResponseEntity.ok(bookService.findByIsbn(isbn));
+  public ResponseEntity<BookDTO> getBookByIsbn(@PathVariable(name = "isbn") final String isbn,
+      final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+    if (responseCache != null) {
+      // Shares the entry of the book's id, so a change to the book only has one entry to evict
+      final Long bookId = bookService.findIdByIsbn(isbn);
+      responseCache.writeEntity(Resource.BOOK, bookId, () -> bookService.get(bookId), request,
+          response);
+      hotKeyTracker.record(Kind.ISBN, isbn);
+      return null;
+    }
+    final BookDTO book = bookService.findByIsbn(isbn);
+    hotKeyTracker.record(Kind.ISBN, isbn);
+    return ResponseEntity.ok(book);
   }
 
   @PostMapping
@@ -1,8 +1,11 @@
 package planettask.controller;
 
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import java.net.URI;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -14,11 +17,21 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import planettask.model.CursorSliceDTO;
 import planettask.model.ReservationDTO;
+import planettask.model.ReservationTicketDTO;
+import planettask.service.IdempotencyExecutor;
+import planettask.service.InventoryRetryExecutor;
+import planettask.service.ReservationBatcher;
+import planettask.service.ReservationIntake;
 import planettask.service.ReservationService;
+import planettask.service.TableCounter;
+import planettask.service.TableCounter.Table;
+import planettask.util.NotFoundException;
 
 
 @RestController
@@ -27,9 +40,23 @@ import planettask.service.ReservationService;
 public class ReservationController {
 
   private final ReservationService reservationService;
+  private final InventoryRetryExecutor inventoryRetryExecutor;
+  private final ReservationBatcher reservationBatcher;
+  private final ReservationIntake reservationIntake;
+  private final IdempotencyExecutor idempotencyExecutor;
+  private final TableCounter tableCounter;
 
-  public ReservationController(final ReservationService reservationService) {
+  public ReservationController(final ReservationService reservationService,
+      final InventoryRetryExecutor inventoryRetryExecutor,
+      final ObjectProvider<ReservationBatcher> reservationBatcher,
+      final ReservationIntake reservationIntake, final IdempotencyExecutor idempotencyExecutor,
+      final TableCounter tableCounter) {
     this.reservationService = reservationService;
+    this.tableCounter = tableCounter;
+    this.inventoryRetryExecutor = inventoryRetryExecutor;
+    this.reservationBatcher = reservationBatcher.getIfAvailable();
+    this.reservationIntake = reservationIntake;
+    this.idempotencyExecutor = idempotencyExecutor;
   }
 
   @GetMapping
@@ -42,7 +69,24 @@ public class ReservationController {
         : Sort.Direction.ASC;
     final Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sort[0]));
 
-    return ResponseEntity.ok(this.reservationService.findAll(pageable));
+    return ResponseEntity.ok()
+        .headers(tableCounter.count(Table.RESERVATIONS).toHeaders())
+        .body(this.reservationService.findAll(pageable));
+  }
+
+  /**
+   * Keyset-paginated variant of the listing above: pass the returned {@code nextCursor} back
+   * as {@code cursor}, with the same {@code sort}, to get the next slice.
+   */
+  @GetMapping("/scroll")
+  public ResponseEntity<CursorSliceDTO<ReservationDTO>> scrollReservations(
+      @RequestParam(defaultValue = "10") final int size,
+      @RequestParam(defaultValue = "reservationId,asc") final String[] sort,
+      @RequestParam(required = false) final String cursor) {
+    final Sort.Direction sortDirection = sort.length > 1 && sort[1].equalsIgnoreCase("desc")
+        ? Sort.Direction.DESC
+        : Sort.Direction.ASC;
+    return ResponseEntity.ok(reservationService.scroll(sort[0], sortDirection, size, cursor));
   }
 
   @GetMapping("/{reservationId}")
@@ -54,16 +98,44 @@ public class ReservationController {
   @PostMapping("/{userId}")
   @ApiResponse(description = "create reservation given user ID and set of book IDs", responseCode = "201")
   public ResponseEntity<ReservationDTO> createReservation(@PathVariable Long userId,
-      @RequestParam Set<Long> booksIds) throws Exception {
-    return ResponseEntity.status(HttpStatus.CREATED)
-        .body(reservationService.reserveBooks(userId, booksIds));
+      @RequestParam Set<Long> booksIds,
+      @RequestHeader(name = IdempotencyExecutor.HEADER, required = false) String idempotencyKey)
+      throws Exception {
+    return idempotencyExecutor.execute("reserve", userId.toString(), idempotencyKey,
+        userId + ":" + new TreeSet<>(booksIds), ReservationDTO.class,
+        () -> ResponseEntity.status(HttpStatus.CREATED)
+            .body(inventoryRetryExecutor.execute("reserve", () -> reservationBatcher != null
+                ? reservationBatcher.reserve(userId, booksIds)
+                : reservationService.reserveBooks(userId, booksIds))));
+  }
+
+  @PostMapping("/{userId}/async")
+  @ApiResponse(description = "queue a reservation and return a ticket to poll for its outcome", responseCode = "202")
+  public ResponseEntity<ReservationTicketDTO> submitReservation(@PathVariable Long userId,
+      @RequestParam Set<Long> booksIds) {
+    final ReservationTicketDTO ticket = reservationIntake.submit(userId, booksIds);
+    return ResponseEntity.accepted()
+        .location(URI.create("/api/v1/reservations/tickets/" + ticket.getTicketId()))
+        .body(ticket);
+  }
+
+  @GetMapping("/tickets/{ticketId}")
+  public ResponseEntity<ReservationTicketDTO> getTicket(@PathVariable final String ticketId) {
+    return ResponseEntity.ok(reservationIntake.getTicket(ticketId)
+        .orElseThrow(() -> new NotFoundException("Ticket not found")));
   }
 
   @PutMapping("/cancel/{reservationId}")
-  public ResponseEntity<?> cancelReservation(
-      @PathVariable(name = "reservationId") final Long reservationId) {
-    reservationService.cancelReservation(reservationId);
-    return ResponseEntity.accepted().body("Cancelled reservation with ID: " + reservationId);
+  public ResponseEntity<String> cancelReservation(
+      @PathVariable(name = "reservationId") final Long reservationId,
+      @RequestHeader(name = IdempotencyExecutor.HEADER, required = false) String idempotencyKey)
+      throws Exception {
+    return idempotencyExecutor.execute("cancel", reservationId.toString(), idempotencyKey,
+        reservationId.toString(), String.class, () -> {
+          inventoryRetryExecutor.execute("cancel",
+              () -> reservationService.cancelReservation(reservationId));
+          return ResponseEntity.accepted().body("Cancelled reservation with ID: " + reservationId);
+        });
   }
 
   @GetMapping("/user/{userId}")
@@ -1,8 +1,12 @@
 package planettask.controller;
 
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -17,7 +21,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import planettask.cache.HotKeyTracker;
+import planettask.cache.HotKeyTracker.Kind;
+import planettask.cache.JsonResponseCache;
+import planettask.cache.JsonResponseCache.Resource;
+import planettask.model.CursorSliceDTO;
 import planettask.model.UserDTO;
+import planettask.service.TableCounter;
+import planettask.service.TableCounter.Table;
+import planettask.service.TableCounter.Total;
 import planettask.service.UserService;
 
 
@@ -27,26 +39,67 @@ import planettask.service.UserService;
 public class UserController {
 
   private final UserService userService;
+  private final HotKeyTracker hotKeyTracker;
+  private final JsonResponseCache responseCache;
+  private final TableCounter tableCounter;
 
-  public UserController(final UserService userService) {
+  public UserController(final UserService userService, final HotKeyTracker hotKeyTracker,
+      final ObjectProvider<JsonResponseCache> responseCache, final TableCounter tableCounter) {
     this.userService = userService;
+    this.tableCounter = tableCounter;
+    this.hotKeyTracker = hotKeyTracker;
+    this.responseCache = responseCache.getIfAvailable();
   }
 
   @GetMapping
   public ResponseEntity<List<UserDTO>> getAllUsers(@RequestParam(defaultValue = "0") final int page,
       @RequestParam(defaultValue = "10") final int size,
-      @RequestParam(defaultValue = "userId,asc") final String[] sort) {
+      @RequestParam(defaultValue = "userId,asc") final String[] sort,
+      final HttpServletRequest request, final HttpServletResponse response) throws IOException {
     final Sort.Direction sortDirection = sort[1].equalsIgnoreCase("desc")
         ? Sort.Direction.DESC
         : Sort.Direction.ASC;
     final Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sort[0]));
 
-    return ResponseEntity.ok(this.userService.findAll(pageable));
+    final Total total = tableCounter.count(Table.USERS);
+    if (responseCache != null) {
+      total.toHeaders().forEach((name, values) -> response.setHeader(name, values.getFirst()));
+      // Written to the response directly; a null entity tells Spring there is nothing left to do
+      responseCache.writePage(Resource.USER, page, size, pageable.getSort().toString(),
+          () -> userService.findAll(pageable), request, response);
+      return null;
+    }
+    return ResponseEntity.ok().headers(total.toHeaders())
+        .body(this.userService.findAll(pageable));
+  }
+
+  /**
+   * Keyset-paginated variant of the listing above: pass the returned {@code nextCursor} back
+   * as {@code cursor}, with the same {@code sort}, to get the next slice.
+   */
+  @GetMapping("/scroll")
+  public ResponseEntity<CursorSliceDTO<UserDTO>> scrollUsers(
+      @RequestParam(defaultValue = "10") final int size,
+      @RequestParam(defaultValue = "userId,asc") final String[] sort,
+      @RequestParam(required = false) final String cursor) {
+    final Sort.Direction sortDirection = sort.length > 1 && sort[1].equalsIgnoreCase("desc")
+        ? Sort.Direction.DESC
+        : Sort.Direction.ASC;
+    return ResponseEntity.ok(userService.scroll(sort[0], sortDirection, size, cursor));
   }
 
   @GetMapping("/{userId}")
-  public ResponseEntity<UserDTO> getUser(@PathVariable(name = "userId") final Long userId) {
-    return ResponseEntity.ok(userService.get(userId));
+  public ResponseEntity<UserDTO> getUser(@PathVariable(name = "userId") final Long userId,
+      final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+    if (responseCache != null) {
+      responseCache.writeEntity(Resource.USER, userId, () -> userService.get(userId), request,
+          response);
+      hotKeyTracker.record(Kind.USER, userId);
+      return null;
+    }
+    final UserDTO user = userService.get(userId);
+    hotKeyTracker.record(Kind.USER, userId);
+    return ResponseEntity.ok(user);
   }
 
   @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
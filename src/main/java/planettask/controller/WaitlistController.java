@@ -0,0 +1,49 @@
+package planettask.controller;
+
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import java.util.List;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import planettask.model.WaitlistEntryDTO;
+import planettask.service.WaitlistService;
+
+
+@RestController
+@RequestMapping(value = "/api/v1/waitlist", produces = MediaType.APPLICATION_JSON_VALUE)
+@Validated
+public class WaitlistController {
+
+  private final WaitlistService waitlistService;
+
+  public WaitlistController(final WaitlistService waitlistService) {
+    this.waitlistService = waitlistService;
+  }
+
+  @PostMapping("/{userId}")
+  @ApiResponse(description = "queue the user for a book with no copy left; a reservation is created once a copy is returned", responseCode = "201")
+  public ResponseEntity<WaitlistEntryDTO> joinWaitlist(@PathVariable Long userId,
+      @RequestParam Long bookId) {
+    return ResponseEntity.status(HttpStatus.CREATED).body(waitlistService.join(userId, bookId));
+  }
+
+  @GetMapping("/user/{userId}")
+  public ResponseEntity<List<WaitlistEntryDTO>> getWaitlistByUser(@PathVariable Long userId) {
+    return ResponseEntity.ok(waitlistService.getByUserId(userId));
+  }
+
+  @PutMapping("/cancel/{waitlistEntryId}")
+  public ResponseEntity<WaitlistEntryDTO> cancelWaitlistEntry(
+      @PathVariable(name = "waitlistEntryId") final Long waitlistEntryId) {
+    return ResponseEntity.ok(waitlistService.cancel(waitlistEntryId));
+  }
+
+}
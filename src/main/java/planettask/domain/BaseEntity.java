@@ -23,6 +23,18 @@ import org.springframework.data.annotation.LastModifiedDate;
 @MappedSuperclass
 public abstract class BaseEntity implements Serializable {
 
+  /**
+   * Ids fetched per sequence call. With the pooled-lo optimizer the sequence value is the first
+   * id of the block, so this must match the sequences' {@code INCREMENT BY}.
+   */
+  public static final int ID_ALLOCATION_SIZE = 50;
+
+  /**
+   * Lazy associations outside a query's fetch plan are initialized this many owners at a time,
+   * so that walking a list costs one statement per association rather than one per row.
+   */
+  public static final int FETCH_BATCH_SIZE = 50;
+
   @CreatedDate
   @Column(nullable = false, updatable = false)
   @Temporal(TemporalType.TIMESTAMP)
@@ -6,9 +6,11 @@ import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import java.util.Objects;
@@ -22,7 +24,11 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+    // Keyset pagination by title or author; see KeysetScroller
+    @Index(name = "idx_books_title_id", columnList = "title, book_id"),
+    @Index(name = "idx_books_author_id", columnList = "author, book_id")
+})
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
@@ -35,7 +41,7 @@ public class Book extends BaseEntity {
   @SequenceGenerator(
       name = "book_sequence",
       sequenceName = "book_sequence",
-      allocationSize = 1,
+      allocationSize = BaseEntity.ID_ALLOCATION_SIZE,
       initialValue = 10000
   )
   @GeneratedValue(
@@ -62,6 +68,16 @@ public class Book extends BaseEntity {
   @PositiveOrZero
   private Integer availableCopies;
 
+  @Version
+  private Long version;
+
+  /**
+   * Hot books keep their available copies in {@link BookStockSlot} rows instead of
+   * {@link #availableCopies}, which stays at zero while the book is sharded.
+   */
+  @Column(nullable = false)
+  private boolean sharded;
+
   @ManyToMany(mappedBy = "books")
   private Set<Reservation> reservation;
 
@@ -74,13 +90,12 @@ public class Book extends BaseEntity {
     return Objects.equals(bookId, book.bookId) && Objects.equals(title,
         book.title) && Objects.equals(isbn, book.isbn) && Objects.equals(author,
         book.author) && Objects.equals(totalCopies, book.totalCopies)
-        && Objects.equals(availableCopies, book.availableCopies)
-        && Objects.equals(reservation, book.reservation);
+        && Objects.equals(availableCopies, book.availableCopies);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(bookId, title, isbn, author, totalCopies, availableCopies, reservation);
+    return Objects.hash(bookId, title, isbn, author, totalCopies, availableCopies);
   }
 
   @Override
@@ -0,0 +1,61 @@
+package planettask.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+
+/**
+ * One of the counter rows that together hold the available copies of a sharded (hot) book, so
+ * that concurrent reservations of the same title lock different rows.
+ */
+@Entity
+@Table(
+    name = "book_stock_slots",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"book_id", "slot_no"})
+)
+@Getter
+@Setter
+@RequiredArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+public class BookStockSlot {
+
+  @Id
+  @SequenceGenerator(
+      name = "book_stock_slot_sequence",
+      sequenceName = "book_stock_slot_sequence",
+      allocationSize = BaseEntity.ID_ALLOCATION_SIZE,
+      initialValue = 10000
+  )
+  @GeneratedValue(
+      strategy = GenerationType.SEQUENCE,
+      generator = "book_stock_slot_sequence"
+  )
+  @Column(name = "slot_id", nullable = false, updatable = false)
+  private Long slotId;
+
+  @Column(name = "book_id", nullable = false, updatable = false)
+  private Long bookId;
+
+  @Column(name = "slot_no", nullable = false, updatable = false)
+  private Integer slotNo;
+
+  @Column(nullable = false)
+  @PositiveOrZero
+  private Integer availableCopies;
+
+}
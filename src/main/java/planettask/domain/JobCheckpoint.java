@@ -0,0 +1,50 @@
+package planettask.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.OffsetDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+
+/**
+ * Progress of a chunked batch job. A row only exists while a run is in progress; a run that
+ * finds one left behind resumes after {@code lastProcessedId} with the original {@code cutoff}.
+ */
+@Entity
+@Table(name = "job_checkpoints")
+@EntityListeners(AuditingEntityListener.class)
+@Getter
+@Setter
+@RequiredArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+public class JobCheckpoint extends BaseEntity {
+
+  @Id
+  @Column(name = "job_name", nullable = false, updatable = false)
+  private String jobName;
+
+  @Column(name = "cutoff", nullable = false, updatable = false)
+  private OffsetDateTime cutoff;
+
+  @Column(name = "last_processed_id", nullable = false)
+  private Long lastProcessedId;
+
+  /**
+   * Last id of the range the job covers, so that a partition whose job was lost can be
+   * scheduled again from its checkpoint alone.
+   */
+  @Column(name = "to_id", updatable = false)
+  private Long toId;
+
+}
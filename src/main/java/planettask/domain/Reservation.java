@@ -10,10 +10,13 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.Size;
@@ -25,12 +28,23 @@ import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 import lombok.ToString.Exclude;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import planettask.model.ReservationStatus;
 
 
 @Entity
-@Table(name = "reservation")
+@Table(name = "reservation", indexes = {
+    @Index(name = "idx_reservation_status_id", columnList = "status, reservation_id"),
+    // Keyset pagination by creation time; see KeysetScroller
+    @Index(name = "idx_reservation_date_created_id", columnList = "date_created, reservation_id")
+})
+// Fetch plans per use case, the associations themselves being lazy; see ReservationRepository
+@NamedEntityGraph(name = Reservation.DETAIL_GRAPH, attributeNodes = {
+    @NamedAttributeNode("user"),
+    @NamedAttributeNode("books")
+})
+@NamedEntityGraph(name = Reservation.EXPIRY_GRAPH, attributeNodes = @NamedAttributeNode("books"))
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
@@ -40,11 +54,14 @@ import planettask.model.ReservationStatus;
 @AllArgsConstructor
 public class Reservation extends BaseEntity {
 
+  public static final String DETAIL_GRAPH = "Reservation.detail";
+  public static final String EXPIRY_GRAPH = "Reservation.expiry";
+
   @Id
   @SequenceGenerator(
       name = "reservation_sequence",
       sequenceName = "reservation_sequence",
-      allocationSize = 1,
+      allocationSize = BaseEntity.ID_ALLOCATION_SIZE,
       initialValue = 10000
   )
   @GeneratedValue(
@@ -58,18 +75,20 @@ public class Reservation extends BaseEntity {
   @Column(name = "status", nullable = false)
   private ReservationStatus status;
 
-  @ManyToOne(fetch = FetchType.EAGER)
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "user_id", nullable = false, updatable = false)
   @Exclude
   @JsonManagedReference
   private User user;
 
-  @ManyToMany(fetch = FetchType.EAGER)
+  @ManyToMany(fetch = FetchType.LAZY)
+  @BatchSize(size = BaseEntity.FETCH_BATCH_SIZE)
   @JoinTable(
       name = "reservations_books",
       joinColumns = @JoinColumn(name = "reservation_id"),
       inverseJoinColumns = @JoinColumn(name = "book_id")
   )
   @Size(min = 1, max = 3, message = "Reservation must have at most 3 books")
+  @Exclude
   private Set<Book> books;
 }
@@ -9,6 +9,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
@@ -22,12 +23,17 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    // Keyset pagination by username; see KeysetScroller
+    @Index(name = "idx_users_username_id", columnList = "username, user_id")
+})
 @EntityListeners(AuditingEntityListener.class)
+@BatchSize(size = BaseEntity.FETCH_BATCH_SIZE)
 @Getter
 @Setter
 @RequiredArgsConstructor
@@ -40,7 +46,7 @@ public class User extends BaseEntity {
   @SequenceGenerator(
       name = "user_sequence",
       sequenceName = "user_sequence",
-      allocationSize = 1,
+      allocationSize = BaseEntity.ID_ALLOCATION_SIZE,
       initialValue = 10000
   )
   @GeneratedValue(
@@ -70,13 +76,12 @@ public class User extends BaseEntity {
     }
     User user = (User) o;
     return Objects.equals(userId, user.userId) && Objects.equals(username,
-        user.username) && Objects.equals(email, user.email) && Objects.equals(
-        reservations, user.reservations);
+        user.username) && Objects.equals(email, user.email);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(userId, username, email, reservations);
+    return Objects.hash(userId, username, email);
   }
 
   @Override
@@ -0,0 +1,99 @@
+package planettask.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.ToString.Exclude;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import planettask.model.WaitlistStatus;
+
+
+/**
+ * A user's place in the queue for a book that had no copy left. Waiters of a book are served in
+ * id order, which is the order they joined in.
+ */
+@Entity
+@Table(name = "waitlist_entries", indexes = {
+    @Index(name = "idx_waitlist_book_status", columnList = "book_id, status, waitlist_entry_id")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_waitlist_user_book_waiting",
+        columnNames = {"user_id", "book_id", "waiting"})
+})
+@EntityListeners(AuditingEntityListener.class)
+@Getter
+@Setter
+@RequiredArgsConstructor
+@ToString
+@Builder
+@AllArgsConstructor
+public class WaitlistEntry extends BaseEntity {
+
+  @Id
+  @SequenceGenerator(
+      name = "waitlist_entry_sequence",
+      sequenceName = "waitlist_entry_sequence",
+      allocationSize = BaseEntity.ID_ALLOCATION_SIZE,
+      initialValue = 10000
+  )
+  @GeneratedValue(
+      strategy = GenerationType.SEQUENCE,
+      generator = "waitlist_entry_sequence"
+  )
+  @Column(name = "waitlist_entry_id", nullable = false, updatable = false)
+  private Long waitlistEntryId;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "user_id", nullable = false, updatable = false)
+  @Exclude
+  private User user;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "book_id", nullable = false, updatable = false)
+  @Exclude
+  private Book book;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "status", nullable = false)
+  private WaitlistStatus status;
+
+  /**
+   * {@code TRUE} while the entry is waiting and {@code null} once it is not, so that the unique
+   * constraint over user, book and this column allows one waiting entry per user and book next
+   * to any number of finished ones. Bulk updates of the status have to clear it themselves.
+   */
+  @Column(name = "waiting")
+  private Boolean waiting;
+
+  /**
+   * Reservation created for this entry once a copy was handed to it.
+   */
+  @Column(name = "reservation_id")
+  private Long reservationId;
+
+  @PrePersist
+  @PreUpdate
+  void markWaiting() {
+    waiting = status == WaitlistStatus.WAITING ? Boolean.TRUE : null;
+  }
+
+}
@@ -7,11 +7,13 @@ import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.validation.constraints.Size;
 import java.io.Serializable;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 
 @Getter
 @Setter
+@NoArgsConstructor
 public class BookDTO implements Serializable {
 
   private Long id;
@@ -36,4 +38,17 @@ public class BookDTO implements Serializable {
   @Positive
   private Integer totalCopies;
 
+  /**
+   * For JPQL constructor expressions; see {@code BookRepository.BOOK_DTO}.
+   */
+  public BookDTO(final Long id, final String title, final String isbn, final String author,
+      final Integer totalCopies, final Integer availableCopies) {
+    this.id = id;
+    this.title = title;
+    this.isbn = isbn;
+    this.author = author;
+    this.totalCopies = totalCopies;
+    this.availableCopies = availableCopies;
+  }
+
 }
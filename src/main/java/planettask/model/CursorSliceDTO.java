@@ -0,0 +1,25 @@
+package planettask.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.io.Serializable;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+
+/**
+ * One slice of a keyset-paginated listing. {@code nextCursor} is an opaque token that continues
+ * the listing after the last entry; it is absent on the last slice.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorSliceDTO<T> implements Serializable {
+
+  private final List<T> content;
+
+  private final boolean hasNext;
+
+  private final String nextCursor;
+
+}
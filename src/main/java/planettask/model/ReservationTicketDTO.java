@@ -0,0 +1,29 @@
+package planettask.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.io.Serializable;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.With;
+
+
+@Getter
+@With
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReservationTicketDTO implements Serializable {
+
+  private final String ticketId;
+
+  private final TicketStatus status;
+
+  private final Instant submittedAt;
+
+  private final Instant completedAt;
+
+  private final ReservationDTO reservation;
+
+  private final String error;
+
+}
@@ -0,0 +1,11 @@
+package planettask.model;
+
+
+public enum TicketStatus {
+
+  QUEUED,
+  PROCESSING,
+  COMPLETED,
+  FAILED
+
+}
@@ -8,6 +8,7 @@ import java.io.Serializable;
 import java.util.Set;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 import planettask.domain.Reservation;
@@ -17,6 +18,7 @@ import planettask.domain.Reservation;
 @Setter
 @ToString
 @EqualsAndHashCode
+@NoArgsConstructor
 public class UserDTO implements Serializable {
 
   private Long userId;
@@ -32,5 +34,13 @@ public class UserDTO implements Serializable {
   @JsonIgnore
   private Set<Reservation> reservations;
 
+  /**
+   * For JPQL constructor expressions; see {@code UserRepository.USER_DTO}.
+   */
+  public UserDTO(final Long userId, final String username, final String email) {
+    this.userId = userId;
+    this.username = username;
+    this.email = email;
+  }
 
 }
@@ -0,0 +1,32 @@
+package planettask.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import lombok.Getter;
+import lombok.Setter;
+
+
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WaitlistEntryDTO implements Serializable {
+
+  private Long waitlistEntryId;
+
+  private Long userId;
+
+  private Long bookId;
+
+  private WaitlistStatus status;
+
+  /**
+   * Number of users ahead in the queue; only set while waiting.
+   */
+  private Long position;
+
+  private Long reservationId;
+
+  private OffsetDateTime dateCreated;
+
+}
@@ -0,0 +1,10 @@
+package planettask.model;
+
+
+public enum WaitlistStatus {
+
+  WAITING,
+  FULFILLED,
+  CANCELED
+
+}
@@ -1,15 +1,156 @@
 package planettask.repos;
 
+import jakarta.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import planettask.cache.CacheNames;
 import planettask.domain.Book;
+import planettask.model.BookDTO;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
 
+  /**
+   * Available copies of the book {@code b}: summed from its slots when it is sharded, its own
+   * column otherwise. Only the inventory ledger, when enabled, knows better; see
+   * {@link planettask.service.BookInventory#availableCopies(Long, int)}.
+   */
+  String AVAILABLE_COPIES = "CASE WHEN b.sharded = true "
+      + "THEN (SELECT cast(coalesce(sum(s.availableCopies), 0) AS Integer) FROM BookStockSlot s "
+      + "WHERE s.bookId = b.bookId) "
+      + "ELSE b.availableCopies END";
+
+  /**
+   * Builds a {@link BookDTO} straight from the row, so reads neither load entities nor map them.
+   */
+  String BOOK_DTO = "new planettask.model.BookDTO(b.bookId, b.title, b.isbn, b.author, "
+      + "b.totalCopies, " + AVAILABLE_COPIES + ")";
+
   boolean existsByIsbn(String isbn);
 
+  /**
+   * One page without the {@code count(*)} a {@code Page} would run; totals come from
+   * {@link planettask.service.TableCounter}.
+   */
+  @Query("SELECT " + BOOK_DTO + " FROM Book b")
+  Slice<BookDTO> findDTOsBy(Pageable pageable);
+
+  @Query("SELECT " + BOOK_DTO + " FROM Book b WHERE b.bookId = :bookId")
+  Optional<BookDTO> findDTOById(@Param("bookId") Long bookId);
+
+  @Query("SELECT " + BOOK_DTO + " FROM Book b WHERE b.bookId IN :bookIds")
+  List<BookDTO> findDTOsByIdIn(@Param("bookIds") Collection<Long> bookIds);
+
   Optional<Book> findByIsbn(String isbn);
 
+  @Cacheable(value = CacheNames.BOOK_ID_BY_ISBN, unless = "#result == null")
+  @Query("SELECT b.bookId FROM Book b WHERE b.isbn = :isbn")
+  Optional<Long> findIdByIsbn(@Param("isbn") String isbn);
+
+  @Query("SELECT b.isbn AS isbn, b.bookId AS bookId FROM Book b WHERE b.isbn IN :isbns")
+  List<IsbnId> findIdsByIsbnIn(@Param("isbns") Collection<String> isbns);
+
+  /**
+   * Takes one copy of every given book in a single statement. Rows without a copy left are not
+   * touched, so callers compare the returned count with the number of requested books. The version
+   * is bumped as well so concurrent entity writes of the same books fail their optimistic check.
+   * Sharded books are never touched here; their copies live in {@code book_stock_slots}.
+   */
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Book b "
+      + "SET b.availableCopies = b.availableCopies - 1, b.version = b.version + 1 "
+      + "WHERE b.bookId IN :bookIds AND b.availableCopies > 0 AND b.sharded = false")
+  int decrementAvailableCopies(@Param("bookIds") Collection<Long> bookIds);
+
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Book b "
+      + "SET b.availableCopies = b.availableCopies + 1, b.version = b.version + 1 "
+      + "WHERE b.bookId IN :bookIds AND b.sharded = false")
+  int incrementAvailableCopies(@Param("bookIds") Collection<Long> bookIds);
+
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Book b "
+      + "SET b.availableCopies = b.availableCopies + :copies, b.version = b.version + 1 "
+      + "WHERE b.bookId = :bookId AND b.sharded = false")
+  int addAvailableCopies(@Param("bookId") Long bookId, @Param("copies") int copies);
+
+  /**
+   * Gives back, in one statement, the copies of the given books held by the given reservations:
+   * each book gains as many copies as those reservations hold of it.
+   */
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Book b "
+      + "SET b.availableCopies = b.availableCopies + (SELECT count(r) FROM Reservation r "
+      + "JOIN r.books rb WHERE rb.bookId = b.bookId AND r.reservationId IN :reservationIds), "
+      + "b.version = b.version + 1 "
+      + "WHERE b.bookId IN :bookIds AND b.sharded = false")
+  int restoreCopiesOfReservations(@Param("reservationIds") Collection<Long> reservationIds,
+      @Param("bookIds") Collection<Long> bookIds);
+
+  @Query("SELECT rb.bookId AS bookId, count(r) AS copies FROM Reservation r JOIN r.books rb "
+      + "WHERE r.reservationId IN :reservationIds GROUP BY rb.bookId")
+  List<BookCopies> countCopiesOfReservations(
+      @Param("reservationIds") Collection<Long> reservationIds);
+
+  /**
+   * Recomputes every book's available copies from its active reservations, discarding whatever
+   * drift the column accumulated (e.g. inventory deltas lost in a crash before they were flushed).
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("UPDATE Book b "
+      + "SET b.availableCopies = b.totalCopies - (SELECT count(r) FROM Reservation r "
+      + "JOIN r.books rb WHERE rb.bookId = b.bookId "
+      + "AND r.status = planettask.model.ReservationStatus.ACTIVE), "
+      + "b.version = b.version + 1 "
+      + "WHERE b.sharded = false")
+  int reconcileAvailableCopies();
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT b FROM Book b WHERE b.bookId = :bookId")
+  Optional<Book> findForUpdate(@Param("bookId") Long bookId);
+
+  @Query("SELECT b.bookId FROM Book b WHERE b.sharded = true")
+  Set<Long> findShardedBookIds();
+
+  @Query("SELECT b.bookId FROM Book b WHERE b.sharded = true AND b.bookId IN :bookIds")
+  Set<Long> findShardedBookIds(@Param("bookIds") Collection<Long> bookIds);
+
+  @Query("SELECT b.bookId AS bookId, b.availableCopies AS availableCopies FROM Book b")
+  List<BookStock> findAllStock();
+
+  interface BookStock {
+
+    Long getBookId();
+
+    Integer getAvailableCopies();
+
+  }
+
+  interface IsbnId {
+
+    String getIsbn();
+
+    Long getBookId();
+
+  }
+
+  interface BookCopies {
+
+    Long getBookId();
+
+    Long getCopies();
+
+  }
+
 }
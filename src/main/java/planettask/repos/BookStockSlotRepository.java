@@ -0,0 +1,45 @@
+package planettask.repos;
+
+import jakarta.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import planettask.domain.BookStockSlot;
+
+
+public interface BookStockSlotRepository extends JpaRepository<BookStockSlot, Long> {
+
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE BookStockSlot s SET s.availableCopies = s.availableCopies - 1 "
+      + "WHERE s.bookId = :bookId AND s.slotNo = :slotNo AND s.availableCopies > 0")
+  int decrementSlot(@Param("bookId") Long bookId, @Param("slotNo") int slotNo);
+
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE BookStockSlot s SET s.availableCopies = s.availableCopies + 1 "
+      + "WHERE s.bookId = :bookId AND s.slotNo = :slotNo")
+  int incrementSlot(@Param("bookId") Long bookId, @Param("slotNo") int slotNo);
+
+  @Query("SELECT count(s) FROM BookStockSlot s WHERE s.bookId = :bookId")
+  int countByBookId(@Param("bookId") Long bookId);
+
+  @Query("SELECT coalesce(sum(s.availableCopies), 0) FROM BookStockSlot s "
+      + "WHERE s.bookId = :bookId")
+  int sumAvailableCopies(@Param("bookId") Long bookId);
+
+  @Query("SELECT s.bookId AS bookId, sum(s.availableCopies) AS availableCopies "
+      + "FROM BookStockSlot s WHERE s.bookId IN :bookIds GROUP BY s.bookId")
+  List<BookRepository.BookStock> sumAvailableCopies(@Param("bookIds") Collection<Long> bookIds);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("DELETE FROM BookStockSlot s WHERE s.bookId = :bookId")
+  int deleteByBookId(@Param("bookId") Long bookId);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT s FROM BookStockSlot s WHERE s.bookId = :bookId ORDER BY s.slotNo")
+  List<BookStockSlot> findAllForUpdate(@Param("bookId") Long bookId);
+
+}
@@ -0,0 +1,12 @@
+package planettask.repos;
+
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import planettask.domain.JobCheckpoint;
+
+
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+
+  List<JobCheckpoint> findByJobNameStartingWith(String prefix);
+
+}
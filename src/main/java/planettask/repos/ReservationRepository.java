@@ -1,21 +1,170 @@
 package planettask.repos;
 
-import io.lettuce.core.dynamic.annotation.Param;
+import jakarta.persistence.LockModeType;
 import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import planettask.domain.Reservation;
 import planettask.model.ReservationStatus;
 
 
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
 
+  /**
+   * Reservations with their user and books as one row per book, read without loading entities;
+   * see {@link ReservationBookRow}. Copies are counted as in {@link BookRepository#BOOK_DTO}.
+   */
+  String RESERVATION_BOOK_ROWS = "SELECT r.reservationId AS reservationId, r.status AS status, "
+      + "u.userId AS userId, u.username AS username, u.email AS email, "
+      + "b.bookId AS bookId, b.title AS title, b.isbn AS isbn, b.author AS author, "
+      + "b.totalCopies AS totalCopies, "
+      + BookRepository.AVAILABLE_COPIES + " AS availableCopies "
+      + "FROM Reservation r JOIN r.user u LEFT JOIN r.books b ";
+
+  /**
+   * Ids of one page, without the {@code count(*)} a {@code Page} would run; totals come from
+   * {@link planettask.service.TableCounter}. Paging the joined rows would split reservations.
+   */
+  @Query("SELECT r.reservationId FROM Reservation r")
+  Slice<Long> findIdsBy(Pageable pageable);
+
+  @Query(RESERVATION_BOOK_ROWS + "WHERE r.reservationId IN :reservationIds")
+  List<ReservationBookRow> findRowsByIdIn(
+      @Param("reservationIds") Collection<Long> reservationIds);
+
+  @Query(RESERVATION_BOOK_ROWS + "WHERE u.userId = :userId")
+  List<ReservationBookRow> findRowsByUserId(@Param("userId") Long userId);
+
+  @Override
+  @EntityGraph(Reservation.DETAIL_GRAPH)
+  Optional<Reservation> findById(Long reservationId);
+
+  @Query("SELECT r FROM Reservation r JOIN FETCH r.user LEFT JOIN FETCH r.books "
+      + "WHERE r.user.userId = :userId")
+  Set<Reservation> findByUserId(@Param("userId") Long userId);
+
+  @EntityGraph(Reservation.EXPIRY_GRAPH)
   Set<Reservation> findByStatusAndDateCreatedBefore(
       @Param("status") ReservationStatus status,
       @Param("date") OffsetDateTime date
   );
 
-  @Query("SELECT r FROM Reservation r WHERE r.user.userId = :userId")
-  Set<Reservation> findByUserId(@Param("userId") Long userId);
+  /**
+   * Next chunk of ids of active reservations created before {@code cutoff}, in id order within
+   * {@code (afterId, toId]}. The rows are locked until the chunk commits: a concurrent
+   * {@link #cancel} waits on the lock and then finds the reservation no longer active, and a
+   * reservation canceled first is left out because it is no longer active once its lock is
+   * granted.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT r.reservationId FROM Reservation r "
+      + "WHERE r.status = planettask.model.ReservationStatus.ACTIVE "
+      + "AND r.dateCreated < :cutoff AND r.reservationId > :afterId "
+      + "AND r.reservationId <= :toId "
+      + "ORDER BY r.reservationId")
+  List<Long> findExpirableIds(@Param("cutoff") OffsetDateTime cutoff,
+      @Param("afterId") Long afterId, @Param("toId") Long toId, Limit limit);
+
+  @Query("SELECT min(r.reservationId) AS minId, max(r.reservationId) AS maxId "
+      + "FROM Reservation r WHERE r.status = planettask.model.ReservationStatus.ACTIVE "
+      + "AND r.dateCreated < :cutoff")
+  IdRange findExpirableIdRange(@Param("cutoff") OffsetDateTime cutoff);
+
+  /**
+   * Locks and returns those of the given reservations that are still active.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT r.reservationId FROM Reservation r WHERE r.reservationId IN :reservationIds "
+      + "AND r.status = planettask.model.ReservationStatus.ACTIVE")
+  List<Long> lockActive(@Param("reservationIds") Collection<Long> reservationIds);
+
+  @Query("SELECT r.reservationId AS reservationId, r.dateCreated AS dateCreated "
+      + "FROM Reservation r WHERE r.status = planettask.model.ReservationStatus.ACTIVE "
+      + "AND r.dateCreated < :createdBefore AND r.reservationId > :afterId "
+      + "ORDER BY r.reservationId")
+  List<ReservationCreation> findActiveCreatedBefore(
+      @Param("createdBefore") OffsetDateTime createdBefore, @Param("afterId") Long afterId,
+      Limit limit);
+
+  @Query("SELECT DISTINCT r.user.userId FROM Reservation r "
+      + "WHERE r.reservationId IN :reservationIds")
+  List<Long> findUserIdsOfReservations(@Param("reservationIds") Collection<Long> reservationIds);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE Reservation r "
+      + "SET r.status = planettask.model.ReservationStatus.EXPIRED, r.lastUpdated = :now "
+      + "WHERE r.reservationId IN :reservationIds "
+      + "AND r.status = planettask.model.ReservationStatus.ACTIVE")
+  int expire(@Param("reservationIds") Collection<Long> reservationIds,
+      @Param("now") OffsetDateTime now);
+
+  /**
+   * Cancels the reservation if it is still active and returns the number of rows changed. The
+   * status check and the change are one statement, so of two cancels, or a cancel and the expiry,
+   * racing for the same reservation only one sees it active and gives its copies back.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE Reservation r "
+      + "SET r.status = planettask.model.ReservationStatus.CANCELED, r.lastUpdated = :now "
+      + "WHERE r.reservationId = :reservationId "
+      + "AND r.status = planettask.model.ReservationStatus.ACTIVE")
+  int cancel(@Param("reservationId") Long reservationId, @Param("now") OffsetDateTime now);
+
+  /**
+   * One book of a reservation; the book columns are {@code null} for a reservation without
+   * books.
+   */
+  interface ReservationBookRow {
+
+    Long getReservationId();
+
+    ReservationStatus getStatus();
+
+    Long getUserId();
+
+    String getUsername();
+
+    String getEmail();
+
+    Long getBookId();
+
+    String getTitle();
+
+    String getIsbn();
+
+    String getAuthor();
+
+    Integer getTotalCopies();
+
+    Integer getAvailableCopies();
+
+  }
+
+  interface ReservationCreation {
+
+    Long getReservationId();
+
+    OffsetDateTime getDateCreated();
+
+  }
+
+  interface IdRange {
+
+    Long getMinId();
+
+    Long getMaxId();
+
+  }
+
 }
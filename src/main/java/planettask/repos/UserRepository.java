@@ -1,11 +1,37 @@
 package planettask.repos;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import planettask.domain.User;
+import planettask.model.UserDTO;
 
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
+  /**
+   * Builds a {@link UserDTO} straight from the row, so reads neither load entities nor map them.
+   */
+  String USER_DTO = "new planettask.model.UserDTO(u.userId, u.username, u.email)";
+
   boolean existsByEmailIgnoreCase(String email);
 
+  /**
+   * One page without the {@code count(*)} a {@code Page} would run; totals come from
+   * {@link planettask.service.TableCounter}.
+   */
+  @Query("SELECT " + USER_DTO + " FROM User u")
+  Slice<UserDTO> findDTOsBy(Pageable pageable);
+
+  @Query("SELECT " + USER_DTO + " FROM User u WHERE u.userId = :userId")
+  Optional<UserDTO> findDTOById(@Param("userId") Long userId);
+
+  @Query("SELECT " + USER_DTO + " FROM User u WHERE u.userId IN :userIds")
+  List<UserDTO> findDTOsByIdIn(@Param("userIds") Collection<Long> userIds);
+
 }
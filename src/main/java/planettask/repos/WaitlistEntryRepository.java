@@ -0,0 +1,52 @@
+package planettask.repos;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import planettask.domain.WaitlistEntry;
+import planettask.model.WaitlistStatus;
+
+
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+
+  @Query("SELECT e FROM WaitlistEntry e JOIN FETCH e.user JOIN FETCH e.book "
+      + "WHERE e.book.bookId = :bookId AND e.status = planettask.model.WaitlistStatus.WAITING "
+      + "ORDER BY e.waitlistEntryId")
+  List<WaitlistEntry> findWaiting(@Param("bookId") Long bookId, Pageable pageable);
+
+  @Query("SELECT DISTINCT e.book.bookId FROM WaitlistEntry e "
+      + "WHERE e.status = planettask.model.WaitlistStatus.WAITING")
+  Set<Long> findBookIdsWithWaiters();
+
+  @Query("SELECT DISTINCT e.book.bookId FROM WaitlistEntry e WHERE e.book.bookId IN :bookIds "
+      + "AND e.status = planettask.model.WaitlistStatus.WAITING")
+  Set<Long> findBookIdsWithWaiters(@Param("bookIds") Collection<Long> bookIds);
+
+  @Query("SELECT e FROM WaitlistEntry e JOIN FETCH e.book WHERE e.user.userId = :userId "
+      + "ORDER BY e.waitlistEntryId")
+  List<WaitlistEntry> findByUserId(@Param("userId") Long userId);
+
+  boolean existsByUserUserIdAndBookBookIdAndStatus(Long userId, Long bookId,
+      WaitlistStatus status);
+
+  @Query("SELECT COUNT(e) FROM WaitlistEntry e WHERE e.book.bookId = :bookId "
+      + "AND e.status = planettask.model.WaitlistStatus.WAITING AND e.waitlistEntryId < :entryId")
+  long countWaitersAhead(@Param("bookId") Long bookId, @Param("entryId") Long entryId);
+
+  /**
+   * Moves a waiting entry to {@code status}. Returns 0 when the entry is no longer waiting, e.g.
+   * because it was fulfilled on another node or canceled by its user.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE WaitlistEntry e "
+      + "SET e.status = :status, e.waiting = NULL, e.reservationId = :reservationId WHERE e.waitlistEntryId = :entryId "
+      + "AND e.status = planettask.model.WaitlistStatus.WAITING")
+  int completeWaiting(@Param("entryId") Long entryId, @Param("status") WaitlistStatus status,
+      @Param("reservationId") Long reservationId);
+
+}
@@ -0,0 +1,11 @@
+package planettask.service;
+
+import java.util.Collection;
+
+
+/**
+ * Published when copies of books are returned to the inventory.
+ */
+public record BookCopiesReleasedEvent(Collection<Long> bookIds) {
+
+}
@@ -0,0 +1,11 @@
+package planettask.service;
+
+import java.util.Collection;
+
+
+/**
+ * Published when copies of books are taken from the inventory.
+ */
+public record BookCopiesTakenEvent(Collection<Long> bookIds) {
+
+}
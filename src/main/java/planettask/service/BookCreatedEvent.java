@@ -0,0 +1,9 @@
+package planettask.service;
+
+
+/**
+ * Published when a book is created.
+ */
+public record BookCreatedEvent(Long bookId, String isbn) {
+
+}
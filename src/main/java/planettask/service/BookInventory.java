@@ -0,0 +1,232 @@
+package planettask.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import planettask.domain.Book;
+import planettask.repos.BookRepository;
+import planettask.repos.BookRepository.BookCopies;
+import planettask.repos.BookStockSlotRepository;
+
+
+/**
+ * Single entry point for taking and returning book copies.
+ * <p>
+ * By default copies are moved with conditional bulk updates on {@code books}, or on the stock
+ * slots of books that the {@link HotBookManager} has sharded. When the {@link InventoryLedger} is
+ * enabled the ledger is used instead, and its changes are tied to the surrounding transaction:
+ * copies taken by a transaction that rolls back are given back, and copies returned by a
+ * transaction only become available once it commits.
+ * <p>
+ * Every successful take publishes a {@link BookCopiesTakenEvent} and every release a
+ * {@link BookCopiesReleasedEvent}.
+ */
+@Component
+@Slf4j
+public class BookInventory {
+
+  private final BookRepository bookRepository;
+  private final BookStockSlotRepository slotRepository;
+  private final InventoryLedger ledger;
+  private final HotBookManager hotBooks;
+  private final ApplicationEventPublisher eventPublisher;
+
+  public BookInventory(final BookRepository bookRepository,
+      final BookStockSlotRepository slotRepository, final ObjectProvider<InventoryLedger> ledger,
+      final ObjectProvider<HotBookManager> hotBooks,
+      final ApplicationEventPublisher eventPublisher) {
+    this.bookRepository = bookRepository;
+    this.slotRepository = slotRepository;
+    this.eventPublisher = eventPublisher;
+    this.ledger = ledger.getIfAvailable();
+    this.hotBooks = this.ledger == null ? hotBooks.getIfAvailable() : null;
+    if (this.ledger != null && hotBooks.getIfAvailable() != null) {
+      log.warn("Hot book sharding is ignored while the inventory ledger is enabled");
+    }
+  }
+
+  /**
+   * Current number of available copies of the given book, wherever they are kept.
+   */
+  public int availableCopies(final Book book) {
+    if (ledger != null) {
+      return ledger.availableCopies(book.getBookId());
+    }
+    return book.isSharded()
+        ? slotRepository.sumAvailableCopies(book.getBookId())
+        : book.getAvailableCopies();
+  }
+
+  /**
+   * Current number of available copies of a book read through
+   * {@link planettask.repos.BookRepository#BOOK_DTO}, which already sums the slots of sharded
+   * books.
+   */
+  public int availableCopies(final Long bookId, final int projectedCopies) {
+    return ledger != null ? ledger.availableCopies(bookId) : projectedCopies;
+  }
+
+  /**
+   * Takes one copy of every given book. Returns {@code false}, having taken nothing that outlives
+   * the current transaction, if any book has no copy left.
+   *
+   * @throws OptimisticLockingFailureException if a book changed storage mode under this call, in
+   *     which case the whole operation can be retried
+   */
+  public boolean take(final Collection<Long> bookIds) {
+    final boolean taken = takeCopies(bookIds);
+    if (taken) {
+      eventPublisher.publishEvent(new BookCopiesTakenEvent(List.copyOf(bookIds)));
+    }
+    return taken;
+  }
+
+  private boolean takeCopies(final Collection<Long> bookIds) {
+    if (ledger != null) {
+      return takeFromLedger(bookIds);
+    }
+    if (hotBooks == null) {
+      return bookRepository.decrementAvailableCopies(bookIds) == bookIds.size();
+    }
+    hotBooks.recordAttempt(bookIds);
+    final Map<Boolean, List<Long>> byMode = bookIds.stream()
+        .collect(Collectors.partitioningBy(hotBooks::isSharded));
+    final List<Long> plain = byMode.get(false);
+    final boolean taken =
+        (plain.isEmpty() || bookRepository.decrementAvailableCopies(plain) == plain.size())
+            && byMode.get(true).stream().allMatch(hotBooks::take);
+    if (!taken && hotBooks.refresh(bookIds)) {
+      throw new OptimisticLockingFailureException("Storage mode of a requested book changed");
+    }
+    return taken;
+  }
+
+  /**
+   * Returns one copy of every given book.
+   */
+  public void release(final Collection<Long> bookIds) {
+    if (bookIds.isEmpty()) {
+      return;
+    }
+    eventPublisher.publishEvent(new BookCopiesReleasedEvent(List.copyOf(bookIds)));
+    if (ledger != null) {
+      releaseToLedger(bookIds);
+      return;
+    }
+    if (hotBooks == null) {
+      bookRepository.incrementAvailableCopies(bookIds);
+      return;
+    }
+    final List<Long> plain = new ArrayList<>(bookIds.size());
+    for (Long bookId : bookIds) {
+      // A sharded book whose slots are gone has just been demoted back to its plain column
+      if (!hotBooks.isSharded(bookId) || !hotBooks.release(bookId)) {
+        plain.add(bookId);
+      }
+    }
+    if (!plain.isEmpty() && bookRepository.incrementAvailableCopies(plain) != plain.size()) {
+      // Promoted since the local view was read
+      hotBooks.refresh(plain);
+      bookRepository.findShardedBookIds(plain).forEach(bookId -> releaseToSlots(bookId, 1));
+    }
+  }
+
+  /**
+   * Returns every copy held by the given reservations. Copies of plain books are given back with
+   * a single aggregated update rather than one update per reservation.
+   */
+  public void releaseReservations(final Collection<Long> reservationIds) {
+    if (reservationIds.isEmpty()) {
+      return;
+    }
+    final Map<Long, Integer> copies = new LinkedHashMap<>();
+    for (BookCopies bookCopies : bookRepository.countCopiesOfReservations(reservationIds)) {
+      copies.put(bookCopies.getBookId(), bookCopies.getCopies().intValue());
+    }
+    if (copies.isEmpty()) {
+      return;
+    }
+    eventPublisher.publishEvent(new BookCopiesReleasedEvent(List.copyOf(copies.keySet())));
+    if (ledger != null) {
+      releaseToLedger(copies.entrySet().stream()
+          .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+          .toList());
+      return;
+    }
+    if (hotBooks == null) {
+      bookRepository.restoreCopiesOfReservations(reservationIds, copies.keySet());
+      return;
+    }
+    final Set<Long> sharded = new HashSet<>(bookRepository.findShardedBookIds(copies.keySet()));
+    final List<Long> plain = copies.keySet().stream().filter(id -> !sharded.contains(id)).toList();
+    if (!plain.isEmpty()
+        && bookRepository.restoreCopiesOfReservations(reservationIds, plain) != plain.size()) {
+      // Promoted since the read above; updated rows stay locked, so these are the skipped ones
+      sharded.addAll(bookRepository.findShardedBookIds(plain));
+    }
+    sharded.forEach(bookId -> releaseToSlots(bookId, copies.get(bookId)));
+  }
+
+  /**
+   * @throws OptimisticLockingFailureException if the book was demoted and promoted again under
+   *     this call, so that the copies fit neither its slots nor its plain column
+   */
+  private void releaseToSlots(final Long bookId, final int copies) {
+    for (int released = 0; released < copies; released++) {
+      if (!hotBooks.release(bookId)) {
+        // Demoted in the meantime; the rest goes back to the plain column
+        if (bookRepository.addAvailableCopies(bookId, copies - released) == 0) {
+          throw new OptimisticLockingFailureException(
+              "Could not return " + (copies - released) + " copies of book " + bookId);
+        }
+        return;
+      }
+    }
+  }
+
+  private boolean takeFromLedger(final Collection<Long> bookIds) {
+    if (!ledger.tryTake(bookIds)) {
+      return false;
+    }
+    final List<Long> taken = List.copyOf(bookIds);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(final int status) {
+          if (status != STATUS_COMMITTED) {
+            ledger.release(taken);
+          }
+        }
+      });
+    }
+    return true;
+  }
+
+  private void releaseToLedger(final Collection<Long> bookIds) {
+    final List<Long> released = List.copyOf(bookIds);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          ledger.release(released);
+        }
+      });
+    } else {
+      ledger.release(released);
+    }
+  }
+
+}
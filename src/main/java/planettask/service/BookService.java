@@ -1,56 +1,158 @@
 package planettask.service;
 
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import org.modelmapper.ModelMapper;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import planettask.cache.CacheNames;
+import planettask.cache.NegativeCache;
+import planettask.cache.PageCache;
 import planettask.domain.Book;
 import planettask.model.BookDTO;
+import planettask.model.CursorSliceDTO;
 import planettask.repos.BookRepository;
-import planettask.util.NotFoundException;
+import planettask.repos.BookRepository.IsbnId;
 
 
 @Service
 @Transactional
 public class BookService {
 
+  private static final KeysetScroller<Book> SCROLLER = new KeysetScroller<>(Book.class,
+      "bookId", Map.of("bookId", Long.class, "title", String.class, "author", String.class));
+
   private final BookRepository bookRepository;
-  private final ModelMapper modelMapper;
+  private final BookInventory bookInventory;
+  private final DtoMapper dtoMapper;
+  private final CacheManager cacheManager;
+  private final NegativeCache negativeCache;
+  private final ApplicationEventPublisher eventPublisher;
+  private final PageCache pageCache;
+  private final EntityManager entityManager;
 
-  public BookService(final BookRepository bookRepository, ModelMapper modelMapper) {
+  public BookService(final BookRepository bookRepository, final BookInventory bookInventory,
+      final DtoMapper dtoMapper, final CacheManager cacheManager, final NegativeCache negativeCache,
+      final ApplicationEventPublisher eventPublisher, final PageCache pageCache,
+      final EntityManager entityManager) {
     this.bookRepository = bookRepository;
-    this.modelMapper = modelMapper;
+    this.bookInventory = bookInventory;
+    this.dtoMapper = dtoMapper;
+    this.cacheManager = cacheManager;
+    this.negativeCache = negativeCache;
+    this.eventPublisher = eventPublisher;
+    this.pageCache = pageCache;
+    this.entityManager = entityManager;
   }
 
-  @Cacheable(value = "book", key = "{#pageable.pageNumber, #pageable.pageSize, #pageable.sort}")
   public List<BookDTO> findAll(final Pageable pageable) {
-    final Page<Book> books = this.bookRepository.findAll(pageable);
-    return books.stream().map(device -> modelMapper.map(device, BookDTO.class)).toList();
+    return pageCache.get(CacheNames.BOOK_PAGE, CacheNames.BOOK, pageable, BookDTO::getId,
+        () -> withCurrentCopies(bookRepository.findDTOsBy(pageable).getContent()),
+        ids -> withCurrentCopies(bookRepository.findDTOsByIdIn(ids)));
+  }
+
+  /**
+   * Keyset-paginated listing; see {@link KeysetScroller}.
+   */
+  public CursorSliceDTO<BookDTO> scroll(final String sortProperty, final Sort.Direction direction,
+      final int size, final String cursor) {
+    final KeysetScroller.Window window = SCROLLER.scroll(entityManager, sortProperty, direction,
+        size, cursor);
+    return new CursorSliceDTO<>(pageCache.getAll(CacheNames.BOOK, window.ids(), BookDTO::getId,
+        ids -> withCurrentCopies(bookRepository.findDTOsByIdIn(ids))), window.hasNext(),
+        window.nextCursor());
   }
 
-  @Cacheable(value = "book", key = "#bookId")
+  @Cacheable(value = CacheNames.BOOK, key = "#bookId", sync = true)
   public BookDTO get(final Long bookId) {
-    return bookRepository.findById(bookId)
-        .map(book -> modelMapper.map(book, BookDTO.class))
-        .orElseThrow(NotFoundException::new);
+    return load(bookId);
   }
 
   public Long create(final BookDTO bookDTO) {
     if (bookRepository.existsByIsbn(bookDTO.getIsbn())) {
       throw new IllegalArgumentException("Book with isbn " + bookDTO.getIsbn() + " already exists");
     }
-    Book book = modelMapper.map(bookDTO, Book.class);
-    return bookRepository.save(book).getBookId();
+    Book book = bookRepository.save(dtoMapper.toEntity(bookDTO));
+    eventPublisher.publishEvent(new BookCreatedEvent(book.getBookId(), book.getIsbn()));
+    return book.getBookId();
   }
 
-  @Cacheable(value = "book", key = "#isbn")
+  /**
+   * Resolves the ISBN to an id and reads the book through the same {@code book} entry as
+   * {@link #get}, so that a change to a book only ever has one entry to evict.
+   */
   public BookDTO findByIsbn(final String isbn) {
-    return bookRepository.findByIsbn(isbn)
-        .map(book -> modelMapper.map(book, BookDTO.class))
-        .orElseThrow(NotFoundException::new);
+    final Long bookId = findIdByIsbn(isbn);
+    final Cache cache = cacheManager.getCache(CacheNames.BOOK);
+    if (cache == null) {
+      return load(bookId);
+    }
+    try {
+      return cache.get(bookId, () -> load(bookId));
+    } catch (Cache.ValueRetrievalException ex) {
+      if (ex.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw ex;
+    }
+  }
+
+  /**
+   * Resolves an ISBN to its book id through the {@code bookIdByIsbn} cache.
+   */
+  public Long findIdByIsbn(final String isbn) {
+    negativeCache.checkNotMissing(CacheNames.ISBN_NOT_FOUND, isbn);
+    return bookRepository.findIdByIsbn(isbn)
+        .orElseThrow(() -> negativeCache.missing(CacheNames.ISBN_NOT_FOUND, isbn));
+  }
+
+  /**
+   * Loads the given books, and the books behind the given ISBNs, into the caches with one query
+   * per kind of key. Returns the number of books cached.
+   */
+  public int preload(final Collection<Long> bookIds, final Collection<String> isbns) {
+    final Set<Long> ids = new HashSet<>(bookIds);
+    if (!isbns.isEmpty()) {
+      final Cache isbnCache = cacheManager.getCache(CacheNames.BOOK_ID_BY_ISBN);
+      for (IsbnId isbnId : bookRepository.findIdsByIsbnIn(isbns)) {
+        if (isbnCache != null) {
+          isbnCache.put(isbnId.getIsbn(), isbnId.getBookId());
+        }
+        ids.add(isbnId.getBookId());
+      }
+    }
+    if (cacheManager.getCache(CacheNames.BOOK) == null || ids.isEmpty()) {
+      return 0;
+    }
+    return pageCache.load(CacheNames.BOOK, ids, BookDTO::getId,
+        toLoad -> withCurrentCopies(bookRepository.findDTOsByIdIn(toLoad))).size();
+  }
+
+  private BookDTO load(final Long bookId) {
+    negativeCache.checkNotMissing(CacheNames.BOOK_NOT_FOUND, bookId);
+    return bookRepository.findDTOById(bookId)
+        .map(this::withCurrentCopies)
+        .orElseThrow(() -> negativeCache.missing(CacheNames.BOOK_NOT_FOUND, bookId));
+  }
+
+  private List<BookDTO> withCurrentCopies(final List<BookDTO> books) {
+    books.forEach(this::withCurrentCopies);
+    return books;
+  }
+
+  private BookDTO withCurrentCopies(final BookDTO book) {
+    // The ledger, when enabled, keeps the copies outside the database
+    book.setAvailableCopies(bookInventory.availableCopies(book.getId(), book.getAvailableCopies()));
+    return book;
   }
 
 }
@@ -0,0 +1,186 @@
+package planettask.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import planettask.config.ReservationExpiryProperties;
+import planettask.repos.ReservationRepository;
+import planettask.repos.ReservationRepository.ReservationCreation;
+
+
+/**
+ * Expires every reservation shortly after its own deadline instead of in one nightly batch.
+ * <p>
+ * Upcoming deadlines are kept in tick-sized buckets, ordered by time. Every tick the buckets
+ * whose time has passed are drained and their reservations expired in batches of
+ * {@code batchSize}, so the database sees a steady trickle of small updates. Only deadlines
+ * within {@code horizon} are held in memory: they are loaded from the database on startup and
+ * topped up every half horizon. New reservations are only picked up by these loads; their
+ * deadline is {@link ReservationScheduler#DAYS_TO_EXPIRE} days out, far beyond any sensible
+ * horizon, so the load that brings them within it is always in time. Overdue reservations found
+ * while loading are expired on the next tick.
+ */
+@Component
+@ConditionalOnProperty(prefix = "planet.reservation.expiry.continuous", name = "enabled",
+    havingValue = "true")
+@Slf4j
+public class ContinuousExpiryEngine implements SmartLifecycle {
+
+  private static final Duration RESERVATION_TTL =
+      Duration.ofDays(ReservationScheduler.DAYS_TO_EXPIRE);
+
+  private final ReservationRepository reservationRepository;
+  private final ReservationExpiryService reservationExpiryService;
+  private final ReservationExpiryProperties.Continuous properties;
+  private final ReservationExpiryProperties expiryProperties;
+  private final Counter expiredCounter;
+  private final long tickMillis;
+  private final ConcurrentSkipListMap<Long, Set<Long>> buckets = new ConcurrentSkipListMap<>();
+  private final Map<Long, Long> scheduled = new ConcurrentHashMap<>();
+  private volatile long loadedUntil;
+  private ScheduledExecutorService timer;
+  private volatile boolean running;
+
+  public ContinuousExpiryEngine(final ReservationRepository reservationRepository,
+      final ReservationExpiryService reservationExpiryService,
+      final ReservationExpiryProperties expiryProperties, final MeterRegistry meterRegistry) {
+    this.reservationRepository = reservationRepository;
+    this.reservationExpiryService = reservationExpiryService;
+    this.expiryProperties = expiryProperties;
+    this.properties = expiryProperties.getContinuous();
+    this.tickMillis = Math.max(1, properties.getTick().toMillis());
+    this.expiredCounter = meterRegistry.counter("reservation.expiry.continuous.expired");
+    meterRegistry.gaugeMapSize("reservation.expiry.continuous.scheduled", List.of(), scheduled);
+  }
+
+  /**
+   * Adds a deadline if it falls within the loaded horizon; later ones are picked up by the next
+   * top-up.
+   */
+  public void schedule(final Long reservationId, final OffsetDateTime deadline) {
+    final long deadlineMillis = deadline.toInstant().toEpochMilli();
+    if (deadlineMillis > loadedUntil) {
+      return;
+    }
+    final long tick = Math.floorDiv(deadlineMillis, tickMillis);
+    if (scheduled.putIfAbsent(reservationId, tick) == null) {
+      buckets.computeIfAbsent(tick, t -> ConcurrentHashMap.newKeySet()).add(reservationId);
+    }
+  }
+
+  /**
+   * Loads every active reservation whose deadline falls before the end of the next horizon.
+   */
+  public void load() {
+    final OffsetDateTime until = OffsetDateTime.now().plus(properties.getHorizon());
+    loadedUntil = until.toInstant().toEpochMilli();
+    final OffsetDateTime createdBefore = until.minus(RESERVATION_TTL);
+    long afterId = 0;
+    int loaded = 0;
+    List<ReservationCreation> chunk;
+    do {
+      chunk = reservationRepository.findActiveCreatedBefore(createdBefore, afterId,
+          Limit.of(expiryProperties.getChunkSize()));
+      for (ReservationCreation reservation : chunk) {
+        schedule(reservation.getReservationId(),
+            reservation.getDateCreated().plus(RESERVATION_TTL));
+        afterId = reservation.getReservationId();
+      }
+      loaded += chunk.size();
+    } while (chunk.size() == expiryProperties.getChunkSize());
+    log.debug("Loaded {} reservation deadline(s) up to {}", loaded, until);
+  }
+
+  /**
+   * Expires the reservations whose deadline has passed and returns how many were expired.
+   */
+  public int tick() {
+    final long now = Math.floorDiv(System.currentTimeMillis(), tickMillis);
+    final List<Long> due = new ArrayList<>(properties.getBatchSize());
+    int expired = 0;
+    Map.Entry<Long, Set<Long>> bucket;
+    while ((bucket = buckets.firstEntry()) != null && bucket.getKey() <= now) {
+      buckets.remove(bucket.getKey());
+      for (Long reservationId : bucket.getValue()) {
+        due.add(reservationId);
+        if (due.size() == properties.getBatchSize()) {
+          expired += expireBatch(due);
+        }
+      }
+    }
+    if (!due.isEmpty()) {
+      expired += expireBatch(due);
+    }
+    return expired;
+  }
+
+  private int expireBatch(final List<Long> due) {
+    int expired = 0;
+    try {
+      expired = reservationExpiryService.expire(due);
+      expiredCounter.increment(expired);
+    } catch (RuntimeException ex) {
+      // Left to the next top-up, which finds them overdue
+      log.error("Failed to expire {} reservation(s)", due.size(), ex);
+    }
+    due.forEach(scheduled::remove);
+    due.clear();
+    return expired;
+  }
+
+  @Override
+  public void start() {
+    load();
+    timer = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("reservation-expiry").daemon().factory());
+    timer.scheduleWithFixedDelay(this::safeTick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    final long reload = Math.max(tickMillis, properties.getHorizon().toMillis() / 2);
+    timer.scheduleWithFixedDelay(this::safeLoad, reload, reload, TimeUnit.MILLISECONDS);
+    running = true;
+  }
+
+  private void safeTick() {
+    try {
+      tick();
+    } catch (RuntimeException ex) {
+      log.error("Reservation expiry tick failed", ex);
+    }
+  }
+
+  private void safeLoad() {
+    try {
+      load();
+    } catch (RuntimeException ex) {
+      log.error("Loading reservation deadlines failed", ex);
+    }
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    if (timer != null) {
+      timer.shutdown();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+}
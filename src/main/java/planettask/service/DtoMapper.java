@@ -0,0 +1,103 @@
+package planettask.service;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.springframework.stereotype.Component;
+import planettask.domain.Book;
+import planettask.domain.Reservation;
+import planettask.domain.User;
+import planettask.model.BookDTO;
+import planettask.model.ReservationDTO;
+import planettask.model.UserDTO;
+
+
+/**
+ * Conversions between the entities and their DTOs, written out property by property so that no
+ * call matches properties by reflection. Ids are copied both ways and {@code null} maps to
+ * {@code null}, as {@code ModelMapper} did; a user's reservations are never mapped, since the
+ * DTO does not show them and reading them would load a lazy collection.
+ * <p>
+ * A property added to an entity or DTO has to be added here as well; {@code DtoMapperTest}
+ * round-trips every mapped property.
+ */
+@Component
+public class DtoMapper {
+
+  public BookDTO toDTO(final Book book) {
+    if (book == null) {
+      return null;
+    }
+    return new BookDTO(book.getBookId(), book.getTitle(), book.getIsbn(), book.getAuthor(),
+        book.getTotalCopies(), book.getAvailableCopies());
+  }
+
+  public Book toEntity(final BookDTO bookDTO) {
+    if (bookDTO == null) {
+      return null;
+    }
+    return Book.builder()
+        .bookId(bookDTO.getId())
+        .title(bookDTO.getTitle())
+        .isbn(bookDTO.getIsbn())
+        .author(bookDTO.getAuthor())
+        .totalCopies(bookDTO.getTotalCopies())
+        .availableCopies(bookDTO.getAvailableCopies())
+        .build();
+  }
+
+  public UserDTO toDTO(final User user) {
+    if (user == null) {
+      return null;
+    }
+    return new UserDTO(user.getUserId(), user.getUsername(), user.getEmail());
+  }
+
+  public User toEntity(final UserDTO userDTO) {
+    if (userDTO == null) {
+      return null;
+    }
+    return User.builder()
+        .userId(userDTO.getUserId())
+        .username(userDTO.getUsername())
+        .email(userDTO.getEmail())
+        .build();
+  }
+
+  public ReservationDTO toDTO(final Reservation reservation) {
+    if (reservation == null) {
+      return null;
+    }
+    final ReservationDTO reservationDTO = new ReservationDTO();
+    reservationDTO.setReservationId(reservation.getReservationId());
+    reservationDTO.setStatus(reservation.getStatus());
+    reservationDTO.setUser(toDTO(reservation.getUser()));
+    if (reservation.getBooks() != null) {
+      final Set<BookDTO> books = new HashSet<>();
+      for (Book book : reservation.getBooks()) {
+        books.add(toDTO(book));
+      }
+      reservationDTO.setBooks(books);
+    }
+    return reservationDTO;
+  }
+
+  public Reservation toEntity(final ReservationDTO reservationDTO) {
+    if (reservationDTO == null) {
+      return null;
+    }
+    Set<Book> books = null;
+    if (reservationDTO.getBooks() != null) {
+      books = new HashSet<>();
+      for (BookDTO bookDTO : reservationDTO.getBooks()) {
+        books.add(toEntity(bookDTO));
+      }
+    }
+    return Reservation.builder()
+        .reservationId(reservationDTO.getReservationId())
+        .status(reservationDTO.getStatus())
+        .user(toEntity(reservationDTO.getUser()))
+        .books(books)
+        .build();
+  }
+
+}
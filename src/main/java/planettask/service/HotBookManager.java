@@ -0,0 +1,250 @@
+package planettask.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import planettask.config.HotBookProperties;
+import planettask.domain.Book;
+import planettask.domain.BookStockSlot;
+import planettask.repos.BookRepository;
+import planettask.repos.BookStockSlotRepository;
+import planettask.util.NotFoundException;
+
+
+/**
+ * Moves contended books between the plain {@code books.available_copies} column and a set of
+ * {@link BookStockSlot} rows, and takes/returns copies of books that are currently sharded.
+ * <p>
+ * Promotion and demotion lock the book row, so a concurrent plain decrement either runs before
+ * the switch or finds zero copies and no longer matches. The local set of sharded ids is only a
+ * routing hint; {@link BookInventory} re-checks the database whenever a take comes up short.
+ * <p>
+ * Takes and releases use the slot rows a book has, which are as many as {@code slots} was when it
+ * was promoted, not the current setting. The count is cached per book and read again whenever a
+ * take or release comes up short, as the book may since have been demoted and promoted again.
+ * <p>
+ * Attempts are only counted on this node, which sees a share of the traffic, so a node only
+ * demotes the books it promoted itself; another node, seeing few attempts, would demote a book
+ * that is hot elsewhere and keep it flipping between modes. Books already sharded when a node
+ * starts count as its own, so that none stays sharded for good once its node is gone.
+ */
+@Component
+@ConditionalOnProperty(prefix = "planet.inventory.hot-books", name = "enabled", havingValue = "true")
+@Slf4j
+public class HotBookManager {
+
+  private final BookRepository bookRepository;
+  private final BookStockSlotRepository slotRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final HotBookProperties properties;
+
+  private final Set<Long> shardedBookIds = ConcurrentHashMap.newKeySet();
+  private final Set<Long> promotedBookIds = ConcurrentHashMap.newKeySet();
+  private final Map<Long, Integer> slotCounts = new ConcurrentHashMap<>();
+  private final Map<Long, LongAdder> attempts = new ConcurrentHashMap<>();
+
+  public HotBookManager(final BookRepository bookRepository,
+      final BookStockSlotRepository slotRepository, final TransactionTemplate transactionTemplate,
+      final HotBookProperties properties) {
+    this.bookRepository = bookRepository;
+    this.slotRepository = slotRepository;
+    this.transactionTemplate = transactionTemplate;
+    this.properties = properties;
+  }
+
+  public boolean isSharded(final Long bookId) {
+    return shardedBookIds.contains(bookId);
+  }
+
+  public void recordAttempt(final Collection<Long> bookIds) {
+    bookIds.forEach(bookId -> attempts.computeIfAbsent(bookId, id -> new LongAdder()).increment());
+  }
+
+  /**
+   * Takes one copy from a slot of the given sharded book, starting at a random slot so that
+   * concurrent callers spread over different rows.
+   */
+  public boolean take(final Long bookId) {
+    final int slots = slotCount(bookId);
+    if (take(bookId, slots)) {
+      return true;
+    }
+    final int current = reloadSlotCount(bookId);
+    return current != slots && take(bookId, current);
+  }
+
+  /**
+   * Returns one copy to a random slot of the given sharded book. Returns {@code false} if the book
+   * has no slots, having been demoted.
+   */
+  public boolean release(final Long bookId) {
+    final int slots = slotCount(bookId);
+    if (slots > 0 && slotRepository.incrementSlot(bookId,
+        ThreadLocalRandom.current().nextInt(slots)) == 1) {
+      return true;
+    }
+    final int current = reloadSlotCount(bookId);
+    return current > 0 && slotRepository.incrementSlot(bookId,
+        ThreadLocalRandom.current().nextInt(current)) == 1;
+  }
+
+  private boolean take(final Long bookId, final int slots) {
+    if (slots == 0) {
+      return false;
+    }
+    final int start = ThreadLocalRandom.current().nextInt(slots);
+    for (int i = 0; i < slots; i++) {
+      if (slotRepository.decrementSlot(bookId, (start + i) % slots) == 1) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int slotCount(final Long bookId) {
+    final Integer slots = slotCounts.get(bookId);
+    return slots != null ? slots : reloadSlotCount(bookId);
+  }
+
+  private int reloadSlotCount(final Long bookId) {
+    final int slots = slotRepository.countByBookId(bookId);
+    if (slots > 0) {
+      slotCounts.put(bookId, slots);
+    } else {
+      slotCounts.remove(bookId);
+    }
+    return slots;
+  }
+
+  /**
+   * Re-reads the storage mode of the given books and returns {@code true} if the local view of any
+   * of them was out of date.
+   */
+  public boolean refresh(final Collection<Long> bookIds) {
+    final Set<Long> sharded = bookRepository.findShardedBookIds(bookIds);
+    boolean changed = false;
+    for (Long bookId : bookIds) {
+      changed |= sharded.contains(bookId) ? shardedBookIds.add(bookId)
+          : shardedBookIds.remove(bookId);
+    }
+    slotCounts.keySet().retainAll(shardedBookIds);
+    return changed;
+  }
+
+  /**
+   * Returns {@code false} if the book was already sharded.
+   */
+  public boolean promote(final Long bookId) {
+    final int slots = properties.getSlots();
+    final boolean promoted = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+      final Book book = bookRepository.findForUpdate(bookId)
+          .orElseThrow(() -> new NotFoundException("Book not found with id " + bookId));
+      if (book.isSharded()) {
+        return false;
+      }
+      final int copies = book.getAvailableCopies();
+      for (int slot = 0; slot < slots; slot++) {
+        slotRepository.save(BookStockSlot.builder()
+            .bookId(bookId)
+            .slotNo(slot)
+            .availableCopies(copies / slots + (slot < copies % slots ? 1 : 0))
+            .build());
+      }
+      book.setAvailableCopies(0);
+      book.setSharded(true);
+      return true;
+    }));
+    shardedBookIds.add(bookId);
+    if (promoted) {
+      slotCounts.put(bookId, slots);
+      promotedBookIds.add(bookId);
+      log.info("Book {} promoted to sharded stock", bookId);
+    }
+    return promoted;
+  }
+
+  /**
+   * Returns {@code false} if the book was not sharded.
+   */
+  public boolean demote(final Long bookId) {
+    final boolean demoted = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+      final Book book = bookRepository.findForUpdate(bookId)
+          .orElseThrow(() -> new NotFoundException("Book not found with id " + bookId));
+      if (!book.isSharded()) {
+        return false;
+      }
+      // Lock the slots first so no take or release lands between the sum and the delete
+      slotRepository.findAllForUpdate(bookId);
+      book.setAvailableCopies(slotRepository.sumAvailableCopies(bookId));
+      book.setSharded(false);
+      slotRepository.deleteByBookId(bookId);
+      return true;
+    }));
+    shardedBookIds.remove(bookId);
+    promotedBookIds.remove(bookId);
+    slotCounts.remove(bookId);
+    if (demoted) {
+      log.info("Book {} demoted to plain stock", bookId);
+    }
+    return demoted;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void adoptShardedBooks() {
+    loadShardedBooks();
+    promotedBookIds.addAll(shardedBookIds);
+  }
+
+  private void loadShardedBooks() {
+    shardedBookIds.addAll(bookRepository.findShardedBookIds());
+  }
+
+  @Scheduled(fixedDelayString = "${planet.inventory.hot-books.evaluation-interval:10s}")
+  public void evaluate() {
+    // Other nodes promote and demote too; start every round from the database's view
+    shardedBookIds.retainAll(bookRepository.findShardedBookIds());
+    promotedBookIds.retainAll(shardedBookIds);
+    slotCounts.keySet().retainAll(shardedBookIds);
+    loadShardedBooks();
+
+    final Map<Long, Long> window = new HashMap<>();
+    attempts.forEach((bookId, count) -> window.put(bookId, count.sumThenReset()));
+    attempts.values().removeIf(count -> count.sum() == 0);
+
+    window.forEach((bookId, count) -> {
+      if (count >= properties.getPromoteThreshold() && !isSharded(bookId)) {
+        evaluate(bookId, this::promote);
+      }
+    });
+    for (Long bookId : Set.copyOf(promotedBookIds)) {
+      if (window.getOrDefault(bookId, 0L) < properties.getDemoteThreshold()) {
+        evaluate(bookId, this::demote);
+      }
+    }
+  }
+
+  /**
+   * Promotes or demotes one book, so that a book that cannot be moved does not hold up the rest
+   * of the round.
+   */
+  private void evaluate(final Long bookId, final Consumer<Long> change) {
+    try {
+      change.accept(bookId);
+    } catch (RuntimeException ex) {
+      log.warn("Could not change the storage mode of book {}: {}", bookId, ex.getMessage());
+    }
+  }
+
+}
@@ -0,0 +1,144 @@
+package planettask.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import planettask.config.IdempotencyProperties;
+import planettask.service.IdempotencyStore.StoredResponse;
+
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key}.
+ * <p>
+ * The first successful response to a key is kept in the {@link IdempotencyStore} and replayed,
+ * without running the request again, to every retry carrying the same key. Keys are scoped by
+ * operation and by whose request it is, so one client's key never replays another's response.
+ * <p>
+ * A request claims its key in the store before it runs. A duplicate that arrives while it is
+ * still running waits for its outcome instead of racing it: on the same node through the
+ * in-flight future, on another node by polling the store until the response is saved or the
+ * claim is released. Failures are not stored, so a retry after a failure runs the request again.
+ */
+@Component
+public class IdempotencyExecutor {
+
+  public static final String HEADER = "Idempotency-Key";
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+  private final IdempotencyStore store;
+  private final ObjectMapper objectMapper;
+  private final IdempotencyProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, CompletableFuture<StoredResponse>> inFlight =
+      new ConcurrentHashMap<>();
+
+  public IdempotencyExecutor(final IdempotencyStore store, final ObjectMapper objectMapper,
+      final IdempotencyProperties properties, final MeterRegistry meterRegistry) {
+    this.store = store;
+    this.objectMapper = objectMapper;
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Runs {@code action}, or replays its stored response when {@code idempotencyKey} was seen
+   * before for this operation and scope.
+   *
+   * @param scope whose request this is, such as the user it is made for; keys only match
+   *     within one scope
+   * @param fingerprint identifies the request; a key reused with a different fingerprint is
+   *     rejected with {@code 422}
+   */
+  public <T> ResponseEntity<T> execute(final String operation, final String scope,
+      final String idempotencyKey, final String fingerprint, final Class<T> bodyType,
+      final Callable<ResponseEntity<T>> action) throws Exception {
+    if (idempotencyKey == null || idempotencyKey.isBlank()) {
+      return action.call();
+    }
+    final String key = operation + ":" + scope + ":" + idempotencyKey;
+    final Optional<StoredResponse> stored = store.find(key);
+    if (stored.isPresent()) {
+      return replay(operation, stored.get(), fingerprint, bodyType);
+    }
+
+    final CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+    final CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      return replay(operation, await(running), fingerprint, bodyType);
+    }
+    String claim = null;
+    try {
+      final long deadline = System.currentTimeMillis() + properties.getInFlightTimeout().toMillis();
+      while ((claim = store.claim(key, properties.getInFlightTimeout())) == null) {
+        // Done by an earlier request, or still running on another node
+        final Optional<StoredResponse> done = store.find(key);
+        if (done.isPresent()) {
+          mine.complete(done.get());
+          return replay(operation, done.get(), fingerprint, bodyType);
+        }
+        if (System.currentTimeMillis() >= deadline) {
+          throw stillInProgress();
+        }
+        Thread.sleep(properties.getInFlightPollInterval().toMillis());
+      }
+      final ResponseEntity<T> response = action.call();
+      final StoredResponse first = new StoredResponse(fingerprint,
+          response.getStatusCode().value(), objectMapper.writeValueAsString(response.getBody()));
+      store.save(key, first);
+      claim = null;
+      mine.complete(first);
+      return response;
+    } catch (Exception ex) {
+      if (claim != null) {
+        store.release(key, claim);
+      }
+      mine.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  private StoredResponse await(final CompletableFuture<StoredResponse> running) throws Exception {
+    try {
+      return running.get(properties.getInFlightTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof Exception cause) {
+        throw cause;
+      }
+      throw ex;
+    } catch (TimeoutException ex) {
+      throw stillInProgress();
+    }
+  }
+
+  private static ResponseStatusException stillInProgress() {
+    return new ResponseStatusException(HttpStatus.CONFLICT,
+        "A request with this Idempotency-Key is still in progress");
+  }
+
+  private <T> ResponseEntity<T> replay(final String operation, final StoredResponse stored,
+      final String fingerprint, final Class<T> bodyType) throws Exception {
+    if (!Objects.equals(stored.fingerprint(), fingerprint)) {
+      throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+          "Idempotency-Key was already used for a different request");
+    }
+    meterRegistry.counter("idempotency.replays", "operation", operation).increment();
+    return ResponseEntity.status(stored.status())
+        .header(REPLAYED_HEADER, "true")
+        .body(objectMapper.readValue(stored.body(), bodyType));
+  }
+
+}
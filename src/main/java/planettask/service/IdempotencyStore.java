@@ -0,0 +1,45 @@
+package planettask.service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+
+/**
+ * Keeps the first response to each idempotency key for the configured time to live, and the
+ * claims of requests still running under a key.
+ */
+public interface IdempotencyStore {
+
+  /**
+   * The stored response, or empty if there is none yet, also while the key is claimed.
+   */
+  Optional<StoredResponse> find(String key);
+
+  /**
+   * Claims {@code key} for a request about to run, unless it is already claimed or has a stored
+   * response. The claim lapses after {@code timeout} if neither saved nor released.
+   *
+   * @return the token to release the claim with, or {@code null} if the key was not claimed
+   */
+  String claim(String key, Duration timeout);
+
+  /**
+   * Drops a claim whose request failed, so that a retry runs it again. A claim that has lapsed
+   * and been taken by another request is left alone.
+   */
+  void release(String key, String token);
+
+  /**
+   * Stores the response, replacing the claim.
+   */
+  void save(String key, StoredResponse response);
+
+  /**
+   * Response as first sent, with a fingerprint of the request that produced it so that a key
+   * reused for a different request can be told apart from a retry.
+   */
+  record StoredResponse(String fingerprint, int status, String body) {
+
+  }
+
+}
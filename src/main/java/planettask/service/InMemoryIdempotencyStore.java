@@ -0,0 +1,81 @@
+package planettask.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import planettask.config.IdempotencyProperties;
+
+
+/**
+ * Node-local idempotency store: an LRU map bounded by {@code maxEntries} whose entries also expire
+ * after {@code ttl}. Also used by {@link RedisIdempotencyStore} while Redis is unreachable.
+ */
+@Component
+@ConditionalOnProperty(prefix = "planet.idempotency", name = "store", havingValue = "memory",
+    matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+  private final Duration ttl;
+  private final Map<String, Entry> entries;
+
+  public InMemoryIdempotencyStore(final IdempotencyProperties properties) {
+    this.ttl = properties.getTtl();
+    final int maxEntries = properties.getMaxEntries();
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  @Override
+  public synchronized Optional<StoredResponse> find(final String key) {
+    final Entry entry = current(key);
+    return entry == null ? Optional.empty() : Optional.ofNullable(entry.response());
+  }
+
+  @Override
+  public synchronized String claim(final String key, final Duration timeout) {
+    if (current(key) != null) {
+      return null;
+    }
+    final String token = UUID.randomUUID().toString();
+    entries.put(key, new Entry(null, token, System.currentTimeMillis() + timeout.toMillis()));
+    return token;
+  }
+
+  @Override
+  public synchronized void release(final String key, final String token) {
+    final Entry entry = entries.get(key);
+    if (entry != null && token.equals(entry.claim())) {
+      entries.remove(key);
+    }
+  }
+
+  @Override
+  public synchronized void save(final String key, final StoredResponse response) {
+    entries.put(key, new Entry(response, null, System.currentTimeMillis() + ttl.toMillis()));
+  }
+
+  private Entry current(final String key) {
+    final Entry entry = entries.get(key);
+    if (entry != null && entry.expiresAt() < System.currentTimeMillis()) {
+      entries.remove(key);
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * A stored response, or a claim while {@code response} is {@code null}.
+   */
+  private record Entry(StoredResponse response, String claim, long expiresAt) {
+
+  }
+
+}
@@ -0,0 +1,177 @@
+package planettask.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import planettask.config.InventoryLedgerProperties;
+import planettask.repos.BookRepository;
+import planettask.util.NotFoundException;
+
+
+/**
+ * Lock-free, in-JVM view of every book's available copies.
+ * <p>
+ * Reservations take and return copies with CAS operations on per-book counters, which keeps the
+ * {@code books} row off the reservation hot path. Every change is also recorded as a pending
+ * delta, and a background flusher folds those deltas into {@code books.available_copies} with
+ * batched relative updates. On startup the column is first reconciled against the active
+ * reservations, which also repairs deltas that were lost when the previous process died before
+ * flushing them.
+ */
+@Component
+@ConditionalOnProperty(prefix = "planet.inventory.ledger", name = "enabled", havingValue = "true")
+@Slf4j
+public class InventoryLedger implements SmartLifecycle {
+
+  private static final String FLUSH_SQL = "UPDATE books "
+      + "SET available_copies = available_copies + ?, version = version + 1 WHERE book_id = ?";
+
+  private final BookRepository bookRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final InventoryLedgerProperties properties;
+
+  private final Map<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+  private final Map<Long, AtomicInteger> pendingDeltas = new ConcurrentHashMap<>();
+  private ScheduledExecutorService flusher;
+  private volatile boolean running;
+
+  public InventoryLedger(final BookRepository bookRepository, final JdbcTemplate jdbcTemplate,
+      final TransactionTemplate transactionTemplate, final InventoryLedgerProperties properties) {
+    this.bookRepository = bookRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.properties = properties;
+  }
+
+  /**
+   * Takes one copy of each book, or none at all if any of them has no copy left.
+   */
+  public boolean tryTake(final Collection<Long> bookIds) {
+    final List<Long> taken = new ArrayList<>(bookIds.size());
+    for (Long bookId : bookIds) {
+      final AtomicInteger copies = counter(bookId);
+      int current;
+      do {
+        current = copies.get();
+        if (current <= 0) {
+          release(taken);
+          return false;
+        }
+      } while (!copies.compareAndSet(current, current - 1));
+      pendingDeltas.computeIfAbsent(bookId, id -> new AtomicInteger()).decrementAndGet();
+      taken.add(bookId);
+    }
+    return true;
+  }
+
+  public void release(final Collection<Long> bookIds) {
+    for (Long bookId : bookIds) {
+      counter(bookId).incrementAndGet();
+      pendingDeltas.computeIfAbsent(bookId, id -> new AtomicInteger()).incrementAndGet();
+    }
+  }
+
+  public int availableCopies(final Long bookId) {
+    return counter(bookId).get();
+  }
+
+  /**
+   * Writes all pending deltas to the database and returns the number of books updated. Deltas of
+   * a failed batch are put back so the next flush retries them.
+   */
+  public synchronized int flush() {
+    final List<Object[]> batch = new ArrayList<>();
+    for (Map.Entry<Long, AtomicInteger> entry : pendingDeltas.entrySet()) {
+      final int delta = entry.getValue().getAndSet(0);
+      if (delta != 0) {
+        batch.add(new Object[]{delta, entry.getKey()});
+      }
+    }
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    try {
+      transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(FLUSH_SQL, batch,
+          properties.getFlushBatchSize(), (ps, args) -> {
+            ps.setInt(1, (Integer) args[0]);
+            ps.setLong(2, (Long) args[1]);
+          }));
+    } catch (RuntimeException ex) {
+      batch.forEach(args -> pendingDeltas.get((Long) args[1]).addAndGet((Integer) args[0]));
+      log.error("Failed to flush inventory deltas for {} book(s), will retry", batch.size(), ex);
+      return 0;
+    }
+    log.debug("Flushed inventory deltas for {} book(s)", batch.size());
+    return batch.size();
+  }
+
+  /**
+   * Rebuilds the ledger from the reservations table. Pending deltas are flushed first so that
+   * nothing taken in this process is counted twice.
+   */
+  public synchronized void reconcile() {
+    flush();
+    final int books = transactionTemplate.execute(status -> {
+      bookRepository.reconcileAvailableCopies();
+      bookRepository.findAllStock().forEach(stock -> available
+          .computeIfAbsent(stock.getBookId(), id -> new AtomicInteger())
+          .set(stock.getAvailableCopies()));
+      return available.size();
+    });
+    log.info("Inventory ledger reconciled for {} book(s)", books);
+  }
+
+  private AtomicInteger counter(final Long bookId) {
+    // Books created after startup are seeded on first use; their column has no pending deltas yet.
+    return available.computeIfAbsent(bookId, id -> new AtomicInteger(bookRepository.findById(id)
+        .orElseThrow(() -> new NotFoundException("Book not found with id " + id))
+        .getAvailableCopies()));
+  }
+
+  @Override
+  public void start() {
+    reconcile();
+    final long interval = properties.getFlushInterval().toMillis();
+    flusher = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("inventory-ledger-flusher").daemon().factory());
+    flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    if (flusher != null) {
+      flusher.shutdown();
+    }
+    flush();
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Starts before and stops after the web server, so no request sees an unseeded ledger and the
+   * last deltas are flushed once traffic has drained.
+   */
+  @Override
+  public int getPhase() {
+    return SmartLifecycle.DEFAULT_PHASE - 4096;
+  }
+
+}
@@ -0,0 +1,65 @@
+package planettask.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import planettask.config.InventoryRetryProperties;
+
+
+/**
+ * Re-runs a transactional inventory operation when it loses an optimistic-locking race.
+ * <p>
+ * Must be called from outside the transaction it retries, so that every attempt starts a fresh
+ * transaction and reloads the current book versions. Backoff is exponential with full jitter so
+ * that callers colliding on the same book do not collide again on the next attempt.
+ */
+@Component
+@Slf4j
+public class InventoryRetryExecutor {
+
+  private final InventoryRetryProperties properties;
+  private final MeterRegistry meterRegistry;
+
+  public InventoryRetryExecutor(final InventoryRetryProperties properties,
+      final MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+  }
+
+  public <T> T execute(final String operation, final Callable<T> action) throws Exception {
+    final int maxAttempts = properties.isEnabled() ? Math.max(1, properties.getMaxAttempts()) : 1;
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return action.call();
+      } catch (OptimisticLockingFailureException ex) {
+        counter("inventory.retry.conflicts", operation).increment();
+        if (attempt >= maxAttempts) {
+          counter("inventory.retry.exhausted", operation).increment();
+          log.warn("Giving up on {} after {} conflicting attempt(s)", operation, attempt);
+          throw ex;
+        }
+        counter("inventory.retry.attempts", operation).increment();
+        log.debug("Optimistic lock conflict on {}, retrying (attempt {})", operation, attempt);
+        backoff(attempt);
+      }
+    }
+  }
+
+  private void backoff(final int attempt) throws InterruptedException {
+    final long initial = properties.getInitialBackoff().toMillis();
+    final long cap = Math.min(properties.getMaxBackoff().toMillis(),
+        initial << Math.min(attempt - 1, 20));
+    if (cap > 0) {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+  }
+
+  private Counter counter(final String name, final String operation) {
+    return meterRegistry.counter(name, "operation", operation);
+  }
+
+}
@@ -0,0 +1,168 @@
+package planettask.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+
+/**
+ * Keyset ("seek") pagination over one entity.
+ * <p>
+ * Instead of skipping {@code page * size} rows, each slice continues after the sort key and id
+ * of the previous slice's last row, which the client passes back as an opaque cursor. The
+ * query reads {@code size + 1} rows to tell whether another slice follows, so no count query is
+ * run, and with an index on {@code (sort key, id)} a deep slice costs the same as the first.
+ * Only properties backed by such an index can be scrolled by.
+ * <p>
+ * Only the id and the sort key are selected, so no entity is loaded; callers build the slice
+ * from its ids the way they build a cached page.
+ */
+public final class KeysetScroller<E> {
+
+  private static final ConversionService CONVERSION = DefaultConversionService.getSharedInstance();
+  private static final String SEPARATOR = "|";
+
+  private final Class<E> entityClass;
+  private final String idProperty;
+  private final Map<String, Class<?>> sortProperties;
+
+  /**
+   * @param sortProperties the properties slices can be sorted by, with their types; must include
+   *     {@code idProperty}
+   */
+  public KeysetScroller(final Class<E> entityClass, final String idProperty,
+      final Map<String, Class<?>> sortProperties) {
+    this.entityClass = entityClass;
+    this.idProperty = idProperty;
+    this.sortProperties = sortProperties;
+  }
+
+  /**
+   * Reads the ids of the slice after {@code cursor}, or of the first slice if it is {@code null}.
+   *
+   * @throws ResponseStatusException {@code 400} for an unknown sort property or a cursor that
+   *     is malformed or was issued for a different sort
+   */
+  public Window scroll(final EntityManager entityManager, final String sortProperty,
+      final Direction direction, final int size, final String cursor) {
+    if (!sortProperties.containsKey(sortProperty)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Cannot scroll by '" + sortProperty + "', use one of " + sortProperties.keySet());
+    }
+    if (size < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Size must be positive");
+    }
+    final Cursor after = cursor != null ? Cursor.decode(cursor) : null;
+    if (after != null && (!after.property().equals(sortProperty)
+        || after.direction() != direction)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Cursor was issued for a different sort");
+    }
+    final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    final CriteriaQuery<Tuple> query = cb.createTupleQuery();
+    final Root<E> root = query.from(entityClass);
+    final Path<Long> id = root.get(idProperty);
+    final Path<?> key = root.get(sortProperty);
+    query.multiselect(id, key);
+    if (after != null) {
+      query.where(seek(root, cb, after));
+    }
+    query.orderBy(sortProperty.equals(idProperty)
+        ? List.of(order(cb, id, direction))
+        : List.of(order(cb, key, direction), order(cb, id, direction)));
+    final List<Tuple> rows = entityManager.createQuery(query).setMaxResults(size + 1)
+        .getResultList();
+    final boolean hasNext = rows.size() > size;
+    final List<Tuple> slice = hasNext ? rows.subList(0, size) : rows;
+    final String nextCursor = hasNext
+        ? new Cursor(sortProperty, direction, slice.getLast().get(0, Long.class),
+            String.valueOf(slice.getLast().get(1))).encode()
+        : null;
+    return new Window(slice.stream().map(row -> row.get(0, Long.class)).toList(), hasNext,
+        nextCursor);
+  }
+
+  /**
+   * {@code key >= value AND (key > value OR id > lastId)} for ascending order; the leading range
+   * lets the database start the index scan at the cursor.
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private Predicate seek(final Root<E> root, final CriteriaBuilder cb, final Cursor after) {
+    final boolean ascending = after.direction().isAscending();
+    final Path<Long> id = root.get(idProperty);
+    final Predicate afterId = ascending
+        ? cb.greaterThan(id, after.id())
+        : cb.lessThan(id, after.id());
+    if (after.property().equals(idProperty)) {
+      return afterId;
+    }
+    final Path<Comparable> key = root.get(after.property());
+    final Comparable value = convert(after.value(), sortProperties.get(after.property()));
+    return ascending
+        ? cb.and(cb.greaterThanOrEqualTo(key, value), cb.or(cb.greaterThan(key, value), afterId))
+        : cb.and(cb.lessThanOrEqualTo(key, value), cb.or(cb.lessThan(key, value), afterId));
+  }
+
+  private static Order order(final CriteriaBuilder cb,
+      final Path<?> path, final Direction direction) {
+    return direction.isAscending() ? cb.asc(path) : cb.desc(path);
+  }
+
+  private static Comparable<?> convert(final String value, final Class<?> type) {
+    try {
+      if (type == OffsetDateTime.class) {
+        return OffsetDateTime.parse(value);
+      }
+      return (Comparable<?>) CONVERSION.convert(value, type);
+    } catch (RuntimeException ex) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+    }
+  }
+
+  /**
+   * The ids of one slice, in order, and the cursor continuing after it, {@code null} on the last
+   * slice.
+   */
+  public record Window(List<Long> ids, boolean hasNext, String nextCursor) {
+
+  }
+
+  private record Cursor(String property, Direction direction, Long id, String value) {
+
+    String encode() {
+      final String raw = String.join(SEPARATOR, property, direction.name(), id.toString(), value);
+      return Base64.getUrlEncoder().withoutPadding()
+          .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decode(final String token) {
+      try {
+        final String raw = new String(Base64.getUrlDecoder().decode(token),
+            StandardCharsets.UTF_8);
+        // The value comes last, so it may contain the separator itself
+        final String[] parts = raw.split("\\" + SEPARATOR, 4);
+        return new Cursor(parts[0], Direction.valueOf(parts[1]), Long.valueOf(parts[2]),
+            parts[3]);
+      } catch (RuntimeException ex) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+      }
+    }
+
+  }
+
+}
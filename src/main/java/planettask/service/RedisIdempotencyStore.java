@@ -0,0 +1,102 @@
+package planettask.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import planettask.config.IdempotencyProperties;
+
+
+/**
+ * Idempotency store shared by all nodes. Keys expire in Redis after {@code ttl}; while Redis is
+ * unreachable responses are kept in a node-local {@link InMemoryIdempotencyStore} instead, so
+ * retries landing on the same node are still deduplicated.
+ * <p>
+ * A claim is the key set to {@value #CLAIM_PREFIX} and a token with {@code SET NX PX}, so only
+ * one node runs a request however many nodes its retries reach; saving the response overwrites
+ * the claim.
+ */
+@Component
+@ConditionalOnProperty(prefix = "planet.idempotency", name = "store", havingValue = "redis")
+@Slf4j
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+  private static final String KEY_PREFIX = "idempotency:";
+  private static final String CLAIM_PREFIX = "IN_PROGRESS:";
+  private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+      "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) "
+          + "else return 0 end", Long.class);
+
+  private final StringRedisTemplate redisTemplate;
+  private final ObjectMapper objectMapper;
+  private final Duration ttl;
+  private final InMemoryIdempotencyStore fallback;
+
+  public RedisIdempotencyStore(final StringRedisTemplate redisTemplate,
+      final ObjectMapper objectMapper, final IdempotencyProperties properties) {
+    this.redisTemplate = redisTemplate;
+    this.objectMapper = objectMapper;
+    this.ttl = properties.getTtl();
+    this.fallback = new InMemoryIdempotencyStore(properties);
+  }
+
+  @Override
+  public Optional<StoredResponse> find(final String key) {
+    try {
+      final String json = redisTemplate.opsForValue().get(KEY_PREFIX + key);
+      if (json == null) {
+        return fallback.find(key);
+      }
+      return json.startsWith(CLAIM_PREFIX)
+          ? Optional.empty()
+          : Optional.of(objectMapper.readValue(json, StoredResponse.class));
+    } catch (DataAccessException | JsonProcessingException ex) {
+      log.warn("Idempotency lookup in Redis failed, using the local store: {}", ex.getMessage());
+      return fallback.find(key);
+    }
+  }
+
+  @Override
+  public String claim(final String key, final Duration timeout) {
+    final String token = UUID.randomUUID().toString();
+    try {
+      return Boolean.TRUE.equals(redisTemplate.opsForValue()
+          .setIfAbsent(KEY_PREFIX + key, CLAIM_PREFIX + token, timeout)) ? token : null;
+    } catch (DataAccessException ex) {
+      log.warn("Idempotency claim in Redis failed, using the local store: {}", ex.getMessage());
+      return fallback.claim(key, timeout);
+    }
+  }
+
+  @Override
+  public void release(final String key, final String token) {
+    fallback.release(key, token);
+    try {
+      redisTemplate.execute(RELEASE, List.of(KEY_PREFIX + key), CLAIM_PREFIX + token);
+    } catch (DataAccessException ex) {
+      log.warn("Idempotency release in Redis failed, the claim lapses on its own: {}",
+          ex.getMessage());
+    }
+  }
+
+  @Override
+  public void save(final String key, final StoredResponse response) {
+    try {
+      redisTemplate.opsForValue()
+          .set(KEY_PREFIX + key, objectMapper.writeValueAsString(response), ttl);
+    } catch (DataAccessException | JsonProcessingException ex) {
+      log.warn("Idempotency write to Redis failed, using the local store: {}", ex.getMessage());
+      fallback.save(key, response);
+    }
+  }
+
+}
@@ -0,0 +1,243 @@
+package planettask.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import planettask.config.GroupCommitProperties;
+import planettask.model.ReservationDTO;
+
+
+/**
+ * Coalesces concurrent {@link ReservationService#reserveBooks} calls into one transaction.
+ * <p>
+ * A single committer thread collects requests for at most {@code maxWait} after the first one
+ * arrives (or until {@code maxBatchSize} are queued) and runs each of them behind a JDBC savepoint
+ * of a shared transaction. A request that fails only rolls back to its own savepoint, so every
+ * caller still gets its own result, while the whole batch pays for a single commit. If the shared
+ * commit itself fails, the batch is replayed one transaction per request.
+ * <p>
+ * Hibernate's JPA dialect has no savepoint support, so savepoints are taken on the session's
+ * connection directly; the persistence context is flushed before each one and cleared after
+ * rolling back to it. Rolling back to a savepoint does not complete the transaction, so the
+ * transaction synchronizations a failed request registered are dropped and completed as rolled
+ * back by hand: its transactional events are never delivered, and copies it took from the
+ * {@link InventoryLedger} are given back.
+ */
+@Component
+@ConditionalOnProperty(prefix = "planet.reservation.group-commit", name = "enabled",
+    havingValue = "true")
+@Slf4j
+public class ReservationBatcher implements SmartLifecycle {
+
+  private final ReservationService reservationService;
+  private final GroupCommitProperties properties;
+  private final EntityManager entityManager;
+  private final TransactionTemplate batchTransaction;
+  private final DistributionSummary batchSizes;
+  private final BlockingQueue<PendingReservation> queue;
+  private Thread committer;
+  private volatile boolean running;
+
+  public ReservationBatcher(final ReservationService reservationService,
+      final GroupCommitProperties properties, final EntityManager entityManager,
+      final PlatformTransactionManager transactionManager, final MeterRegistry meterRegistry) {
+    this.reservationService = reservationService;
+    this.properties = properties;
+    this.entityManager = entityManager;
+    this.batchTransaction = new TransactionTemplate(transactionManager);
+    this.batchSizes = DistributionSummary.builder("reservation.group_commit.batch_size")
+        .register(meterRegistry);
+    this.queue = new LinkedBlockingQueue<>(properties.getQueueCapacity());
+  }
+
+  /**
+   * Reserves the books as part of the next batch and waits for the batch to commit. Falls back to
+   * a transaction of its own when the batcher is saturated or not running.
+   */
+  public ReservationDTO reserve(final Long userId, final Set<Long> bookIds) throws Exception {
+    final PendingReservation pending = new PendingReservation(userId, bookIds,
+        new CompletableFuture<>());
+    if (!running || !queue.offer(pending)) {
+      return reservationService.reserveBooks(userId, bookIds);
+    }
+    try {
+      return pending.result().get();
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof Exception cause) {
+        throw cause;
+      }
+      throw ex;
+    }
+  }
+
+  private void runCommitter() {
+    final long maxWaitNanos = properties.getMaxWait().toNanos();
+    final List<PendingReservation> batch = new ArrayList<>(properties.getMaxBatchSize());
+    while (running || !queue.isEmpty()) {
+      try {
+        final PendingReservation first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        final long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < properties.getMaxBatchSize()) {
+          final PendingReservation next = queue.poll(deadline - System.nanoTime(),
+              TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        commit(batch);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void commit(final List<PendingReservation> batch) {
+    batchSizes.record(batch.size());
+    final List<Outcome> outcomes = new ArrayList<>(batch.size());
+    try {
+      batchTransaction.executeWithoutResult(status -> {
+        for (PendingReservation pending : batch) {
+          outcomes.add(reserveBehindSavepoint(pending));
+        }
+      });
+    } catch (RuntimeException ex) {
+      log.warn("Group commit of {} reservation(s) failed, retrying individually", batch.size(),
+          ex);
+      batch.forEach(this::commitAlone);
+      return;
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      outcomes.get(i).complete(batch.get(i).result());
+    }
+  }
+
+  private Outcome reserveBehindSavepoint(final PendingReservation pending) {
+    entityManager.flush();
+    final Session session = entityManager.unwrap(Session.class);
+    final Savepoint savepoint = session.doReturningWork(Connection::setSavepoint);
+    final List<TransactionSynchronization> synchronizations =
+        TransactionSynchronizationManager.getSynchronizations();
+    try {
+      final ReservationDTO reservation = reservationService.reserveBooksInCurrentTransaction(
+          pending.userId(), pending.bookIds());
+      entityManager.flush();
+      session.doWork(connection -> connection.releaseSavepoint(savepoint));
+      return new Outcome(reservation, null);
+    } catch (Exception ex) {
+      session.doWork(connection -> connection.rollback(savepoint));
+      entityManager.clear();
+      rollBackSynchronizationsSince(synchronizations);
+      return new Outcome(null, ex);
+    }
+  }
+
+  /**
+   * Unregisters the synchronizations added since {@code before} and completes them as rolled
+   * back, as the transaction would if it rolled back as a whole.
+   */
+  private static void rollBackSynchronizationsSince(
+      final List<TransactionSynchronization> before) {
+    final List<TransactionSynchronization> added =
+        new ArrayList<>(TransactionSynchronizationManager.getSynchronizations());
+    added.removeAll(before);
+    if (added.isEmpty()) {
+      return;
+    }
+    TransactionSynchronizationManager.clearSynchronization();
+    TransactionSynchronizationManager.initSynchronization();
+    before.forEach(TransactionSynchronizationManager::registerSynchronization);
+    for (TransactionSynchronization synchronization : added) {
+      try {
+        synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+      } catch (RuntimeException ex) {
+        log.error("Completing a synchronization of a failed reservation failed", ex);
+      }
+    }
+  }
+
+  private void commitAlone(final PendingReservation pending) {
+    try {
+      pending.result().complete(
+          reservationService.reserveBooks(pending.userId(), pending.bookIds()));
+    } catch (Exception ex) {
+      pending.result().completeExceptionally(ex);
+    }
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    committer = Thread.ofPlatform().name("reservation-group-commit").daemon()
+        .start(this::runCommitter);
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    try {
+      committer.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    final List<PendingReservation> leftovers = new ArrayList<>();
+    queue.drainTo(leftovers);
+    leftovers.forEach(this::commitAlone);
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Stops after the web server and the asynchronous intake that feed it.
+   */
+  @Override
+  public int getPhase() {
+    return SmartLifecycle.DEFAULT_PHASE - 3072;
+  }
+
+  private record PendingReservation(Long userId, Set<Long> bookIds,
+                                    CompletableFuture<ReservationDTO> result) {
+
+  }
+
+  private record Outcome(ReservationDTO reservation, Exception failure) {
+
+    void complete(final CompletableFuture<ReservationDTO> result) {
+      if (failure == null) {
+        result.complete(reservation);
+      } else {
+        result.completeExceptionally(failure);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,11 @@
+package planettask.service;
+
+import java.time.OffsetDateTime;
+
+
+/**
+ * Published when a reservation is created.
+ */
+public record ReservationCreatedEvent(Long reservationId, OffsetDateTime dateCreated) {
+
+}
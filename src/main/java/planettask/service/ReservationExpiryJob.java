@@ -0,0 +1,32 @@
+package planettask.service;
+
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.SchedulerException;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+
+/**
+ * Nightly Quartz entry point of {@link ReservationScheduler#expireOldReservations()}.
+ */
+@DisallowConcurrentExecution
+public class ReservationExpiryJob extends QuartzJobBean {
+
+  private final ReservationScheduler reservationScheduler;
+
+  public ReservationExpiryJob(final ReservationScheduler reservationScheduler) {
+    this.reservationScheduler = reservationScheduler;
+  }
+
+  @Override
+  protected void executeInternal(final JobExecutionContext context)
+      throws JobExecutionException {
+    try {
+      reservationScheduler.expireOldReservations();
+    } catch (SchedulerException ex) {
+      throw new JobExecutionException(ex);
+    }
+  }
+
+}
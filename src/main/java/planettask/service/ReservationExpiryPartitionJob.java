@@ -0,0 +1,47 @@
+package planettask.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+import planettask.domain.JobCheckpoint;
+import planettask.repos.JobCheckpointRepository;
+
+
+/**
+ * Expires one range of reservation ids planned by {@link ReservationScheduler}. Progress is kept
+ * in the partition's checkpoint, which is removed once the range is done; a recovered execution
+ * resumes from it.
+ */
+@DisallowConcurrentExecution
+@Slf4j
+public class ReservationExpiryPartitionJob extends QuartzJobBean {
+
+  public static final String AFTER_ID = "afterId";
+  public static final String TO_ID = "toId";
+
+  private final ReservationExpiryService reservationExpiryService;
+  private final JobCheckpointRepository jobCheckpointRepository;
+
+  public ReservationExpiryPartitionJob(final ReservationExpiryService reservationExpiryService,
+      final JobCheckpointRepository jobCheckpointRepository) {
+    this.reservationExpiryService = reservationExpiryService;
+    this.jobCheckpointRepository = jobCheckpointRepository;
+  }
+
+  @Override
+  protected void executeInternal(final JobExecutionContext context) {
+    final String name = context.getJobDetail().getKey().getName();
+    final JobCheckpoint checkpoint = jobCheckpointRepository.findById(name).orElse(null);
+    if (checkpoint == null) {
+      log.info("Expiry partition {} is already done", name);
+      return;
+    }
+    final JobDataMap data = context.getMergedJobDataMap();
+    final long expired = reservationExpiryService.expireRange(name, checkpoint.getCutoff(),
+        data.getLong(AFTER_ID), data.getLong(TO_ID));
+    log.info("Expiry partition {} expired {} reservation(s)", name, expired);
+  }
+
+}
@@ -0,0 +1,137 @@
+package planettask.service;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import planettask.config.ReservationExpiryProperties;
+import planettask.domain.JobCheckpoint;
+import planettask.repos.JobCheckpointRepository;
+import planettask.repos.ReservationRepository;
+
+
+/**
+ * Expires old reservations in constant memory, however large the backlog.
+ * <p>
+ * Stale reservations are walked in id order, {@code chunkSize} ids at a time. Each chunk is one
+ * transaction that flips the status with a bulk update, gives the copies back through
+ * {@link BookInventory#releaseReservations} and advances the job's {@link JobCheckpoint}, so a
+ * run that dies part-way resumes after the last committed chunk instead of starting over.
+ * Every chunk also publishes a {@link ReservationsChangedEvent} for the caches of the reservations
+ * and users it touched.
+ */
+@Service
+@Slf4j
+public class ReservationExpiryService {
+
+  public static final String JOB_NAME = "reservation-expiry";
+
+  private final ReservationRepository reservationRepository;
+  private final JobCheckpointRepository jobCheckpointRepository;
+  private final BookInventory bookInventory;
+  private final TransactionTemplate transactionTemplate;
+  private final ReservationExpiryProperties properties;
+  private final ApplicationEventPublisher eventPublisher;
+
+  public ReservationExpiryService(final ReservationRepository reservationRepository,
+      final JobCheckpointRepository jobCheckpointRepository, final BookInventory bookInventory,
+      final TransactionTemplate transactionTemplate, final ReservationExpiryProperties properties,
+      final ApplicationEventPublisher eventPublisher) {
+    this.reservationRepository = reservationRepository;
+    this.jobCheckpointRepository = jobCheckpointRepository;
+    this.bookInventory = bookInventory;
+    this.transactionTemplate = transactionTemplate;
+    this.properties = properties;
+    this.eventPublisher = eventPublisher;
+  }
+
+  /**
+   * Expires every active reservation created before {@code cutoff} and returns how many were
+   * expired. If an earlier run was interrupted, it is finished first with its own cutoff.
+   */
+  public long expireBefore(final OffsetDateTime cutoff) {
+    return expireRange(JOB_NAME, cutoff, 0L, Long.MAX_VALUE);
+  }
+
+  /**
+   * Expires the active reservations created before {@code cutoff} with ids in
+   * {@code (afterId, toId]}, tracking progress under {@code checkpointName}. If that checkpoint
+   * already exists the range is resumed from it, with the cutoff it was started with.
+   */
+  public long expireRange(final String checkpointName, final OffsetDateTime cutoff,
+      final long afterId, final long toId) {
+    final JobCheckpoint checkpoint = jobCheckpointRepository.findById(checkpointName)
+        .orElseGet(() -> jobCheckpointRepository.save(JobCheckpoint.builder()
+            .jobName(checkpointName)
+            .cutoff(cutoff)
+            .lastProcessedId(afterId)
+            .toId(toId)
+            .build()));
+    if (checkpoint.getLastProcessedId() > afterId) {
+      log.info("Resuming {} after id {} with cutoff {}", checkpointName,
+          checkpoint.getLastProcessedId(), checkpoint.getCutoff());
+    }
+    long expired = 0;
+    long from = checkpoint.getLastProcessedId();
+    while (true) {
+      final long chunkFrom = from;
+      final Chunk chunk = transactionTemplate.execute(
+          status -> expireChunk(checkpointName, checkpoint.getCutoff(), chunkFrom, toId));
+      if (chunk.lastId() == null) {
+        break;
+      }
+      expired += chunk.expired();
+      from = chunk.lastId();
+    }
+    jobCheckpointRepository.deleteById(checkpointName);
+    return expired;
+  }
+
+  /**
+   * Expires those of the given reservations that are still active, in one transaction, and
+   * returns how many were expired.
+   */
+  public int expire(final Collection<Long> reservationIds) {
+    return transactionTemplate.execute(status -> {
+      final List<Long> active = reservationRepository.lockActive(reservationIds);
+      if (active.isEmpty()) {
+        return 0;
+      }
+      return expireAndRelease(active);
+    });
+  }
+
+  private Chunk expireChunk(final String checkpointName, final OffsetDateTime cutoff,
+      final long afterId, final long toId) {
+    final List<Long> ids = reservationRepository.findExpirableIds(cutoff, afterId, toId,
+        Limit.of(properties.getChunkSize()));
+    if (ids.isEmpty()) {
+      return new Chunk(0, null);
+    }
+    final int expired = expireAndRelease(ids);
+    final Long lastId = ids.getLast();
+    jobCheckpointRepository.findById(checkpointName).ifPresent(checkpoint -> {
+      checkpoint.setLastProcessedId(lastId);
+      jobCheckpointRepository.save(checkpoint);
+    });
+    log.debug("Expired {} reservation(s) up to id {}", expired, lastId);
+    return new Chunk(expired, lastId);
+  }
+
+  private int expireAndRelease(final List<Long> reservationIds) {
+    final int expired = reservationRepository.expire(reservationIds, OffsetDateTime.now());
+    bookInventory.releaseReservations(reservationIds);
+    eventPublisher.publishEvent(new ReservationsChangedEvent(reservationIds,
+        reservationRepository.findUserIdsOfReservations(reservationIds)));
+    return expired;
+  }
+
+  private record Chunk(int expired, Long lastId) {
+
+  }
+
+}
@@ -0,0 +1,205 @@
+package planettask.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import planettask.config.AsyncReservationProperties;
+import planettask.model.ReservationDTO;
+import planettask.model.ReservationTicketDTO;
+import planettask.model.TicketStatus;
+
+
+/**
+ * Accepts reservation requests without holding a request thread or a database connection for
+ * them.
+ * <p>
+ * Requests are validated, put on a bounded queue and answered with a ticket straight away.
+ * Virtual-thread workers drain the queue in batches and run each reservation through the same
+ * retry (and, when enabled, group-commit) path as the synchronous endpoint; the outcome is kept
+ * on the ticket until {@code ticketTtl} after it finished. A full queue is reported as
+ * {@code 429 Too Many Requests} rather than buffered further, and a request arriving while the
+ * intake is stopped as {@code 503 Service Unavailable}.
+ * <p>
+ * Tickets are kept in the memory of the node that issued them and are lost when it stops: a
+ * ticket can only be polled on that node, so several nodes behind a load balancer need sticky
+ * routing for the ticket URL.
+ */
+@Component
+@Slf4j
+public class ReservationIntake implements SmartLifecycle {
+
+  private final ReservationService reservationService;
+  private final InventoryRetryExecutor inventoryRetryExecutor;
+  private final ReservationBatcher reservationBatcher;
+  private final AsyncReservationProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final BlockingQueue<QueuedReservation> queue;
+  private final Map<String, ReservationTicketDTO> tickets = new ConcurrentHashMap<>();
+  private ExecutorService workers;
+  private volatile boolean running;
+
+  public ReservationIntake(final ReservationService reservationService,
+      final InventoryRetryExecutor inventoryRetryExecutor,
+      final ObjectProvider<ReservationBatcher> reservationBatcher,
+      final AsyncReservationProperties properties, final MeterRegistry meterRegistry) {
+    this.reservationService = reservationService;
+    this.inventoryRetryExecutor = inventoryRetryExecutor;
+    this.reservationBatcher = reservationBatcher.getIfAvailable();
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+    meterRegistry.gauge("reservation.intake.queue.depth", queue, BlockingQueue::size);
+  }
+
+  /**
+   * Queues a reservation and returns its ticket.
+   *
+   * @throws ResponseStatusException {@code 400} for a request that can never succeed,
+   *     {@code 429} when the queue is full, or {@code 503} while the intake is stopped
+   */
+  public ReservationTicketDTO submit(final Long userId, final Set<Long> bookIds) {
+    if (bookIds.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one book is required");
+    }
+    if (bookIds.size() > ReservationService.MAX_BOOKS_IN_RESERVATIONS) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Limit of books in reservation is " + ReservationService.MAX_BOOKS_IN_RESERVATIONS);
+    }
+    if (!running) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+          "Reservation intake is not running, please retry later");
+    }
+    final ReservationTicketDTO ticket = new ReservationTicketDTO(UUID.randomUUID().toString(),
+        TicketStatus.QUEUED, Instant.now(), null, null, null);
+    tickets.put(ticket.getTicketId(), ticket);
+    if (!queue.offer(new QueuedReservation(ticket.getTicketId(), userId, Set.copyOf(bookIds)))) {
+      tickets.remove(ticket.getTicketId());
+      meterRegistry.counter("reservation.intake.rejected").increment();
+      throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+          "Reservation queue is full, please retry later");
+    }
+    return ticket;
+  }
+
+  /**
+   * The ticket, if this node issued it and it has not been purged.
+   */
+  public Optional<ReservationTicketDTO> getTicket(final String ticketId) {
+    return Optional.ofNullable(tickets.get(ticketId));
+  }
+
+  private void drain() {
+    final List<QueuedReservation> batch = new ArrayList<>(properties.getBatchSize());
+    while (running) {
+      try {
+        final QueuedReservation first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, properties.getBatchSize() - 1);
+        batch.forEach(this::process);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void process(final QueuedReservation request) {
+    tickets.computeIfPresent(request.ticketId(),
+        (id, ticket) -> ticket.withStatus(TicketStatus.PROCESSING));
+    ReservationTicketDTO outcome;
+    try {
+      final ReservationDTO reservation = inventoryRetryExecutor.execute("reserve",
+          () -> reservationBatcher != null
+              ? reservationBatcher.reserve(request.userId(), request.bookIds())
+              : reservationService.reserveBooks(request.userId(), request.bookIds()));
+      outcome = tickets.get(request.ticketId()).withStatus(TicketStatus.COMPLETED)
+          .withReservation(reservation);
+    } catch (Exception ex) {
+      log.debug("Queued reservation {} failed", request.ticketId(), ex);
+      outcome = tickets.get(request.ticketId()).withStatus(TicketStatus.FAILED)
+          .withError(ex.getMessage());
+    }
+    tickets.put(request.ticketId(), outcome.withCompletedAt(Instant.now()));
+    meterRegistry.counter("reservation.intake.processed", "outcome",
+        outcome.getStatus().name().toLowerCase()).increment();
+  }
+
+  @Scheduled(fixedDelayString = "${planet.reservation.async.purge-interval:60s}")
+  public void purgeFinishedTickets() {
+    final Instant cutoff = Instant.now().minus(properties.getTicketTtl());
+    tickets.values().removeIf(ticket -> ticket.getCompletedAt() != null
+        && ticket.getCompletedAt().isBefore(cutoff));
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    workers = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("reservation-intake-", 0).factory());
+    for (int i = 0; i < properties.getWorkers(); i++) {
+      workers.submit(this::drain);
+    }
+  }
+
+  /**
+   * Stops taking new work and lets the workers finish their current batch; requests still queued
+   * are failed so that their tickets do not stay {@code QUEUED} forever.
+   */
+  @Override
+  public void stop() {
+    running = false;
+    workers.shutdown();
+    try {
+      workers.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    final List<QueuedReservation> abandoned = new ArrayList<>();
+    queue.drainTo(abandoned);
+    abandoned.forEach(request -> tickets.computeIfPresent(request.ticketId(),
+        (id, ticket) -> ticket.withStatus(TicketStatus.FAILED).withCompletedAt(Instant.now())
+            .withError("Service is shutting down, please resubmit")));
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Stops once the web server has stopped taking requests, so that no request is queued after
+   * the queue was drained, and before the {@link ReservationBatcher} its workers feed.
+   */
+  @Override
+  public int getPhase() {
+    return SmartLifecycle.DEFAULT_PHASE - 2560;
+  }
+
+  private record QueuedReservation(String ticketId, Long userId, Set<Long> bookIds) {
+
+  }
+
+}
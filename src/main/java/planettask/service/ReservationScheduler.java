@@ -1,48 +1,130 @@
 package planettask.service;
 
+import jakarta.transaction.Transactional;
 import java.time.OffsetDateTime;
-import java.util.Set;
+import java.util.Date;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
-import planettask.domain.Book;
-import planettask.domain.Reservation;
-import planettask.model.ReservationStatus;
-import planettask.repos.BookRepository;
+import planettask.config.ReservationExpiryProperties;
+import planettask.domain.JobCheckpoint;
+import planettask.repos.JobCheckpointRepository;
 import planettask.repos.ReservationRepository;
+import planettask.repos.ReservationRepository.IdRange;
 
+/**
+ * Nightly expiry of old reservations, replaced by the {@link ContinuousExpiryEngine} when that is
+ * enabled.
+ * <p>
+ * Runs as a clustered Quartz job (see {@code QuartzConfig}), so exactly one node plans each run:
+ * it splits the ids of the reservations to expire into {@code partitions} ranges, records a
+ * checkpoint per range and schedules one {@link ReservationExpiryPartitionJob} per range. The
+ * partition jobs are picked up by whichever nodes are free, and a partition whose node dies is
+ * recovered by another one from its checkpoint. A partition whose job failed is rescheduled by
+ * the next run, which leaves planning a new run to the night after.
+ */
 @Component
+@ConditionalOnProperty(prefix = "planet.reservation.expiry.continuous", name = "enabled",
+    havingValue = "false", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class ReservationScheduler {
 
   public static final int DAYS_TO_EXPIRE = 7;
-  ReservationRepository reservationRepository;
-  BookRepository bookRepository;
+  public static final String JOB_GROUP = "reservation-expiry";
+  public static final String PARTITION_PREFIX = "reservation-expiry-partition-";
+  private final ReservationRepository reservationRepository;
+  private final JobCheckpointRepository jobCheckpointRepository;
+  private final Scheduler scheduler;
+  private final ReservationExpiryProperties properties;
 
-  @Scheduled(cron = "0 0 0 * * ?") // Runs every day at midnight
-  public final void expireOldReservations() {
+  @Transactional(rollbackOn = Exception.class)
+  public void expireOldReservations() throws SchedulerException {
     OffsetDateTime sevenDaysAgo = OffsetDateTime.now().minusDays(DAYS_TO_EXPIRE).withHour(0)
         .withMinute(0);
     log.info("Looking for reservations older than {} ", sevenDaysAgo);
 
-    Set<Reservation> oldReservations = reservationRepository.findByStatusAndDateCreatedBefore(
-        ReservationStatus.ACTIVE, sevenDaysAgo);
-    if (oldReservations.isEmpty()) {
+    List<JobCheckpoint> unfinished =
+        jobCheckpointRepository.findByJobNameStartingWith(PARTITION_PREFIX);
+    if (!unfinished.isEmpty()) {
+      int rescheduled = rescheduleFailedPartitions(unfinished);
+      log.warn("Previous expiry run has {} unfinished partition(s), {} of them rescheduled; "
+          + "not starting another one.", unfinished.size(), rescheduled);
+      return;
+    }
+    IdRange range = reservationRepository.findExpirableIdRange(sevenDaysAgo);
+    if (range == null || range.getMinId() == null) {
       log.info("No old reservations to expire.");
       return;
     }
 
-    for (Reservation reservation : oldReservations) {
-      reservation.setStatus(ReservationStatus.EXPIRED);
+    long first = range.getMinId() - 1;
+    long span = range.getMaxId() - first;
+    int partitions = (int) Math.max(1, Math.min(properties.getPartitions(), span));
+    for (int partition = 0; partition < partitions; partition++) {
+      long afterId = first + span * partition / partitions;
+      long toId = first + span * (partition + 1) / partitions;
+      String name = PARTITION_PREFIX + partition;
+      jobCheckpointRepository.save(JobCheckpoint.builder()
+          .jobName(name)
+          .cutoff(sevenDaysAgo)
+          .lastProcessedId(afterId)
+          .toId(toId)
+          .build());
+      scheduler.scheduleJob(partitionJob(name, afterId, toId), partitionTrigger(name));
+    }
+    log.info("Scheduled expiry of reservation ids {} to {} in {} partition(s).",
+        range.getMinId(), range.getMaxId(), partitions);
+  }
 
-      Set<Book> books = reservation.getBooks();
-      books.forEach(book -> book.setAvailableCopies(book.getAvailableCopies() + 1));
-      bookRepository.saveAll(books);
+  /**
+   * A partition job that throws is completed by Quartz and, not being durable, deleted, while
+   * its checkpoint stays behind. Such partitions are scheduled again to resume from their
+   * checkpoint; those whose job still exists are running or waiting to be recovered.
+   */
+  private int rescheduleFailedPartitions(List<JobCheckpoint> unfinished)
+      throws SchedulerException {
+    int rescheduled = 0;
+    for (JobCheckpoint checkpoint : unfinished) {
+      String name = checkpoint.getJobName();
+      if (checkpoint.getToId() == null || scheduler.checkExists(JobKey.jobKey(name, JOB_GROUP))) {
+        continue;
+      }
+      log.warn("Rescheduling expiry partition {} after id {}", name,
+          checkpoint.getLastProcessedId());
+      scheduler.scheduleJob(partitionJob(name, checkpoint.getLastProcessedId(),
+          checkpoint.getToId()), partitionTrigger(name));
+      rescheduled++;
     }
-    reservationRepository.saveAll(oldReservations);
-    log.info("Expired {} reservation(s).", oldReservations.size());
+    return rescheduled;
+  }
+
+  private JobDetail partitionJob(String name, long afterId, long toId) {
+    return JobBuilder.newJob(ReservationExpiryPartitionJob.class)
+        .withIdentity(name, JOB_GROUP)
+        .usingJobData(ReservationExpiryPartitionJob.AFTER_ID, afterId)
+        .usingJobData(ReservationExpiryPartitionJob.TO_ID, toId)
+        .requestRecovery()
+        .build();
+  }
+
+  private Trigger partitionTrigger(String name) {
+    return TriggerBuilder.newTrigger()
+        .withIdentity(name, JOB_GROUP)
+        .startAt(new Date())
+        .withSchedule(SimpleScheduleBuilder.simpleSchedule()
+            .withMisfireHandlingInstructionFireNow())
+        .build();
   }
 
 }
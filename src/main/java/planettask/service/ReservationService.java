@@ -1,28 +1,40 @@
 package planettask.service;
 
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import jakarta.transaction.Transactional.TxType;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import planettask.cache.CacheNames;
+import planettask.cache.PageCache;
 import planettask.domain.Book;
 import planettask.domain.Reservation;
 import planettask.domain.User;
 import planettask.model.BookDTO;
+import planettask.model.CursorSliceDTO;
 import planettask.model.ReservationDTO;
 import planettask.model.ReservationStatus;
 import planettask.model.UserDTO;
 import planettask.repos.BookRepository;
 import planettask.repos.ReservationRepository;
+import planettask.repos.ReservationRepository.ReservationBookRow;
 import planettask.repos.UserRepository;
+import planettask.repos.WaitlistEntryRepository;
 import planettask.util.NotFoundException;
 
 
@@ -33,31 +45,43 @@ import planettask.util.NotFoundException;
 public class ReservationService {
 
   public static final int MAX_BOOKS_IN_RESERVATIONS = 3;
+  private static final KeysetScroller<Reservation> SCROLLER = new KeysetScroller<>(
+      Reservation.class, "reservationId", Map.of("reservationId", Long.class,
+          "dateCreated", OffsetDateTime.class, "status", ReservationStatus.class));
   private final ReservationRepository reservationRepository;
   private final UserRepository userRepository;
   private final BookRepository bookRepository;
-  private final ModelMapper modelMapper;
+  private final BookInventory bookInventory;
+  private final WaitlistEntryRepository waitlistEntryRepository;
+  private final DtoMapper dtoMapper;
+  private final ApplicationEventPublisher eventPublisher;
+  private final PageCache pageCache;
+  private final EntityManager entityManager;
 
-  @Cacheable(value = "reservation", key = "{#pageable.pageNumber, #pageable.pageSize, #pageable.sort}")
   public List<ReservationDTO> findAll(final Pageable pageable) {
-    final Page<Reservation> reservations = this.reservationRepository.findAll(pageable);
-    return reservations.stream()
-        .map(reservation -> modelMapper.map(reservation, ReservationDTO.class)).toList();
+    return withCurrentCopies(pageCache.get(CacheNames.RESERVATION_PAGE, CacheNames.RESERVATION,
+        pageable, ReservationDTO::getReservationId,
+        () -> load(reservationRepository.findIdsBy(pageable).getContent()),
+        this::load));
   }
 
-  @Cacheable(value = "reservation", key = "#reservationId")
-  public ReservationDTO get(final Long reservationId) {
-    Reservation reservation = reservationRepository.findById(reservationId)
-        .orElseThrow(() -> new NotFoundException("Reservation not found"));
-
-    ReservationDTO reservationDTO = modelMapper.map(reservation, ReservationDTO.class);
-    reservationDTO.setUser(modelMapper.map(reservation.getUser(), UserDTO.class));
+  /**
+   * Keyset-paginated listing; see {@link KeysetScroller}.
+   */
+  public CursorSliceDTO<ReservationDTO> scroll(final String sortProperty,
+      final Sort.Direction direction, final int size, final String cursor) {
+    final KeysetScroller.Window window = SCROLLER.scroll(entityManager, sortProperty, direction,
+        size, cursor);
+    return new CursorSliceDTO<>(withCurrentCopies(pageCache.getAll(CacheNames.RESERVATION,
+        window.ids(), ReservationDTO::getReservationId, this::load)), window.hasNext(),
+        window.nextCursor());
+  }
 
-    Set<BookDTO> bookDTOs = reservation.getBooks().stream()
-        .map(book -> modelMapper.map(book, BookDTO.class))
-        .collect(Collectors.toSet());
-    reservationDTO.setBooks(bookDTOs);
-    return reservationDTO;
+  public ReservationDTO get(final Long reservationId) {
+    final ReservationDTO reservation = pageCache.get(CacheNames.RESERVATION, reservationId,
+        () -> load(List.of(reservationId)).stream().findFirst()
+            .orElseThrow(() -> new NotFoundException("Reservation not found")));
+    return withCurrentCopies(List.of(reservation)).getFirst();
   }
 
   public Long create(final ReservationDTO reservationDTO) {
@@ -65,11 +89,13 @@ public class ReservationService {
       throw new IllegalArgumentException("ReservationDTO cannot be null");
     }
 
-    Reservation reservation = modelMapper.map(reservationDTO, Reservation.class);
-    return reservationRepository.save(reservation).getReservationId();
+    Reservation reservation = reservationRepository.save(dtoMapper.toEntity(reservationDTO));
+    eventPublisher.publishEvent(
+        new ReservationCreatedEvent(reservation.getReservationId(), reservation.getDateCreated()));
+    publishChanged(reservation);
+    return reservation.getReservationId();
   }
 
-  @CachePut(value = "reservation", key = "#reservationId")
   public ReservationDTO cancelReservation(Long reservationId) {
     Reservation reservation = reservationRepository.findById(reservationId)
         .orElseThrow(() -> new NotFoundException("Reservation not found"));
@@ -78,17 +104,45 @@ public class ReservationService {
       throw new UnsupportedOperationException("Only active reservations can be canceled");
     }
 
+    // Checked again by the update itself: a concurrent cancel or expiry that got there first
+    // has already given the copies back
+    if (reservationRepository.cancel(reservationId, OffsetDateTime.now()) == 0) {
+      throw new UnsupportedOperationException("Only active reservations can be canceled");
+    }
     reservation.setStatus(ReservationStatus.CANCELED);
-    Reservation updatedReservation = reservationRepository.save(reservation);
+    publishChanged(reservation);
 
-    Set<Book> books = updatedReservation.getBooks();
-    books.forEach(book -> book.setAvailableCopies(book.getAvailableCopies() + 1));
-    bookRepository.saveAll(books);
+    bookInventory.release(reservation.getBooks().stream().map(Book::getBookId).toList());
 
-    return modelMapper.map(updatedReservation, ReservationDTO.class);
+    return dtoMapper.toDTO(reservation);
   }
 
+  @Transactional(rollbackOn = Exception.class)
   public ReservationDTO reserveBooks(Long userId, Set<Long> bookIds) throws Exception {
+    return reserve(userId, bookIds, false);
+  }
+
+  /**
+   * Variant of {@link #reserveBooks} for handing a copy to a waitlisted user, the one way to take
+   * a copy of a book while it has waiters.
+   */
+  @Transactional(rollbackOn = Exception.class)
+  public ReservationDTO reserveForWaiter(Long userId, Long bookId) throws Exception {
+    return reserve(userId, Set.of(bookId), true);
+  }
+
+  /**
+   * Variant of {@link #reserveBooks} for callers that run several reservations in one transaction
+   * and undo a failed one themselves, so a failure here does not doom the whole transaction.
+   */
+  @Transactional(value = TxType.MANDATORY, dontRollbackOn = Exception.class)
+  public ReservationDTO reserveBooksInCurrentTransaction(Long userId, Set<Long> bookIds)
+      throws Exception {
+    return reserve(userId, bookIds, false);
+  }
+
+  private ReservationDTO reserve(Long userId, Set<Long> bookIds, boolean forWaiter)
+      throws Exception {
 
     if (bookIds.size() > MAX_BOOKS_IN_RESERVATIONS) {
       throw new Exception("Limit of books in reservation is " + MAX_BOOKS_IN_RESERVATIONS);
@@ -97,21 +151,37 @@ public class ReservationService {
     User user = userRepository.findById(userId)
         .orElseThrow(() -> new NotFoundException("User not found"));
 
-    Set<Book> books = new HashSet<>(3);
-    for (Long bookId : bookIds) {
-      Book book = bookRepository.findById(bookId)
-          .orElseThrow(() -> new NotFoundException("Book not found with id " + bookId));
+    Set<Book> books = new HashSet<>(bookRepository.findAllById(bookIds));
+    if (books.size() != bookIds.size()) {
+      Set<Long> foundIds = books.stream().map(Book::getBookId).collect(Collectors.toSet());
+      Long missingId = bookIds.stream().filter(id -> !foundIds.contains(id)).findFirst()
+          .orElse(null);
+      throw new NotFoundException("Book not found with id " + missingId);
+    }
 
-      if (book.getAvailableCopies() <= 0) {
+    Map<Long, Integer> availableCopies = new HashMap<>(books.size());
+    for (Book book : books) {
+      int copies = bookInventory.availableCopies(book);
+      if (copies <= 0) {
         throw new Exception("Book '" + book.getTitle() + "' is not available for reservation");
       }
-      books.add(book);
+      availableCopies.put(book.getBookId(), copies);
+    }
+    if (!forWaiter) {
+      // Copies returned while users are waiting are theirs, handed out in the order they joined
+      Set<Long> waitlisted = waitlistEntryRepository.findBookIdsWithWaiters(bookIds);
+      for (Book book : books) {
+        if (waitlisted.contains(book.getBookId())) {
+          throw new Exception("Book '" + book.getTitle() + "' is held for its waitlist");
+        }
+      }
     }
 
-    for (Book book : books) {
-      book.setAvailableCopies(book.getAvailableCopies() - 1);
+    // The snapshot above may already be stale; the conditional update is what guarantees that
+    // copies are never oversold, and a shortfall rolls back the copies taken by this call.
+    if (!bookInventory.take(bookIds)) {
+      throw new Exception("One or more books are no longer available for reservation");
     }
-    bookRepository.saveAll(books);
 
     Reservation reservation = Reservation.builder()
         .user(user)
@@ -119,24 +189,114 @@ public class ReservationService {
         .status(ReservationStatus.ACTIVE)
         .build();
     reservation = reservationRepository.save(reservation);
+    eventPublisher.publishEvent(
+        new ReservationCreatedEvent(reservation.getReservationId(), reservation.getDateCreated()));
+    publishChanged(reservation);
 
-    ReservationDTO reservationDTO = modelMapper.map(reservation, ReservationDTO.class);
-    Set<BookDTO> bookDTOs = books.stream()
-        .map(book -> modelMapper.map(book, BookDTO.class))
-        .collect(Collectors.toSet());
-    UserDTO userDTO = modelMapper.map(user, UserDTO.class);
-    reservationDTO.setUser(userDTO);
-    reservationDTO.setBooks(bookDTOs);
+    ReservationDTO reservationDTO = dtoMapper.toDTO(reservation);
+    // The copies seen above, less the one this reservation took
+    reservationDTO.getBooks().forEach(bookDTO ->
+        bookDTO.setAvailableCopies(availableCopies.get(bookDTO.getId()) - 1));
 
     return reservationDTO;
   }
 
 
-  @Cacheable(value = "reservationsByUser", key = "#userId")
   public Set<ReservationDTO> getReservationsByUserId(Long userId) {
-    Set<Reservation> reservations = reservationRepository.findByUserId(userId);
-    return reservations.stream()
-        .map(reservation -> modelMapper.map(reservation, ReservationDTO.class))
-        .collect(Collectors.toSet());
+    final Set<ReservationDTO> reservations = pageCache.get(CacheNames.RESERVATIONS_BY_USER,
+        userId, () -> new LinkedHashSet<>(
+            toDTOs(reservationRepository.findRowsByUserId(userId)).values()));
+    return new LinkedHashSet<>(withCurrentCopies(reservations));
+  }
+
+  /**
+   * The given reservations, in that order, leaving out those that do not exist.
+   */
+  private List<ReservationDTO> load(final Collection<Long> reservationIds) {
+    if (reservationIds.isEmpty()) {
+      return List.of();
+    }
+    final Map<Long, ReservationDTO> reservations = toDTOs(
+        reservationRepository.findRowsByIdIn(reservationIds));
+    return reservationIds.stream().map(reservations::get).filter(Objects::nonNull).toList();
+  }
+
+  /**
+   * Copies of the given reservations, in that order, whose books show their current copies.
+   * <p>
+   * Every reservation of a book changes its copies, and evicting each cached reservation that
+   * holds the book would not scale, so cached reservations keep the copies of when they were
+   * loaded and every read takes the current ones from the {@code book} entries, which each change
+   * of copies evicts.
+   */
+  private List<ReservationDTO> withCurrentCopies(final Collection<ReservationDTO> reservations) {
+    final List<Long> bookIds = reservations.stream()
+        .flatMap(reservation -> reservation.getBooks().stream())
+        .map(BookDTO::getId)
+        .distinct()
+        .toList();
+    final Map<Long, Integer> copies = new HashMap<>(bookIds.size());
+    pageCache.getAll(CacheNames.BOOK, bookIds, BookDTO::getId, this::loadBooks)
+        .forEach(book -> copies.put(book.getId(), book.getAvailableCopies()));
+    return reservations.stream().map(reservation -> withCopies(reservation, copies)).toList();
+  }
+
+  private static ReservationDTO withCopies(final ReservationDTO cached,
+      final Map<Long, Integer> copies) {
+    final ReservationDTO reservation = new ReservationDTO();
+    reservation.setReservationId(cached.getReservationId());
+    reservation.setStatus(cached.getStatus());
+    reservation.setUser(cached.getUser());
+    reservation.setBooks(new LinkedHashSet<>(cached.getBooks().size()));
+    for (BookDTO book : cached.getBooks()) {
+      reservation.getBooks().add(new BookDTO(book.getId(), book.getTitle(), book.getIsbn(),
+          book.getAuthor(), book.getTotalCopies(),
+          copies.getOrDefault(book.getId(), book.getAvailableCopies())));
+    }
+    return reservation;
   }
+
+  /**
+   * The given books as {@code BookService} caches them in {@code book}.
+   */
+  private List<BookDTO> loadBooks(final Collection<Long> bookIds) {
+    final List<BookDTO> books = bookRepository.findDTOsByIdIn(bookIds);
+    // The ledger, when enabled, keeps the copies outside the database
+    books.forEach(book -> book.setAvailableCopies(
+        bookInventory.availableCopies(book.getId(), book.getAvailableCopies())));
+    return books;
+  }
+
+  /**
+   * Folds one row per book into reservations, keyed by id in the order of their first row. This
+   * is the form cached in {@code reservation}, which both {@link #get} and the pages of
+   * {@link #findAll} read from; the copies are those of when the rows were read.
+   */
+  private Map<Long, ReservationDTO> toDTOs(final List<ReservationBookRow> rows) {
+    final Map<Long, ReservationDTO> reservations = new LinkedHashMap<>();
+    for (ReservationBookRow row : rows) {
+      final ReservationDTO reservation = reservations.computeIfAbsent(row.getReservationId(),
+          id -> {
+            final ReservationDTO reservationDTO = new ReservationDTO();
+            reservationDTO.setReservationId(id);
+            reservationDTO.setStatus(row.getStatus());
+            reservationDTO.setUser(new UserDTO(row.getUserId(), row.getUsername(),
+                row.getEmail()));
+            reservationDTO.setBooks(new LinkedHashSet<>());
+            return reservationDTO;
+          });
+      if (row.getBookId() != null) {
+        reservation.getBooks().add(new BookDTO(row.getBookId(), row.getTitle(), row.getIsbn(),
+            row.getAuthor(), row.getTotalCopies(), row.getAvailableCopies()));
+      }
+    }
+    return reservations;
+  }
+
+  private void publishChanged(final Reservation reservation) {
+    eventPublisher.publishEvent(new ReservationsChangedEvent(
+        List.of(reservation.getReservationId()),
+        reservation.getUser() != null ? List.of(reservation.getUser().getUserId()) : List.of()));
+  }
+
 }
@@ -0,0 +1,11 @@
+package planettask.service;
+
+import java.util.Collection;
+
+
+/**
+ * Published when reservations are created or change status, with the users they belong to.
+ */
+public record ReservationsChangedEvent(Collection<Long> reservationIds, Collection<Long> userIds) {
+
+}
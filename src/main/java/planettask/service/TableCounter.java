@@ -0,0 +1,140 @@
+package planettask.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import planettask.cache.CacheNames;
+import planettask.config.PaginationProperties;
+
+
+/**
+ * Row totals of the listed tables, computed with the configured {@link Strategy}.
+ * <p>
+ * Page queries themselves never count; the total is read separately and reported in response
+ * headers, so a strategy that skips or approximates it keeps {@code count(*)} off the listing
+ * path entirely.
+ */
+@Component
+@Slf4j
+public class TableCounter {
+
+  public static final String COUNT_HEADER = "X-Total-Count";
+  public static final String STRATEGY_HEADER = "X-Total-Count-Strategy";
+
+  private static final String POSTGRES = "PostgreSQL";
+  private static final String ESTIMATE_SQL =
+      "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)";
+
+  public enum Strategy {
+    /** {@code count(*)}, cached per table until a row is inserted. */
+    EXACT,
+    /** The planner's estimate from Postgres statistics; exact where there is none. */
+    ESTIMATED,
+    /** No total at all. */
+    NONE
+  }
+
+  public enum Table {
+    BOOKS("books"), USERS("users"), RESERVATIONS("reservation");
+
+    private final String tableName;
+
+    Table(final String tableName) {
+      this.tableName = tableName;
+    }
+  }
+
+  public record Total(Strategy strategy, Long count) {
+
+    public HttpHeaders toHeaders() {
+      final HttpHeaders headers = new HttpHeaders();
+      headers.set(STRATEGY_HEADER, strategy.name().toLowerCase());
+      if (count != null) {
+        headers.set(COUNT_HEADER, count.toString());
+      }
+      return headers;
+    }
+
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final CacheManager cacheManager;
+  private final PaginationProperties properties;
+  private final boolean estimatesSupported;
+
+  public TableCounter(final JdbcTemplate jdbcTemplate, final CacheManager cacheManager,
+      final PaginationProperties properties) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.cacheManager = cacheManager;
+    this.properties = properties;
+    this.estimatesSupported = supportsEstimates(jdbcTemplate);
+  }
+
+  public Total count(final Table table) {
+    return switch (properties.getCountStrategy()) {
+      case NONE -> new Total(Strategy.NONE, null);
+      case ESTIMATED -> {
+        final Long estimate = estimate(table);
+        yield estimate != null ? new Total(Strategy.ESTIMATED, estimate) : exact(table);
+      }
+      case EXACT -> exact(table);
+    };
+  }
+
+  private Total exact(final Table table) {
+    final Cache cache = cacheManager.getCache(CacheNames.TABLE_COUNT);
+    final Long count = cache != null
+        ? cache.get(table.name(), () -> countRows(table))
+        : countRows(table);
+    return new Total(Strategy.EXACT, count);
+  }
+
+  private Long countRows(final Table table) {
+    return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table.tableName, Long.class);
+  }
+
+  /**
+   * Returns {@code null} for a table that has never been analyzed, which Postgres reports as a
+   * negative {@code reltuples}, on databases other than Postgres, and when the estimate cannot
+   * be read this time.
+   */
+  private Long estimate(final Table table) {
+    if (!estimatesSupported) {
+      return null;
+    }
+    try {
+      final Long estimate = jdbcTemplate.queryForObject(ESTIMATE_SQL, Long.class,
+          table.tableName);
+      return estimate != null && estimate >= 0 ? estimate : null;
+    } catch (DataAccessException ex) {
+      log.warn("Could not read the row estimate of {}, counting rows instead: {}",
+          table.tableName, ex.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Estimates come from {@code pg_class}, so only Postgres has them. Decided once, from the
+   * database connected to at startup.
+   */
+  private static boolean supportsEstimates(final JdbcTemplate jdbcTemplate) {
+    try {
+      final String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+          connection.getMetaData().getDatabaseProductName());
+      if (POSTGRES.equalsIgnoreCase(product)) {
+        return true;
+      }
+      log.info("Row estimates are not available on {}, counting rows instead", product);
+      return false;
+    } catch (DataAccessException ex) {
+      log.warn("Could not determine the database, counting rows instead: {}", ex.getMessage());
+      return false;
+    }
+  }
+
+}
@@ -0,0 +1,9 @@
+package planettask.service;
+
+
+/**
+ * Published when a user is created.
+ */
+public record UserCreatedEvent(Long userId) {
+
+}
@@ -1,51 +1,97 @@
 package planettask.service;
 
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import java.util.Collection;
 import java.util.List;
-import org.modelmapper.ModelMapper;
+import java.util.Map;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import planettask.cache.CacheNames;
+import planettask.cache.NegativeCache;
+import planettask.cache.PageCache;
 import planettask.domain.User;
+import planettask.model.CursorSliceDTO;
 import planettask.model.UserDTO;
 import planettask.repos.UserRepository;
-import planettask.util.NotFoundException;
 
 
 @Service
 @Transactional
 public class UserService {
 
+  private static final KeysetScroller<User> SCROLLER = new KeysetScroller<>(User.class,
+      "userId", Map.of("userId", Long.class, "username", String.class, "email", String.class));
+
   private final UserRepository userRepository;
-  private final ModelMapper modelMapper;
+  private final DtoMapper dtoMapper;
+  private final NegativeCache negativeCache;
+  private final ApplicationEventPublisher eventPublisher;
+  private final CacheManager cacheManager;
+  private final PageCache pageCache;
+  private final EntityManager entityManager;
 
-  public UserService(final UserRepository userRepository, ModelMapper modelMapper) {
+  public UserService(final UserRepository userRepository, final DtoMapper dtoMapper,
+      final NegativeCache negativeCache, final ApplicationEventPublisher eventPublisher,
+      final CacheManager cacheManager, final PageCache pageCache,
+      final EntityManager entityManager) {
     this.userRepository = userRepository;
-    this.modelMapper = modelMapper;
+    this.dtoMapper = dtoMapper;
+    this.negativeCache = negativeCache;
+    this.eventPublisher = eventPublisher;
+    this.cacheManager = cacheManager;
+    this.pageCache = pageCache;
+    this.entityManager = entityManager;
   }
 
-  @Cacheable(value = "user", key = "{#pageable.pageNumber, #pageable.pageSize, #pageable.sort}")
   public List<UserDTO> findAll(final Pageable pageable) {
-    final Page<User> users = this.userRepository.findAll(pageable);
-    return users.stream()
-        .map(user -> this.modelMapper.map(user, UserDTO.class))
-        .toList();
+    return pageCache.get(CacheNames.USER_PAGE, CacheNames.USER, pageable, UserDTO::getUserId,
+        () -> userRepository.findDTOsBy(pageable).getContent(),
+        userRepository::findDTOsByIdIn);
   }
 
 
-  @Cacheable(value = "user", key = "#userId")
+  /**
+   * Keyset-paginated listing; see {@link KeysetScroller}.
+   */
+  public CursorSliceDTO<UserDTO> scroll(final String sortProperty, final Sort.Direction direction,
+      final int size, final String cursor) {
+    final KeysetScroller.Window window = SCROLLER.scroll(entityManager, sortProperty, direction,
+        size, cursor);
+    return new CursorSliceDTO<>(pageCache.getAll(CacheNames.USER, window.ids(),
+        UserDTO::getUserId, userRepository::findDTOsByIdIn), window.hasNext(),
+        window.nextCursor());
+  }
+
+  @Cacheable(value = CacheNames.USER, key = "#userId", sync = true)
   public UserDTO get(final Long userId) {
-    return userRepository.findById(userId)
-        .map(user -> modelMapper.map(user, UserDTO.class))
-        .orElseThrow(NotFoundException::new);
+    negativeCache.checkNotMissing(CacheNames.USER_NOT_FOUND, userId);
+    return userRepository.findDTOById(userId)
+        .orElseThrow(() -> negativeCache.missing(CacheNames.USER_NOT_FOUND, userId));
   }
 
   public Long create(final UserDTO userDTO) {
     if (userRepository.existsByEmailIgnoreCase(userDTO.getEmail())) {
       throw new IllegalArgumentException("Email already exists");
     }
-    User user = modelMapper.map(userDTO, User.class);
-    return userRepository.save(user).getUserId();
+    User user = userRepository.save(dtoMapper.toEntity(userDTO));
+    eventPublisher.publishEvent(new UserCreatedEvent(user.getUserId()));
+    return user.getUserId();
   }
+
+  /**
+   * Loads the given users into the cache with one query. Returns the number of users cached.
+   */
+  public int preload(final Collection<Long> userIds) {
+    if (cacheManager.getCache(CacheNames.USER) == null || userIds.isEmpty()) {
+      return 0;
+    }
+    return pageCache.load(CacheNames.USER, userIds, UserDTO::getUserId,
+        userRepository::findDTOsByIdIn).size();
+  }
+
 }
@@ -0,0 +1,130 @@
+package planettask.service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import planettask.config.WaitlistProperties;
+import planettask.domain.WaitlistEntry;
+import planettask.repos.WaitlistEntryRepository;
+import planettask.util.NotFoundException;
+
+
+/**
+ * Hands returned copies to waitlisted users.
+ * <p>
+ * A returned copy goes back to the book's pool, but while the book has waiters only
+ * {@link WaitlistService#fulfil} may take it: direct reservations are refused, so the hand-off
+ * below cannot be overtaken and waiters are served in the order they joined.
+ * <p>
+ * Every {@link BookCopiesReleasedEvent} of a committed transaction marks its books as pending; a
+ * single background worker then serves the waiters of each pending book in FIFO order, a batch
+ * of {@code batchSize} at a time, until the book runs out of copies or of waiters. A periodic
+ * sweep marks every book with waiters as pending too, which covers copies released on other
+ * nodes or while this one was down.
+ */
+@Component
+@Slf4j
+public class WaitlistFulfilment {
+
+  private final WaitlistEntryRepository waitlistEntryRepository;
+  private final WaitlistService waitlistService;
+  private final InventoryRetryExecutor inventoryRetryExecutor;
+  private final WaitlistProperties properties;
+  private final Set<Long> pendingBooks = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean draining = new AtomicBoolean();
+  private final ExecutorService worker = Executors.newSingleThreadExecutor(
+      Thread.ofVirtual().name("waitlist-fulfilment").factory());
+
+  public WaitlistFulfilment(final WaitlistEntryRepository waitlistEntryRepository,
+      final WaitlistService waitlistService, final InventoryRetryExecutor inventoryRetryExecutor,
+      final WaitlistProperties properties) {
+    this.waitlistEntryRepository = waitlistEntryRepository;
+    this.waitlistService = waitlistService;
+    this.inventoryRetryExecutor = inventoryRetryExecutor;
+    this.properties = properties;
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCopiesReleased(final BookCopiesReleasedEvent event) {
+    pendingBooks.addAll(event.bookIds());
+    scheduleDrain();
+  }
+
+  @Scheduled(fixedDelayString = "${planet.waitlist.sweep-interval:60s}",
+      initialDelayString = "${planet.waitlist.sweep-interval:60s}")
+  public void sweep() {
+    pendingBooks.addAll(waitlistEntryRepository.findBookIdsWithWaiters());
+    scheduleDrain();
+  }
+
+  /**
+   * Serves the waiters of one book while it has copies and returns how many were served.
+   */
+  public int fulfil(final Long bookId) {
+    int fulfilled = 0;
+    while (true) {
+      final List<WaitlistEntry> waiters = waitlistEntryRepository.findWaiting(bookId,
+          PageRequest.of(0, properties.getBatchSize()));
+      if (waiters.isEmpty()) {
+        return fulfilled;
+      }
+      for (WaitlistEntry entry : waiters) {
+        try {
+          inventoryRetryExecutor.execute("waitlist", () -> waitlistService.fulfil(
+              entry.getWaitlistEntryId(), entry.getUser().getUserId(), bookId));
+          fulfilled++;
+        } catch (NotFoundException ex) {
+          log.info("Dropping waitlist entry {}: {}", entry.getWaitlistEntryId(), ex.getMessage());
+          waitlistService.discard(entry.getWaitlistEntryId());
+        } catch (IllegalStateException ex) {
+          log.debug(ex.getMessage());
+        } catch (Exception ex) {
+          // No copy left (or still contended after retries); the next release brings us back
+          log.debug("Stopped serving waitlist of book {}: {}", bookId, ex.getMessage());
+          return fulfilled;
+        }
+      }
+    }
+  }
+
+  private void scheduleDrain() {
+    if (!pendingBooks.isEmpty() && draining.compareAndSet(false, true)) {
+      worker.execute(this::drain);
+    }
+  }
+
+  private void drain() {
+    try {
+      final Iterator<Long> pending = pendingBooks.iterator();
+      while (pending.hasNext()) {
+        final Long bookId = pending.next();
+        pending.remove();
+        final int fulfilled = fulfil(bookId);
+        if (fulfilled > 0) {
+          log.info("Fulfilled {} waitlist entr(ies) for book {}", fulfilled, bookId);
+        }
+      }
+    } catch (RuntimeException ex) {
+      log.error("Waitlist fulfilment failed", ex);
+    } finally {
+      draining.set(false);
+      scheduleDrain();
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    worker.shutdownNow();
+  }
+
+}
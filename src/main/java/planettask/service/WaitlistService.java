@@ -0,0 +1,125 @@
+package planettask.service;
+
+import jakarta.transaction.Transactional;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import planettask.domain.Book;
+import planettask.domain.User;
+import planettask.domain.WaitlistEntry;
+import planettask.model.ReservationDTO;
+import planettask.model.WaitlistEntryDTO;
+import planettask.model.WaitlistStatus;
+import planettask.repos.BookRepository;
+import planettask.repos.UserRepository;
+import planettask.repos.WaitlistEntryRepository;
+import planettask.util.NotFoundException;
+
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@Transactional
+public class WaitlistService {
+
+  private final WaitlistEntryRepository waitlistEntryRepository;
+  private final UserRepository userRepository;
+  private final BookRepository bookRepository;
+  private final BookInventory bookInventory;
+  private final ReservationService reservationService;
+
+  /**
+   * Puts the user at the back of the queue for a book that has no copy left, or whose copies are
+   * held for the users already waiting.
+   */
+  public WaitlistEntryDTO join(final Long userId, final Long bookId) {
+    final User user = userRepository.findById(userId)
+        .orElseThrow(() -> new NotFoundException("User not found"));
+    final Book book = bookRepository.findById(bookId)
+        .orElseThrow(() -> new NotFoundException("Book not found with id " + bookId));
+    if (bookInventory.availableCopies(book) > 0
+        && waitlistEntryRepository.findBookIdsWithWaiters(Set.of(bookId)).isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT,
+          "Book '" + book.getTitle() + "' is available, reserve it directly");
+    }
+    if (waitlistEntryRepository.existsByUserUserIdAndBookBookIdAndStatus(userId, bookId,
+        WaitlistStatus.WAITING)) {
+      throw alreadyWaiting(book);
+    }
+    final WaitlistEntry entry;
+    try {
+      entry = waitlistEntryRepository.saveAndFlush(WaitlistEntry.builder()
+          .user(user)
+          .book(book)
+          .status(WaitlistStatus.WAITING)
+          .build());
+    } catch (DataIntegrityViolationException ex) {
+      // A concurrent join of the same user got there first
+      throw alreadyWaiting(book);
+    }
+    return toDTO(entry);
+  }
+
+  public WaitlistEntryDTO cancel(final Long waitlistEntryId) {
+    final WaitlistEntry entry = waitlistEntryRepository.findById(waitlistEntryId)
+        .orElseThrow(() -> new NotFoundException("Waitlist entry not found"));
+    if (entry.getStatus() != WaitlistStatus.WAITING) {
+      throw new UnsupportedOperationException("Only waiting entries can be canceled");
+    }
+    entry.setStatus(WaitlistStatus.CANCELED);
+    return toDTO(waitlistEntryRepository.save(entry));
+  }
+
+  public List<WaitlistEntryDTO> getByUserId(final Long userId) {
+    return waitlistEntryRepository.findByUserId(userId).stream().map(this::toDTO).toList();
+  }
+
+  /**
+   * Reserves the book for a waiting entry and marks the entry fulfilled, both or neither.
+   *
+   * @throws IllegalStateException if the entry stopped waiting in the meantime
+   */
+  @Transactional(rollbackOn = Exception.class)
+  public ReservationDTO fulfil(final Long waitlistEntryId, final Long userId, final Long bookId)
+      throws Exception {
+    final ReservationDTO reservation = reservationService.reserveForWaiter(userId, bookId);
+    if (waitlistEntryRepository.completeWaiting(waitlistEntryId, WaitlistStatus.FULFILLED,
+        reservation.getReservationId()) == 0) {
+      throw new IllegalStateException("Waitlist entry " + waitlistEntryId + " is no longer waiting");
+    }
+    return reservation;
+  }
+
+  /**
+   * Drops a waiting entry that can never be fulfilled, e.g. because its user was deleted.
+   */
+  public void discard(final Long waitlistEntryId) {
+    waitlistEntryRepository.completeWaiting(waitlistEntryId, WaitlistStatus.CANCELED, null);
+  }
+
+  private static ResponseStatusException alreadyWaiting(final Book book) {
+    return new ResponseStatusException(HttpStatus.CONFLICT,
+        "User is already waiting for book '" + book.getTitle() + "'");
+  }
+
+  private WaitlistEntryDTO toDTO(final WaitlistEntry entry) {
+    final WaitlistEntryDTO dto = new WaitlistEntryDTO();
+    dto.setWaitlistEntryId(entry.getWaitlistEntryId());
+    dto.setUserId(entry.getUser().getUserId());
+    dto.setBookId(entry.getBook().getBookId());
+    dto.setStatus(entry.getStatus());
+    dto.setReservationId(entry.getReservationId());
+    dto.setDateCreated(entry.getDateCreated());
+    if (entry.getStatus() == WaitlistStatus.WAITING) {
+      dto.setPosition(waitlistEntryRepository.countWaitersAhead(entry.getBook().getBookId(),
+          entry.getWaitlistEntryId()));
+    }
+    return dto;
+  }
+
+}
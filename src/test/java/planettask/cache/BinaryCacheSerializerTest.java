@@ -0,0 +1,129 @@
+package planettask.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import planettask.model.BookDTO;
+import planettask.model.ReservationDTO;
+import planettask.model.ReservationStatus;
+import planettask.model.UserDTO;
+
+class BinaryCacheSerializerTest {
+
+  private final BinaryCacheSerializer serializer = new BinaryCacheSerializer(1024);
+
+  @Test
+  void roundTrip_ShouldPreserveReservationWithUserAndBooks() {
+    ReservationDTO reservation = new ReservationDTO();
+    reservation.setReservationId(42L);
+    reservation.setStatus(ReservationStatus.ACTIVE);
+    reservation.setUser(user(7L));
+    reservation.setBooks(Set.of(book(1L), book(2L)));
+
+    ReservationDTO result = (ReservationDTO) serializer.deserialize(
+        serializer.serialize(reservation));
+
+    assertEquals(42L, result.getReservationId());
+    assertEquals(ReservationStatus.ACTIVE, result.getStatus());
+    assertEquals(reservation.getUser(), result.getUser());
+    assertEquals(2, result.getBooks().size());
+    BookDTO first = result.getBooks().stream().filter(book -> book.getId() == 1L).findFirst()
+        .orElseThrow();
+    assertEquals("Title 1", first.getTitle());
+    assertEquals("9780000000001", first.getIsbn());
+    assertEquals(3, first.getAvailableCopies());
+    assertEquals(5, first.getTotalCopies());
+  }
+
+  @Test
+  void roundTrip_ShouldKeepNullFieldsAndScalars() {
+    BookDTO book = new BookDTO();
+    book.setTitle("Untitled");
+
+    BookDTO result = (BookDTO) serializer.deserialize(serializer.serialize(book));
+
+    assertNull(result.getId());
+    assertEquals("Untitled", result.getTitle());
+    assertNull(result.getAvailableCopies());
+    assertEquals(-5L, serializer.deserialize(serializer.serialize(-5L)));
+    assertSame(NullValue.INSTANCE, serializer.deserialize(serializer.serialize(NullValue.INSTANCE)));
+    assertEquals(Duration.ofMinutes(3),
+        serializer.deserialize(serializer.serialize(Duration.ofMinutes(3))));
+  }
+
+  @Test
+  void serialize_ShouldEncodeSingleValues_SmallerThanJdkSerialization() {
+    JdkSerializationRedisSerializer jdk = new JdkSerializationRedisSerializer();
+    ReservationDTO reservation = new ReservationDTO();
+    reservation.setReservationId(1L);
+    reservation.setStatus(ReservationStatus.ACTIVE);
+    reservation.setUser(user(1L));
+    reservation.setBooks(Set.of(book(1L), book(2L), book(3L)));
+
+    assertTrue(serializer.serialize(book(1L)).length * 4 < jdk.serialize(book(1L)).length);
+    assertTrue(serializer.serialize(reservation).length * 4 < jdk.serialize(reservation).length);
+  }
+
+  @Test
+  void serialize_ShouldCompressLargePages_AndBeSmallerThanJdkSerialization() {
+    List<BookDTO> page = IntStream.rangeClosed(1, 100).mapToObj(id -> book((long) id)).toList();
+
+    byte[] bytes = serializer.serialize(page);
+
+    assertEquals(1, bytes[1]);
+    assertTrue(bytes.length * 4 < new JdkSerializationRedisSerializer().serialize(page).length);
+    List<?> result = assertInstanceOf(List.class, serializer.deserialize(bytes));
+    assertEquals(100, result.size());
+    assertEquals("Title 100", ((BookDTO) result.get(99)).getTitle());
+  }
+
+  @Test
+  void deserialize_ShouldMissOnOtherFormatVersion() {
+    byte[] bytes = serializer.serialize(book(1L));
+    bytes[0] = BinaryCacheSerializer.VERSION + 1;
+
+    assertNull(serializer.deserialize(bytes));
+    assertNull(serializer.deserialize(new JdkSerializationRedisSerializer().serialize(book(1L))));
+  }
+
+  @Test
+  void deserialize_ShouldRejectTruncatedValue() {
+    byte[] bytes = serializer.serialize(book(1L));
+
+    assertThrows(SerializationException.class,
+        () -> serializer.deserialize(Arrays.copyOf(bytes, bytes.length - 3)));
+  }
+
+  static BookDTO book(final Long id) {
+    BookDTO book = new BookDTO();
+    book.setId(id);
+    book.setTitle("Title " + id);
+    book.setIsbn(String.format("978%010d", id));
+    book.setAuthor("Author " + id % 10);
+    book.setAvailableCopies(3);
+    book.setTotalCopies(5);
+    return book;
+  }
+
+  static UserDTO user(final Long id) {
+    UserDTO user = new UserDTO();
+    user.setUserId(id);
+    user.setUsername("user" + id);
+    user.setEmail("user" + id + "@example.com");
+    return user;
+  }
+
+}
@@ -0,0 +1,92 @@
+package planettask.cache;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import planettask.service.BookCopiesReleasedEvent;
+import planettask.service.BookCopiesTakenEvent;
+import planettask.service.BookCreatedEvent;
+import planettask.service.ReservationCreatedEvent;
+import planettask.service.ReservationsChangedEvent;
+import planettask.service.TableCounter.Table;
+
+class CacheInvalidatorTest {
+
+  private ConcurrentMapCacheManager cacheManager;
+  private CacheInvalidator invalidator;
+
+  @BeforeEach
+  void setUp() {
+    cacheManager = new ConcurrentMapCacheManager(CacheNames.BOOK, CacheNames.BOOK_ID_BY_ISBN,
+        CacheNames.BOOK_PAGE, CacheNames.RESERVATION, CacheNames.RESERVATION_PAGE,
+        CacheNames.RESERVATIONS_BY_USER, CacheNames.BOOK_NOT_FOUND, CacheNames.ISBN_NOT_FOUND,
+        CacheNames.TABLE_COUNT);
+    invalidator = new CacheInvalidator(cacheManager);
+    cacheManager.getCache(CacheNames.BOOK).put(1L, "book 1");
+    cacheManager.getCache(CacheNames.BOOK).put(2L, "book 2");
+    cacheManager.getCache(CacheNames.BOOK_ID_BY_ISBN).put("978", 1L);
+    cacheManager.getCache(CacheNames.BOOK_PAGE).put(List.of(0, 20), "page");
+    cacheManager.getCache(CacheNames.RESERVATION).put(10L, "reservation 10");
+    cacheManager.getCache(CacheNames.RESERVATION).put(11L, "reservation 11");
+    cacheManager.getCache(CacheNames.RESERVATION_PAGE).put(List.of(0, 20), "page");
+    cacheManager.getCache(CacheNames.RESERVATIONS_BY_USER).put(5L, "reservations of 5");
+    cacheManager.getCache(CacheNames.TABLE_COUNT).put(Table.RESERVATIONS.name(), 2L);
+  }
+
+  @Test
+  void onCopiesTaken_ShouldEvictOnlyChangedBooks() {
+    invalidator.onCopiesTaken(new BookCopiesTakenEvent(List.of(1L)));
+
+    assertNull(cacheManager.getCache(CacheNames.BOOK).get(1L));
+    assertNotNull(cacheManager.getCache(CacheNames.BOOK).get(2L));
+    assertNotNull(cacheManager.getCache(CacheNames.BOOK_ID_BY_ISBN).get("978"));
+    // Pages only hold ids and assemble the changed book from its own entry
+    assertNotNull(cacheManager.getCache(CacheNames.BOOK_PAGE).get(List.of(0, 20)));
+  }
+
+  @Test
+  void onCopiesReleased_ShouldEvictOnlyChangedBooks() {
+    invalidator.onCopiesReleased(new BookCopiesReleasedEvent(List.of(2L)));
+
+    assertNotNull(cacheManager.getCache(CacheNames.BOOK).get(1L));
+    assertNull(cacheManager.getCache(CacheNames.BOOK).get(2L));
+  }
+
+  @Test
+  void onReservationsChanged_ShouldEvictReservationsAndTheirUsers() {
+    invalidator.onReservationsChanged(new ReservationsChangedEvent(List.of(10L), List.of(5L)));
+
+    assertNull(cacheManager.getCache(CacheNames.RESERVATION).get(10L));
+    assertNotNull(cacheManager.getCache(CacheNames.RESERVATION).get(11L));
+    assertNull(cacheManager.getCache(CacheNames.RESERVATIONS_BY_USER).get(5L));
+    assertNull(cacheManager.getCache(CacheNames.RESERVATION_PAGE).get(List.of(0, 20)));
+    assertNotNull(cacheManager.getCache(CacheNames.BOOK).get(1L));
+    // A status change leaves the number of rows as it is
+    assertNotNull(cacheManager.getCache(CacheNames.TABLE_COUNT).get(Table.RESERVATIONS.name()));
+  }
+
+  @Test
+  void onReservationCreated_ShouldEvictTheReservationCount() {
+    invalidator.onReservationCreated(new ReservationCreatedEvent(12L, OffsetDateTime.now()));
+
+    assertNull(cacheManager.getCache(CacheNames.TABLE_COUNT).get(Table.RESERVATIONS.name()));
+  }
+
+  @Test
+  void onBookCreated_ShouldForgetNegativeEntriesForTheNewKeys() {
+    cacheManager.getCache(CacheNames.BOOK_NOT_FOUND).put(3L, Boolean.TRUE);
+    cacheManager.getCache(CacheNames.ISBN_NOT_FOUND).put("979", Boolean.TRUE);
+
+    invalidator.onBookCreated(new BookCreatedEvent(3L, "979"));
+
+    assertNull(cacheManager.getCache(CacheNames.BOOK_NOT_FOUND).get(3L));
+    assertNull(cacheManager.getCache(CacheNames.ISBN_NOT_FOUND).get("979"));
+    assertNull(cacheManager.getCache(CacheNames.BOOK_PAGE).get(List.of(0, 20)));
+  }
+
+}
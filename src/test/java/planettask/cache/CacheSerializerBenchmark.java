@@ -0,0 +1,93 @@
+package planettask.cache;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import planettask.model.BookDTO;
+import planettask.model.ReservationDTO;
+import planettask.model.ReservationStatus;
+
+
+/**
+ * Compares Java serialization with {@link BinaryCacheSerializer} on typical cache values: a
+ * single book, a reservation and a page of books. Encoded sizes are left to
+ * {@link BinaryCacheSerializerTest}, which checks that each of these values encodes to a fraction
+ * of its Java form.
+ * <p>
+ * Not run by the build; after {@code mvn test-compile}, run {@link #main} or
+ * {@code org.openjdk.jmh.Main CacheSerializerBenchmark} on the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheSerializerBenchmark {
+
+  @Param({"jdk", "binary"})
+  private String format;
+
+  @Param({"book", "reservation", "page"})
+  private String value;
+
+  private RedisSerializer<Object> serializer;
+  private Object cached;
+  private byte[] encoded;
+
+  @Setup
+  public void setUp() {
+    serializer = "jdk".equals(format)
+        ? new JdkSerializationRedisSerializer()
+        : new BinaryCacheSerializer(1024);
+    cached = switch (value) {
+      case "book" -> BinaryCacheSerializerTest.book(1L);
+      case "reservation" -> {
+        ReservationDTO reservation = new ReservationDTO();
+        reservation.setReservationId(1L);
+        reservation.setStatus(ReservationStatus.ACTIVE);
+        reservation.setUser(BinaryCacheSerializerTest.user(1L));
+        reservation.setBooks(Set.of(BinaryCacheSerializerTest.book(1L),
+            BinaryCacheSerializerTest.book(2L), BinaryCacheSerializerTest.book(3L)));
+        yield reservation;
+      }
+      default -> IntStream.rangeClosed(1, 50)
+          .mapToObj(id -> BinaryCacheSerializerTest.book((long) id))
+          .toList();
+    };
+    encoded = serializer.serialize(cached);
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return serializer.serialize(cached);
+  }
+
+  @Benchmark
+  public Object deserialize() {
+    return serializer.deserialize(encoded);
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(CacheSerializerBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+
+}
@@ -0,0 +1,89 @@
+package planettask.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import planettask.cache.HotKeyTracker.Kind;
+import planettask.config.CacheWarmupProperties;
+import planettask.service.BookService;
+import planettask.service.UserService;
+
+class CacheWarmupTest {
+
+  @TempDir
+  private Path dir;
+
+  private CacheWarmupProperties properties;
+  private HotKeyTracker tracker;
+  private BookService bookService;
+  private UserService userService;
+
+  @BeforeEach
+  void setUp() {
+    properties = new CacheWarmupProperties();
+    properties.setEnabled(true);
+    properties.setSnapshotFile(dir.resolve("warmup.snapshot"));
+    properties.setTopK(3);
+    tracker = new HotKeyTracker(properties);
+    bookService = mock(BookService.class);
+    userService = mock(UserService.class);
+  }
+
+  @Test
+  void saveSnapshot_ShouldKeepOnlyTopKeys_HottestFirst() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      tracker.record(Kind.BOOK, 1L);
+    }
+    for (int i = 0; i < 3; i++) {
+      tracker.record(Kind.ISBN, "9780000000002");
+    }
+    tracker.record(Kind.USER, 7L);
+    tracker.record(Kind.USER, 7L);
+    tracker.record(Kind.BOOK, 99L);
+
+    new CacheWarmup(tracker, bookService, userService, properties).saveSnapshot();
+
+    assertEquals(List.of("BOOK\t1", "ISBN\t9780000000002", "USER\t7"),
+        Files.readAllLines(properties.getSnapshotFile()));
+  }
+
+  @Test
+  void run_ShouldPreloadSnapshotKeys_InBatches() throws Exception {
+    Files.write(properties.getSnapshotFile(),
+        List.of("BOOK\t1", "ISBN\t9780000000002", "USER\t7", "BOOK\t3"));
+    properties.setBatchSize(3);
+
+    new CacheWarmup(tracker, bookService, userService, properties).run(null);
+
+    verify(bookService).preload(List.of(1L), List.of("9780000000002"));
+    verify(userService).preload(List.of(7L));
+    verify(bookService).preload(List.of(3L), List.of());
+  }
+
+  @Test
+  void run_ShouldGiveUpAfterTimeout() throws Exception {
+    Files.write(properties.getSnapshotFile(), List.of("BOOK\t1"));
+    properties.setTimeout(Duration.ofMillis(100));
+    when(bookService.preload(anyCollection(), anyCollection())).thenAnswer(invocation -> {
+      Thread.sleep(10_000);
+      return 1;
+    });
+
+    long started = System.nanoTime();
+    new CacheWarmup(tracker, bookService, userService, properties).run(null);
+
+    assertTrue(System.nanoTime() - started < Duration.ofSeconds(5).toNanos());
+  }
+
+}
@@ -0,0 +1,198 @@
+package planettask.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache.ValueRetrievalException;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import planettask.util.NotFoundException;
+
+class CoalescingCacheTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private ConcurrentMapCache delegate;
+  private AtomicInteger loads;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    delegate = new ConcurrentMapCache("book");
+    loads = new AtomicInteger();
+  }
+
+  @Test
+  void get_ShouldLoadOnce_WhenConcurrentCallersMissSameKey() throws Exception {
+    CoalescingCache cache = new CoalescingCache(delegate, null, null, meterRegistry);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    int callers = 8;
+    List<Future<String>> results = new ArrayList<>();
+
+    try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+      results.add(executor.submit(() -> cache.get(1L, () -> {
+        loading.countDown();
+        release.await();
+        loads.incrementAndGet();
+        return "Dune";
+      })));
+      assertTrue(loading.await(5, TimeUnit.SECONDS));
+      for (int i = 1; i < callers; i++) {
+        results.add(executor.submit(() -> cache.get(1L, () -> {
+          loads.incrementAndGet();
+          return "other";
+        })));
+      }
+      while (meterRegistry.counter("cache.coalesced.waits", "cache", "book").count()
+          < callers - 1) {
+        Thread.sleep(5);
+      }
+      release.countDown();
+      for (Future<String> result : results) {
+        assertEquals("Dune", result.get(5, TimeUnit.SECONDS));
+      }
+    }
+
+    assertEquals(1, loads.get());
+    assertEquals("Dune", delegate.get(1L).get());
+  }
+
+  @Test
+  void get_ShouldPropagateLoaderFailure_ToWaitingCallers() throws Exception {
+    CoalescingCache cache = new CoalescingCache(delegate, null, null, meterRegistry);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+      Future<Object> leader = executor.submit(() -> cache.get(1L, () -> {
+        loading.countDown();
+        release.await();
+        throw new NotFoundException();
+      }));
+      assertTrue(loading.await(5, TimeUnit.SECONDS));
+      Future<Object> follower = executor.submit(() -> cache.get(1L, () -> "unused"));
+      while (meterRegistry.counter("cache.coalesced.waits", "cache", "book").count() < 1) {
+        Thread.sleep(5);
+      }
+      release.countDown();
+
+      for (Future<Object> result : List.of(leader, follower)) {
+        ExecutionException ex = assertThrows(ExecutionException.class,
+            () -> result.get(5, TimeUnit.SECONDS));
+        ValueRetrievalException cause = (ValueRetrievalException) ex.getCause();
+        assertTrue(cause.getCause() instanceof NotFoundException);
+      }
+    }
+    assertNull(delegate.get(1L));
+  }
+
+  @Test
+  void get_ShouldRefreshInBackground_WhenEntryIsOlderThanRefreshAfter() throws Exception {
+    CoalescingCache cache = new CoalescingCache(delegate, Duration.ofMillis(50), null,
+        meterRegistry);
+    cache.get(1L, () -> "v" + loads.incrementAndGet());
+
+    Thread.sleep(60);
+    assertEquals("v1", cache.get(1L, () -> "v" + loads.incrementAndGet()));
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!"v2".equals(delegate.get(1L).get()) && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals("v2", cache.get(1L, () -> "v" + loads.incrementAndGet()));
+    assertEquals(1.0, meterRegistry.counter("cache.refresh.ahead", "cache", "book").count());
+  }
+
+  @Test
+  void get_ShouldDropRefresh_WhenKeyIsEvictedWhileItRuns() throws Exception {
+    CoalescingCache cache = new CoalescingCache(delegate, Duration.ofMillis(50), null,
+        meterRegistry);
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch evicted = new CountDownLatch(1);
+    cache.get(1L, () -> "v" + loads.incrementAndGet());
+
+    Thread.sleep(60);
+    cache.get(1L, () -> {
+      reading.countDown();
+      evicted.await();
+      // Read before the write behind the eviction committed
+      return "stale";
+    });
+    assertTrue(reading.await(5, TimeUnit.SECONDS));
+    cache.evict(1L);
+    evicted.countDown();
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+    while (delegate.get(1L) == null && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertNull(delegate.get(1L));
+    assertEquals("v2", cache.get(1L, () -> "v" + loads.incrementAndGet()));
+  }
+
+  @Test
+  void get_ShouldNotCacheLoad_WhenKeyIsEvictedWhileItRuns() {
+    CoalescingCache cache = new CoalescingCache(delegate, null, null, meterRegistry);
+
+    String value = cache.get(1L, () -> {
+      cache.evict(1L);
+      return "v" + loads.incrementAndGet();
+    });
+
+    assertEquals("v1", value);
+    assertNull(delegate.get(1L));
+  }
+
+  @Test
+  void get_ShouldNotCacheLoad_WhenKeyIsEvictedOnOtherNode() {
+    CoalescingCacheManager manager = new CoalescingCacheManager(
+        new ConcurrentMapCacheManager("book"), false, null, null, meterRegistry);
+
+    manager.getCache("book").get(1L, () -> {
+      manager.onInvalidation("book", "1");
+      return "v" + loads.incrementAndGet();
+    });
+
+    assertNull(manager.getCache("book").get(1L));
+  }
+
+  @Test
+  void fillSince_ShouldNotCache_WhenAnyKeyWasEvictedSince() {
+    CoalescingCache cache = new CoalescingCache(delegate, null, null, meterRegistry);
+    long since = cache.evictions();
+
+    cache.evict(2L);
+    cache.fillSince(since, 1L, "Dune");
+
+    assertNull(delegate.get(1L));
+  }
+
+  @Test
+  void evict_ShouldGoThroughToDelegate() {
+    CoalescingCache cache = new CoalescingCache(delegate, Duration.ofMinutes(1), null,
+        meterRegistry);
+    cache.put(1L, "Dune");
+
+    cache.evict(1L);
+
+    assertNull(delegate.get(1L));
+    assertSame(delegate.getNativeCache(), cache.getNativeCache());
+  }
+
+}
@@ -0,0 +1,165 @@
+package planettask.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import planettask.cache.JsonResponseCache.Resource;
+import planettask.config.ResponseCacheProperties;
+import planettask.model.BookDTO;
+import planettask.service.BookCopiesTakenEvent;
+
+class JsonResponseCacheTest {
+
+  private final AtomicInteger loads = new AtomicInteger();
+  private ResponseCacheProperties properties;
+  private JsonResponseCache responseCache;
+
+  @BeforeEach
+  void setUp() {
+    properties = new ResponseCacheProperties();
+    responseCache = new JsonResponseCache(new ObjectMapper(), properties,
+        new StaticListableBeanFactory().getBeanProvider(RedisCacheInvalidationBus.class));
+  }
+
+  @Test
+  void writeEntity_ShouldServeSameBytes_WithoutLoadingAgain() throws Exception {
+    final MockHttpServletResponse first = get(new MockHttpServletRequest());
+    final MockHttpServletResponse second = get(new MockHttpServletRequest());
+
+    assertEquals(1, loads.get());
+    assertArrayEquals(first.getContentAsByteArray(), second.getContentAsByteArray());
+    assertEquals(first.getContentAsByteArray().length, second.getContentLength());
+    assertEquals(first.getHeader(HttpHeaders.ETAG), second.getHeader(HttpHeaders.ETAG));
+    assertEquals("Test Book", new ObjectMapper()
+        .readValue(second.getContentAsByteArray(), BookDTO.class).getTitle());
+  }
+
+  @Test
+  void writeEntity_ShouldAnswerNotModified_WhenETagMatches() throws Exception {
+    final String etag = get(new MockHttpServletRequest()).getHeader(HttpHeaders.ETAG);
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+
+    final MockHttpServletResponse response = get(request);
+
+    assertEquals(304, response.getStatus());
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  @Test
+  void writeEntity_ShouldServeGzipVariant_WhenAccepted() throws Exception {
+    properties.setGzipMinSize(0);
+    final byte[] plain = get(new MockHttpServletRequest()).getContentAsByteArray();
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+
+    final MockHttpServletResponse response = get(request);
+
+    assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+    try (GZIPInputStream in = new GZIPInputStream(
+        new ByteArrayInputStream(response.getContentAsByteArray()))) {
+      assertArrayEquals(plain, in.readAllBytes());
+    }
+  }
+
+  @Test
+  void writeEntity_ShouldTagGzipVariantApart_FromIdentityBody() throws Exception {
+    properties.setGzipMinSize(0);
+    final String etag = get(new MockHttpServletRequest()).getHeader(HttpHeaders.ETAG);
+    final MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+
+    final MockHttpServletResponse response = get(request);
+
+    // A cache holding the identity body must not be told it can serve it as the gzip one
+    assertEquals(200, response.getStatus());
+    assertEquals(etag.replaceFirst("\"$", "-gz\""), response.getHeader(HttpHeaders.ETAG));
+  }
+
+  @Test
+  void writeEntity_ShouldNotCacheResponse_WhenEvictedWhileLoading() throws Exception {
+    responseCache.writeEntity(Resource.BOOK, 1L, () -> {
+      loads.incrementAndGet();
+      responseCache.onCopiesTaken(new BookCopiesTakenEvent(List.of(1L)));
+      return book();
+    }, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+    get(new MockHttpServletRequest());
+
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void onCopiesTaken_ShouldEvictBookAndPages() throws Exception {
+    get(new MockHttpServletRequest());
+    responseCache.writePage(Resource.BOOK, 0, 10, "UNSORTED", () -> {
+      loads.incrementAndGet();
+      return List.of(book());
+    }, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+    responseCache.onCopiesTaken(new BookCopiesTakenEvent(List.of(1L)));
+    final MockHttpServletResponse response = get(new MockHttpServletRequest());
+
+    assertEquals(3, loads.get());
+    assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+  }
+
+  @Test
+  void onInvalidation_ShouldEvictBookAndPages_WrittenOnOtherNode() throws Exception {
+    get(new MockHttpServletRequest());
+    responseCache.writePage(Resource.BOOK, 0, 10, "UNSORTED", () -> {
+      loads.incrementAndGet();
+      return List.of(book());
+    }, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+    responseCache.onInvalidation(CacheNames.BOOK, "1");
+    get(new MockHttpServletRequest());
+    responseCache.writePage(Resource.BOOK, 0, 10, "UNSORTED", () -> {
+      loads.incrementAndGet();
+      return List.of(book());
+    }, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+    assertEquals(4, loads.get());
+  }
+
+  @Test
+  void onInvalidation_ShouldKeepResponses_OfUnrelatedCaches() throws Exception {
+    get(new MockHttpServletRequest());
+
+    responseCache.onInvalidation(CacheNames.RESERVATION, "1");
+    get(new MockHttpServletRequest());
+
+    assertEquals(1, loads.get());
+  }
+
+  private MockHttpServletResponse get(final MockHttpServletRequest request) throws Exception {
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    responseCache.writeEntity(Resource.BOOK, 1L, () -> {
+      loads.incrementAndGet();
+      return book();
+    }, request, response);
+    return response;
+  }
+
+  private static BookDTO book() {
+    final BookDTO book = new BookDTO();
+    book.setId(1L);
+    book.setTitle("Test Book");
+    book.setIsbn("1234567890123");
+    return book;
+  }
+
+}
@@ -0,0 +1,129 @@
+package planettask.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+class PageCacheTest {
+
+  private record Item(Long id, String name) {
+  }
+
+  private final Map<Long, Item> table = new TreeMap<>();
+  private final AtomicInteger pageQueries = new AtomicInteger();
+  private final List<Collection<Long>> idQueries = new ArrayList<>();
+  private ConcurrentMapCacheManager cacheManager;
+  private PageCache pageCache;
+
+  @BeforeEach
+  void setUp() {
+    cacheManager = new ConcurrentMapCacheManager(CacheNames.BOOK, CacheNames.BOOK_PAGE);
+    pageCache = new PageCache(cacheManager, new CacheMultiGet(
+        new StaticListableBeanFactory().getBeanProvider(RedisConnectionFactory.class)));
+    table.put(1L, new Item(1L, "one"));
+    table.put(2L, new Item(2L, "two"));
+    table.put(3L, new Item(3L, "three"));
+  }
+
+  @Test
+  void get_ShouldCacheIdsAndEntries_OnFirstRead() {
+    final List<Item> page = read();
+
+    assertEquals(List.of(1L, 2L, 3L), page.stream().map(Item::id).toList());
+    assertEquals(List.of(1L, 2L, 3L), cachedIds());
+    assertNotNull(cacheManager.getCache(CacheNames.BOOK).get(2L));
+    assertEquals(1, pageQueries.get());
+  }
+
+  @Test
+  void get_ShouldServeChangedEntity_WithoutQueryingThePageAgain() {
+    read();
+    table.put(2L, new Item(2L, "TWO"));
+    cacheManager.getCache(CacheNames.BOOK).evict(2L);
+
+    final List<Item> page = read();
+
+    assertEquals("TWO", page.get(1).name());
+    assertEquals(1, pageQueries.get());
+    assertEquals(List.of(List.of(2L)), idQueries);
+  }
+
+  @Test
+  void get_ShouldQueryThePageAgain_WhenAnEntityIsGone() {
+    read();
+    table.remove(2L);
+    cacheManager.getCache(CacheNames.BOOK).evict(2L);
+
+    final List<Item> page = read();
+
+    assertEquals(List.of(1L, 3L), page.stream().map(Item::id).toList());
+    assertEquals(2, pageQueries.get());
+    assertEquals(List.of(1L, 3L), cachedIds());
+  }
+
+  @Test
+  void get_ShouldNotCacheEntity_EvictedWhileItIsQueried() {
+    final CoalescingCacheManager guarded = new CoalescingCacheManager(cacheManager, false, null,
+        null, new SimpleMeterRegistry());
+    pageCache = new PageCache(guarded, new CacheMultiGet(
+        new StaticListableBeanFactory().getBeanProvider(RedisConnectionFactory.class)));
+    read();
+    guarded.getCache(CacheNames.BOOK).evict(2L);
+
+    pageCache.getAll(CacheNames.BOOK, List.of(2L), Item::id, ids -> {
+      // A write to the entity commits and evicts it while the query runs
+      guarded.getCache(CacheNames.BOOK).evict(2L);
+      return ids.stream().map(table::get).toList();
+    });
+
+    assertNull(cacheManager.getCache(CacheNames.BOOK).get(2L));
+  }
+
+  @Test
+  void get_ShouldNotCachePageEntities_WhenOneIsEvictedWhileThePageIsQueried() {
+    final CoalescingCacheManager guarded = new CoalescingCacheManager(cacheManager, false, null,
+        null, new SimpleMeterRegistry());
+    pageCache = new PageCache(guarded, new CacheMultiGet(
+        new StaticListableBeanFactory().getBeanProvider(RedisConnectionFactory.class)));
+
+    pageCache.get(CacheNames.BOOK_PAGE, CacheNames.BOOK, PageRequest.of(0, 3), Item::id, () -> {
+      guarded.getCache(CacheNames.BOOK).evict(2L);
+      return List.copyOf(table.values());
+    }, ids -> ids.stream().map(table::get).toList());
+
+    assertNull(cacheManager.getCache(CacheNames.BOOK).get(2L));
+    assertEquals(List.of(1L, 2L, 3L), cachedIds());
+  }
+
+  private List<Item> read() {
+    return pageCache.get(CacheNames.BOOK_PAGE, CacheNames.BOOK, PageRequest.of(0, 3), Item::id,
+        () -> {
+          pageQueries.incrementAndGet();
+          return List.copyOf(table.values());
+        },
+        ids -> {
+          idQueries.add(List.copyOf(ids));
+          return ids.stream().map(table::get).filter(item -> item != null).toList();
+        });
+  }
+
+  private List<?> cachedIds() {
+    return (List<?>) cacheManager.getCache(CacheNames.BOOK_PAGE)
+        .get(List.of(0, 3, "UNSORTED")).get();
+  }
+
+}
@@ -0,0 +1,118 @@
+package planettask.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import planettask.config.NearCacheProperties;
+
+class TwoTierCacheTest {
+
+  private ConcurrentMapCache remote;
+  private CacheInvalidationPublisher publisher;
+  private TwoTierCache cache;
+
+  @BeforeEach
+  void setUp() {
+    remote = new ConcurrentMapCache("books");
+    publisher = mock(CacheInvalidationPublisher.class);
+    cache = new TwoTierCache("books", remote, Caffeine.newBuilder().maximumSize(100).build(),
+        publisher);
+  }
+
+  @Test
+  void get_ShouldServeFromNearCache_AfterFirstRemoteHit() {
+    remote.put(1L, "Dune");
+
+    assertEquals("Dune", cache.get(1L).get());
+    remote.evict(1L);
+
+    assertEquals("Dune", cache.get(1L).get());
+  }
+
+  @Test
+  void evict_ShouldClearBothTiersAndPublish() {
+    remote.put(1L, "Dune");
+    cache.get(1L);
+
+    cache.evict(1L);
+
+    assertNull(cache.get(1L));
+    verify(publisher).publish("books", "1");
+  }
+
+  @Test
+  void put_ShouldNotPublish() {
+    cache.put(1L, "Dune");
+
+    assertEquals("Dune", cache.get(1L).get());
+    verify(publisher, never()).publish(anyString(), any());
+  }
+
+  @Test
+  void get_ShouldNotFillNearCache_WhenInvalidatedDuringRemoteRead() {
+    ConcurrentMapCache racingRemote = new ConcurrentMapCache("books") {
+      @Override
+      public ValueWrapper get(Object key) {
+        ValueWrapper value = super.get(key);
+        // Another node's eviction arrives while this read is in flight
+        cache.invalidateLocal(TwoTierCache.localKey(key));
+        return value;
+      }
+    };
+    cache = new TwoTierCache("books", racingRemote, Caffeine.newBuilder().maximumSize(100).build(),
+        publisher);
+    racingRemote.put(1L, "Dune");
+
+    assertEquals("Dune", cache.get(1L).get());
+    racingRemote.evict(1L);
+
+    assertNull(cache.get(1L));
+  }
+
+  @Test
+  void invalidation_ShouldDropStaleNearEntry_OnOtherNode() {
+    ConcurrentMapCacheManager remoteManager = new ConcurrentMapCacheManager("books");
+    List<String> sent = new ArrayList<>();
+    StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    doAnswer(invocation -> {
+      sent.add(invocation.getArgument(1));
+      return 1L;
+    })
+        .when(redisTemplate).convertAndSend(eq("ch"), anyString());
+    RedisCacheInvalidationBus busA = new RedisCacheInvalidationBus(redisTemplate, "ch");
+    RedisCacheInvalidationBus busB = new RedisCacheInvalidationBus(redisTemplate, "ch");
+    TwoTierCacheManager nodeA = new TwoTierCacheManager(remoteManager, new NearCacheProperties(),
+        busA);
+    TwoTierCacheManager nodeB = new TwoTierCacheManager(remoteManager, new NearCacheProperties(),
+        busB);
+    busB.addListener(nodeB::onInvalidation);
+
+    nodeA.getCache("books").put(1L, "Dune");
+    assertEquals("Dune", nodeB.getCache("books").get(1L).get());
+    nodeA.getCache("books").evict(1L);
+    nodeA.getCache("books").put(1L, "Dune Messiah");
+    sent.forEach(message -> busB.onMessage(
+        new DefaultMessage("ch".getBytes(StandardCharsets.UTF_8),
+            message.getBytes(StandardCharsets.UTF_8)), null));
+
+    assertEquals("Dune Messiah", nodeB.getCache("books").get(1L).get());
+  }
+
+}
@@ -11,8 +11,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureTestEntityManager;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import planettask.domain.Book;
+import planettask.domain.BookStockSlot;
+import planettask.model.BookDTO;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -26,6 +29,9 @@ public class BookRepositoryTest {
   @Autowired
   private BookRepository bookRepository;
 
+  @Autowired
+  private TestEntityManager entityManager;
+
 
   @BeforeEach
   void setUp() {
@@ -219,4 +225,70 @@ public class BookRepositoryTest {
     // Then
     assertTrue(books.isEmpty(), "Book list should be empty.");
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testDecrementAvailableCopies_SkipsBooksWithoutCopies() {
+    // Given
+    Book available = new Book();
+    available.setIsbn("3333333333333");
+    available.setTitle("Available Book");
+    available.setAuthor("author");
+    available.setAvailableCopies(1);
+    available.setTotalCopies(1);
+    Book exhausted = new Book();
+    exhausted.setIsbn("4444444444444");
+    exhausted.setTitle("Exhausted Book");
+    exhausted.setAuthor("author");
+    exhausted.setAvailableCopies(0);
+    exhausted.setTotalCopies(1);
+    bookRepository.saveAll(List.of(available, exhausted));
+
+    // When
+    int updated = bookRepository.decrementAvailableCopies(
+        List.of(available.getBookId(), exhausted.getBookId()));
+    entityManager.clear();
+
+    // Then
+    assertEquals(1, updated, "Only the book with a copy left should be updated.");
+    assertEquals(0, bookRepository.findById(available.getBookId()).orElseThrow().getAvailableCopies());
+    assertEquals(0, bookRepository.findById(exhausted.getBookId()).orElseThrow().getAvailableCopies());
+  }
+
+  @Test
+  public void testFindDTOById_SumsSlotCopies_OfShardedBook() {
+    // Given
+    Book plain = new Book();
+    plain.setIsbn("5555555555555");
+    plain.setTitle("Plain Book");
+    plain.setAuthor("author");
+    plain.setAvailableCopies(3);
+    plain.setTotalCopies(4);
+    Book sharded = new Book();
+    sharded.setIsbn("6666666666666");
+    sharded.setTitle("Sharded Book");
+    sharded.setAuthor("author");
+    sharded.setAvailableCopies(0);
+    sharded.setTotalCopies(10);
+    sharded.setSharded(true);
+    bookRepository.saveAll(List.of(plain, sharded));
+    for (int slot = 0; slot < 3; slot++) {
+      entityManager.persist(BookStockSlot.builder()
+          .bookId(sharded.getBookId())
+          .slotNo(slot)
+          .availableCopies(slot + 2)
+          .build());
+    }
+    entityManager.flush();
+    entityManager.clear();
+
+    // When
+    BookDTO plainDTO = bookRepository.findDTOById(plain.getBookId()).orElseThrow();
+    BookDTO shardedDTO = bookRepository.findDTOById(sharded.getBookId()).orElseThrow();
+
+    // Then
+    assertEquals("Plain Book", plainDTO.getTitle());
+    assertEquals(3, plainDTO.getAvailableCopies());
+    assertEquals(10, shardedDTO.getTotalCopies());
+    assertEquals(9, shardedDTO.getAvailableCopies(), "Copies of a sharded book live in slots.");
+  }
+}
@@ -0,0 +1,289 @@
+package planettask.repos;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import planettask.domain.BaseEntity;
+
+
+/**
+ * Inserts per second for bulk book and user creation and for reservation bursts, replaying the
+ * statements Hibernate issues before and after pooled-lo ids and JDBC batching:
+ * <ul>
+ *   <li>{@code single}: one {@code nextval} and one {@code INSERT} round trip per row,</li>
+ *   <li>{@code pooled}: one {@code nextval} per {@link BaseEntity#ID_ALLOCATION_SIZE} rows and
+ *   inserts sent in batches of that size, join rows included.</li>
+ * </ul>
+ * Scores are rows inserted per second. The default in-memory H2 has no network round trip and so
+ * understates the gain; pass {@code -p url=jdbc:postgresql://...} (with {@code -p user} and
+ * {@code -p password}) to measure against a real database.
+ * <p>
+ * Not run by the build; after {@code mvn test-compile}, run {@link #main} or
+ * {@code org.openjdk.jmh.Main InsertBatchingBenchmark} on the test classpath.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertBatchingBenchmark {
+
+  private static final int ROWS = 500;
+  private static final int RESERVATIONS = 100;
+  private static final int BOOKS_PER_RESERVATION = 3;
+
+  @Param({"single", "pooled"})
+  private String mode;
+
+  @Param({"jdbc:h2:mem:insert-benchmark;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"})
+  private String url;
+
+  @Param({"sa"})
+  private String user;
+
+  @Param({""})
+  private String password;
+
+  private Connection connection;
+  private int batchSize;
+  private long isbn;
+  private long email;
+  private long userId;
+  private long[] bookIds;
+
+  @Setup(Level.Iteration)
+  public void setUp() throws SQLException {
+    connection = DriverManager.getConnection(url, user, password);
+    batchSize = "pooled".equals(mode) ? BaseEntity.ID_ALLOCATION_SIZE : 1;
+    try (Statement statement = connection.createStatement()) {
+      for (String table : new String[]{"reservations_books", "reservations", "users", "books"}) {
+        statement.execute("DROP TABLE IF EXISTS " + table);
+      }
+      for (String sequence : new String[]{"book_sequence", "user_sequence",
+          "reservation_sequence"}) {
+        statement.execute("DROP SEQUENCE IF EXISTS " + sequence);
+        statement.execute("CREATE SEQUENCE " + sequence + " START WITH 10000 INCREMENT BY "
+            + batchSize);
+      }
+      statement.execute("CREATE TABLE books (book_id BIGINT PRIMARY KEY, title VARCHAR(255), "
+          + "isbn VARCHAR(13) UNIQUE, author VARCHAR(255), total_copies INT, "
+          + "available_copies INT, version BIGINT, sharded BOOLEAN, date_created TIMESTAMP, "
+          + "last_updated TIMESTAMP)");
+      statement.execute("CREATE TABLE users (user_id BIGINT PRIMARY KEY, username VARCHAR(255), "
+          + "email VARCHAR(255) UNIQUE, date_created TIMESTAMP, last_updated TIMESTAMP)");
+      statement.execute("CREATE TABLE reservations (reservation_id BIGINT PRIMARY KEY, "
+          + "status VARCHAR(32), user_id BIGINT REFERENCES users, date_created TIMESTAMP, "
+          + "last_updated TIMESTAMP)");
+      statement.execute("CREATE TABLE reservations_books (reservation_id BIGINT REFERENCES "
+          + "reservations, book_id BIGINT REFERENCES books, "
+          + "PRIMARY KEY (reservation_id, book_id))");
+    }
+    connection.setAutoCommit(false);
+    userId = new Ids("user_sequence").next();
+    try (PreparedStatement insert = connection.prepareStatement(
+        "INSERT INTO users VALUES (?, 'reader', 'reader@example.com', ?, ?)")) {
+      insert.setLong(1, userId);
+      insert.setTimestamp(2, now());
+      insert.setTimestamp(3, now());
+      insert.executeUpdate();
+    }
+    bookIds = new long[BOOKS_PER_RESERVATION];
+    final Ids ids = new Ids("book_sequence");
+    for (int i = 0; i < bookIds.length; i++) {
+      bookIds[i] = ids.next();
+      insertBook(bookIds[i]);
+    }
+    connection.commit();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() throws SQLException {
+    connection.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void bulkBooks() throws SQLException {
+    final Ids ids = new Ids("book_sequence");
+    try (Batch batch = new Batch("INSERT INTO books VALUES (?, ?, ?, ?, ?, ?, 0, FALSE, ?, ?)")) {
+      for (int i = 0; i < ROWS; i++) {
+        final PreparedStatement insert = batch.statement();
+        insert.setLong(1, ids.next());
+        insert.setString(2, "Title");
+        insert.setString(3, String.valueOf(1_000_000_000_000L + isbn++));
+        insert.setString(4, "Author");
+        insert.setInt(5, 5);
+        insert.setInt(6, 5);
+        insert.setTimestamp(7, now());
+        insert.setTimestamp(8, now());
+        batch.add();
+      }
+    }
+    connection.commit();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void bulkUsers() throws SQLException {
+    final Ids ids = new Ids("user_sequence");
+    try (Batch batch = new Batch("INSERT INTO users VALUES (?, ?, ?, ?, ?)")) {
+      for (int i = 0; i < ROWS; i++) {
+        final PreparedStatement insert = batch.statement();
+        insert.setLong(1, ids.next());
+        insert.setString(2, "user");
+        insert.setString(3, "user" + email++ + "@example.com");
+        insert.setTimestamp(4, now());
+        insert.setTimestamp(5, now());
+        batch.add();
+      }
+    }
+    connection.commit();
+  }
+
+  /**
+   * A burst of reservations committed together, as the group-commit batcher does. Counts both
+   * reservation and join rows.
+   */
+  @Benchmark
+  @OperationsPerInvocation(RESERVATIONS * (1 + BOOKS_PER_RESERVATION))
+  public void reservationBurst() throws SQLException {
+    final Ids ids = new Ids("reservation_sequence");
+    final long[] reservationIds = new long[RESERVATIONS];
+    // Ordered inserts: all reservations first, then all join rows, each in its own batches
+    try (Batch batch = new Batch("INSERT INTO reservations VALUES (?, 'ACTIVE', ?, ?, ?)")) {
+      for (int i = 0; i < RESERVATIONS; i++) {
+        reservationIds[i] = ids.next();
+        final PreparedStatement insert = batch.statement();
+        insert.setLong(1, reservationIds[i]);
+        insert.setLong(2, userId);
+        insert.setTimestamp(3, now());
+        insert.setTimestamp(4, now());
+        batch.add();
+      }
+    }
+    try (Batch batch = new Batch("INSERT INTO reservations_books VALUES (?, ?)")) {
+      for (long reservationId : reservationIds) {
+        for (long bookId : bookIds) {
+          final PreparedStatement insert = batch.statement();
+          insert.setLong(1, reservationId);
+          insert.setLong(2, bookId);
+          batch.add();
+        }
+      }
+    }
+    connection.commit();
+  }
+
+  private void insertBook(final long bookId) throws SQLException {
+    try (PreparedStatement insert = connection.prepareStatement(
+        "INSERT INTO books VALUES (?, 'Title', ?, 'Author', 5, 5, 0, FALSE, ?, ?)")) {
+      insert.setLong(1, bookId);
+      insert.setString(2, String.valueOf(9_000_000_000_000L + bookId));
+      insert.setTimestamp(3, now());
+      insert.setTimestamp(4, now());
+      insert.executeUpdate();
+    }
+  }
+
+  private static Timestamp now() {
+    return new Timestamp(System.currentTimeMillis());
+  }
+
+  /**
+   * Hands out ids the way Hibernate's optimizers do: every id from the sequence with
+   * {@code single}, a block of {@code batchSize} ids per sequence value with pooled-lo.
+   */
+  private final class Ids {
+
+    private final String sequence;
+    private long next;
+    private long remaining;
+
+    private Ids(final String sequence) {
+      this.sequence = sequence;
+    }
+
+    long next() throws SQLException {
+      if (remaining == 0) {
+        try (Statement statement = connection.createStatement();
+            ResultSet result = statement.executeQuery("SELECT nextval('" + sequence + "')")) {
+          result.next();
+          next = result.getLong(1);
+        }
+        remaining = batchSize;
+      }
+      remaining--;
+      return next++;
+    }
+
+  }
+
+  /**
+   * Executes each row on its own with {@code single}, in JDBC batches of {@code batchSize} rows
+   * with {@code pooled}.
+   */
+  private final class Batch implements AutoCloseable {
+
+    private final PreparedStatement statement;
+    private int pending;
+
+    private Batch(final String sql) throws SQLException {
+      this.statement = connection.prepareStatement(sql);
+    }
+
+    PreparedStatement statement() {
+      return statement;
+    }
+
+    void add() throws SQLException {
+      if (batchSize == 1) {
+        statement.executeUpdate();
+        return;
+      }
+      statement.addBatch();
+      if (++pending == batchSize) {
+        statement.executeBatch();
+        pending = 0;
+      }
+    }
+
+    @Override
+    public void close() throws SQLException {
+      if (pending > 0) {
+        statement.executeBatch();
+      }
+      statement.close();
+    }
+
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(InsertBatchingBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+
+}
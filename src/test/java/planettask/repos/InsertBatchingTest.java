@@ -0,0 +1,152 @@
+package planettask.repos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import org.hibernate.SessionEventListener;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import planettask.domain.BaseEntity;
+import planettask.domain.Book;
+import planettask.domain.Reservation;
+import planettask.domain.User;
+import planettask.model.ReservationStatus;
+
+/**
+ * JDBC round trips per bulk write, so that ids fetched one by one or inserts and updates sent
+ * row by row fail the build: one statement per block of {@link BaseEntity#ID_ALLOCATION_SIZE}
+ * ids, and one batch per {@link #BATCH_SIZE} rows of a table.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.properties.hibernate.session.events.auto="
+        + "planettask.repos.InsertBatchingTest$RoundTrips",
+    "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+class InsertBatchingTest {
+
+  private static final int BATCH_SIZE = 50;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Test
+  void saveAll_ShouldInsertBooksInBatches() {
+    final int books = 2 * BATCH_SIZE + 10;
+
+    roundTrips(3, 3, () -> bookRepository.saveAll(books(books)));
+
+    assertEquals(books, statistics().getEntityInsertCount());
+  }
+
+  @Test
+  void saveAll_ShouldInsertReservationBurstAndItsBookRowsInBatches() {
+    final List<Book> books = bookRepository.saveAll(books(3));
+    final User user = entityManager.persist(User.builder()
+        .username("burst")
+        .email("burst@example.com")
+        .build());
+    entityManager.flush();
+    final int reservations = BATCH_SIZE + 10;
+
+    // Reservation rows and their 2 book rows each are batched separately
+    roundTrips(2, 2 + 3, () -> reservationRepository.saveAll(IntStream.range(0, reservations)
+        .mapToObj(i -> Reservation.builder()
+            .user(user)
+            .books(Set.of(books.get(i % 3), books.get((i + 1) % 3)))
+            .status(ReservationStatus.ACTIVE)
+            .build())
+        .toList()));
+
+    assertEquals(reservations, statistics().getEntityInsertCount());
+  }
+
+  @Test
+  void flush_ShouldUpdateVersionedBooksInBatches() {
+    final int books = BATCH_SIZE + 10;
+    final List<Book> saved = bookRepository.saveAll(books(books));
+    entityManager.flush();
+
+    // Versioned rows are only batched with batch_versioned_data
+    roundTrips(0, 2, () -> {
+      saved.forEach(book -> book.setAvailableCopies(book.getAvailableCopies() - 1));
+      return saved;
+    });
+
+    assertEquals(books, statistics().getEntityUpdateCount());
+  }
+
+  private static List<Book> books(final int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> Book.builder()
+            .title("Book " + i)
+            .isbn(String.valueOf(9_780_000_000_000L + i))
+            .author("Author")
+            .totalCopies(5)
+            .availableCopies(5)
+            .build())
+        .toList();
+  }
+
+  /**
+   * Runs the write and flushes it, so every statement it causes is counted.
+   */
+  private <T> T roundTrips(final int statements, final int batches, final Supplier<T> write) {
+    statistics().clear();
+    RoundTrips.reset();
+    final T result = write.get();
+    entityManager.flush();
+    assertEquals(statements, RoundTrips.statements.get(), "single statements");
+    assertEquals(batches, RoundTrips.batches.get(), "JDBC batches");
+    return result;
+  }
+
+  private Statistics statistics() {
+    return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  /**
+   * Counts the statements and batches sent by every session; Hibernate's statistics only count
+   * statements prepared, which a flush reuses across batches.
+   */
+  public static class RoundTrips implements SessionEventListener {
+
+    static final AtomicInteger statements = new AtomicInteger();
+    static final AtomicInteger batches = new AtomicInteger();
+
+    static void reset() {
+      statements.set(0);
+      batches.set(0);
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+      statements.incrementAndGet();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+      batches.incrementAndGet();
+    }
+
+  }
+
+}
@@ -9,12 +9,18 @@ import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import java.time.OffsetDateTime;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import planettask.domain.Book;
+import planettask.domain.BookStockSlot;
 import planettask.domain.Reservation;
 import planettask.domain.User;
 import planettask.model.ReservationStatus;
+import planettask.repos.ReservationRepository.ReservationBookRow;
 
 @DataJpaTest
 @AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2, replace = Replace.ANY)
@@ -26,6 +32,12 @@ class ReservationRepositoryTest {
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private TestEntityManager entityManager;
+
   private Reservation activeReservation;
   private Reservation oldActiveReservation;
   private Reservation oldCancelledReservation;
@@ -140,5 +152,37 @@ class ReservationRepositoryTest {
     // Then
     assertThat(foundReservation).isEmpty();
   }
-}
 
+  @Test
+  void findRowsByIdIn_ShouldSumSlotCopies_OfShardedBook() {
+    // Given
+    Book sharded = new Book();
+    sharded.setIsbn("6666666666666");
+    sharded.setTitle("Sharded Book");
+    sharded.setAuthor("author");
+    sharded.setAvailableCopies(0);
+    sharded.setTotalCopies(10);
+    sharded.setSharded(true);
+    bookRepository.save(sharded);
+    for (int slot = 0; slot < 3; slot++) {
+      entityManager.persist(BookStockSlot.builder()
+          .bookId(sharded.getBookId())
+          .slotNo(slot)
+          .availableCopies(slot + 2)
+          .build());
+    }
+    activeReservation.setBooks(new HashSet<>(Set.of(sharded)));
+    reservationRepository.saveAndFlush(activeReservation);
+    entityManager.clear();
+
+    // When
+    List<ReservationBookRow> rows =
+        reservationRepository.findRowsByIdIn(List.of(activeReservation.getReservationId()));
+
+    // Then
+    assertThat(rows).hasSize(1);
+    assertThat(rows.getFirst().getAvailableCopies())
+        .as("Copies of a sharded book live in slots, as in BookRepository.BOOK_DTO")
+        .isEqualTo(9);
+  }
+}
@@ -0,0 +1,107 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.function.Supplier;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort.Direction;
+import planettask.cache.CacheMultiGet;
+import planettask.cache.NegativeCache;
+import planettask.cache.PageCache;
+import planettask.domain.Book;
+import planettask.model.BookDTO;
+
+/**
+ * Statements issued per read of books behind the endpoints, and that none of them loads an
+ * entity. Every read starts from an empty persistence context and with caching disabled.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@Import({BookService.class, DtoMapper.class, BookInventory.class, NegativeCache.class,
+    PageCache.class, CacheMultiGet.class, NoOpCacheManager.class, SimpleMeterRegistry.class})
+class BookFetchPlanTest {
+
+  private static final int BOOKS = 12;
+
+  @Autowired
+  private BookService bookService;
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private Book book;
+
+  @BeforeEach
+  void setUp() {
+    for (int i = 0; i < BOOKS; i++) {
+      book = entityManager.persist(Book.builder()
+          .title("Book " + i)
+          .isbn(String.valueOf(9_780_000_000_000L + i))
+          .author("Author")
+          .totalCopies(5)
+          .availableCopies(5)
+          .build());
+    }
+    entityManager.flush();
+  }
+
+  @Test
+  void findAll_ShouldReadPageInOneStatement_WithoutLoadingEntities() {
+    final List<BookDTO> page = projected(1, () -> bookService.findAll(PageRequest.of(0, 10)));
+
+    assertEquals(10, page.size());
+  }
+
+  @Test
+  void scroll_ShouldReadIdsThenRows_WithoutLoadingEntities() {
+    final int size = projected(2,
+        () -> bookService.scroll("title", Direction.ASC, 10, null)).getContent().size();
+
+    assertEquals(10, size);
+  }
+
+  @Test
+  void get_ShouldReadRowInOneStatement_WithoutLoadingEntities() {
+    final BookDTO found = projected(1, () -> bookService.get(book.getBookId()));
+
+    assertEquals(book.getTitle(), found.getTitle());
+  }
+
+  @Test
+  void findByIsbn_ShouldResolveIdThenReadRow_WithoutLoadingEntities() {
+    final BookDTO found = projected(2, () -> bookService.findByIsbn(book.getIsbn()));
+
+    assertEquals(book.getBookId(), found.getId());
+  }
+
+  private <T> T projected(final long expectedStatements, final Supplier<T> read) {
+    entityManager.clear();
+    statistics().clear();
+    final T result = read.get();
+    assertEquals(expectedStatements, statistics().getPrepareStatementCount(), "SQL statements");
+    assertEquals(0, statistics().getEntityLoadCount(), "entities loaded");
+    return result;
+  }
+
+  private Statistics statistics() {
+    return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+}
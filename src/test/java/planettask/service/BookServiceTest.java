@@ -4,11 +4,12 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,12 +17,21 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import planettask.cache.CacheMultiGet;
+import planettask.cache.NegativeCache;
+import planettask.cache.PageCache;
 import planettask.domain.Book;
 import planettask.model.BookDTO;
 import planettask.repos.BookRepository;
@@ -34,7 +44,24 @@ class BookServiceTest {
   private BookRepository bookRepository;
 
   @Mock
-  private ModelMapper modelMapper;
+  private BookInventory bookInventory;
+
+  @Spy
+  private DtoMapper dtoMapper;
+
+  @Mock
+  private CacheManager cacheManager;
+
+  @Spy
+  private NegativeCache negativeCache = new NegativeCache(new ConcurrentMapCacheManager(),
+      new SimpleMeterRegistry());
+
+  @Mock
+  private ApplicationEventPublisher eventPublisher;
+
+  @Spy
+  private PageCache pageCache = new PageCache(new ConcurrentMapCacheManager(), new CacheMultiGet(
+      new StaticListableBeanFactory().getBeanProvider(RedisConnectionFactory.class)));
 
   @InjectMocks
   private BookService bookService;
@@ -50,56 +77,79 @@ class BookServiceTest {
     book.setIsbn("1234567891234");
 
     bookDTO = new BookDTO();
+    bookDTO.setId(1L);
     bookDTO.setTitle("Test Book");
     bookDTO.setIsbn("1234567891234");
+    bookDTO.setAvailableCopies(2);
   }
 
   @Test
   void findAll_ShouldReturnListOfBooks() {
     Pageable pageable = PageRequest.of(0, 5);
-    Page<Book> bookPage = new PageImpl<>(List.of(book));
+    Slice<BookDTO> bookPage = new SliceImpl<>(List.of(bookDTO));
 
-    when(bookRepository.findAll(pageable)).thenReturn(bookPage);
-    when(modelMapper.map(any(Book.class), eq(BookDTO.class))).thenReturn(bookDTO);
+    when(bookRepository.findDTOsBy(pageable)).thenReturn(bookPage);
 
     List<BookDTO> result = bookService.findAll(pageable);
 
     assertEquals(1, result.size());
     assertEquals("Test Book", result.getFirst().getTitle());
-    verify(bookRepository).findAll(pageable);
+    verify(bookRepository).findDTOsBy(pageable);
+  }
+
+  @Test
+  void findAll_ShouldAssembleCachedPage_FromBookEntries() {
+    Pageable pageable = PageRequest.of(0, 5);
+    when(bookRepository.findDTOsBy(pageable)).thenReturn(new SliceImpl<>(List.of(bookDTO)));
+    bookService.findAll(pageable);
+
+    List<BookDTO> result = bookService.findAll(pageable);
+
+    assertEquals("Test Book", result.getFirst().getTitle());
+    verify(bookRepository, times(1)).findDTOsBy(pageable);
+    verify(bookRepository, never()).findDTOsByIdIn(any());
   }
 
   @Test
   void get_ShouldReturnBookDTO_WhenBookExists() {
-    when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
-    when(modelMapper.map(book, BookDTO.class)).thenReturn(bookDTO);
+    when(bookRepository.findDTOById(1L)).thenReturn(Optional.of(bookDTO));
 
     BookDTO result = bookService.get(1L);
 
     assertNotNull(result);
     assertEquals("Test Book", result.getTitle());
-    verify(bookRepository).findById(1L);
+    verify(bookRepository).findDTOById(1L);
   }
 
   @Test
   void get_ShouldThrowNotFoundException_WhenBookNotFound() {
-    when(bookRepository.findById(1L)).thenReturn(Optional.empty());
+    when(bookRepository.findDTOById(1L)).thenReturn(Optional.empty());
+
+    assertThrows(NotFoundException.class, () -> bookService.get(1L));
+
+    verify(bookRepository).findDTOById(1L);
+  }
+
+  @Test
+  void get_ShouldNotQueryAgain_WhenBookWasRecentlyNotFound() {
+    when(bookRepository.findDTOById(1L)).thenReturn(Optional.empty());
 
+    assertThrows(NotFoundException.class, () -> bookService.get(1L));
     assertThrows(NotFoundException.class, () -> bookService.get(1L));
 
-    verify(bookRepository).findById(1L);
+    verify(bookRepository, times(1)).findDTOById(1L);
   }
 
   @Test
   void create_ShouldSaveBook_WhenIsbnIsUnique() {
     when(bookRepository.existsByIsbn("1234567891234")).thenReturn(false);
-    when(modelMapper.map(bookDTO, Book.class)).thenReturn(book);
     when(bookRepository.save(any(Book.class))).thenReturn(book);
 
     Long result = bookService.create(bookDTO);
 
     assertEquals(1L, result);
     verify(bookRepository).save(any(Book.class));
+    verify(eventPublisher).publishEvent(new BookCreatedEvent(1L, "1234567891234"));
   }
 
   @Test
@@ -113,22 +163,37 @@ class BookServiceTest {
 
   @Test
   void findByIsbn_ShouldReturnBookDTO_WhenBookExists() {
-    when(bookRepository.findByIsbn("1234567891234")).thenReturn(Optional.of(book));
-    when(modelMapper.map(book, BookDTO.class)).thenReturn(bookDTO);
+    when(bookRepository.findIdByIsbn("1234567891234")).thenReturn(Optional.of(1L));
+    when(bookRepository.findDTOById(1L)).thenReturn(Optional.of(bookDTO));
 
     BookDTO result = bookService.findByIsbn("1234567891234");
 
     assertNotNull(result);
     assertEquals("Test Book", result.getTitle());
-    verify(bookRepository).findByIsbn("1234567891234");
+    verify(bookRepository).findIdByIsbn("1234567891234");
+  }
+
+  @Test
+  void findByIsbn_ShouldShareBookCacheEntry_WithGet() {
+    ConcurrentMapCache cache = new ConcurrentMapCache("book");
+    when(cacheManager.getCache("book")).thenReturn(cache);
+    when(bookRepository.findIdByIsbn("1234567891234")).thenReturn(Optional.of(1L));
+    when(bookRepository.findDTOById(1L)).thenReturn(Optional.of(bookDTO));
+
+    bookService.findByIsbn("1234567891234");
+    BookDTO result = bookService.findByIsbn("1234567891234");
+
+    assertEquals(bookDTO, result);
+    assertEquals(bookDTO, cache.get(1L, BookDTO.class));
+    verify(bookRepository).findDTOById(1L);
   }
 
   @Test
   void findByIsbn_ShouldThrowNotFoundException_WhenBookNotFound() {
-    when(bookRepository.findByIsbn("1234567891234")).thenReturn(Optional.empty());
+    when(bookRepository.findIdByIsbn("1234567891234")).thenReturn(Optional.empty());
 
     assertThrows(NotFoundException.class, () -> bookService.findByIsbn("1234567891234"));
 
-    verify(bookRepository).findByIsbn("1234567891234");
+    verify(bookRepository).findIdByIsbn("1234567891234");
   }
 }
@@ -0,0 +1,134 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import planettask.config.ReservationExpiryProperties;
+import planettask.domain.Book;
+import planettask.domain.Reservation;
+import planettask.domain.User;
+import planettask.model.ReservationStatus;
+import planettask.repos.BookRepository;
+import planettask.repos.ReservationRepository;
+import planettask.repos.UserRepository;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ContinuousExpiryEngine.class, ReservationExpiryService.class, BookInventory.class,
+    SimpleMeterRegistry.class})
+@EnableConfigurationProperties(ReservationExpiryProperties.class)
+@TestPropertySource(properties = {
+    "planet.reservation.expiry.continuous.enabled=true",
+    "planet.reservation.expiry.continuous.tick=1h",
+    "planet.reservation.expiry.continuous.batch-size=2"
+})
+class ContinuousExpiryEngineTest {
+
+  @Autowired
+  private ContinuousExpiryEngine engine;
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private Book book;
+
+  private List<Reservation> reservations;
+
+  @BeforeEach
+  void setUp() {
+    User user = userRepository.save(User.builder()
+        .username("continuous")
+        .email("continuous@example.com")
+        .build());
+    book = bookRepository.save(Book.builder()
+        .title("Dune").isbn("9780441172719").author("Frank Herbert")
+        .totalCopies(10).availableCopies(6).build());
+    reservations = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      reservations.add(reservationRepository.save(Reservation.builder()
+          .user(user)
+          .books(Set.of(book))
+          .status(ReservationStatus.ACTIVE)
+          .build()));
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    engine.tick();
+    reservationRepository.deleteAll();
+    bookRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  void tick_ShouldExpireOnlyReservationsPastTheirDeadline() {
+    backdate(reservations.get(0), 8);
+    backdate(reservations.get(1), 8);
+    backdate(reservations.get(2), 10);
+    engine.load();
+
+    assertEquals(3, engine.tick());
+
+    assertEquals(ReservationStatus.ACTIVE, status(reservations.get(3)));
+    assertEquals(ReservationStatus.EXPIRED, status(reservations.get(2)));
+    assertEquals(9, bookRepository.findById(book.getBookId()).orElseThrow().getAvailableCopies());
+    assertEquals(0, engine.tick());
+  }
+
+  @Test
+  void tick_ShouldSkipReservationsNoLongerActive() {
+    backdate(reservations.get(0), 8);
+    engine.load();
+    Reservation canceled = reservationRepository.findById(reservations.get(0).getReservationId())
+        .orElseThrow();
+    canceled.setStatus(ReservationStatus.CANCELED);
+    reservationRepository.save(canceled);
+
+    assertEquals(0, engine.tick());
+    assertEquals(6, bookRepository.findById(book.getBookId()).orElseThrow().getAvailableCopies());
+  }
+
+  @Test
+  void schedule_ShouldIgnoreDeadlinesBeyondHorizon() {
+    engine.schedule(reservations.get(0).getReservationId(), OffsetDateTime.now().plusDays(7));
+    backdate(reservations.get(0), 8);
+
+    assertEquals(0, engine.tick());
+  }
+
+  private void backdate(Reservation reservation, int days) {
+    jdbcTemplate.update("UPDATE reservation SET date_created = ? WHERE reservation_id = ?",
+        OffsetDateTime.now().minusDays(days), reservation.getReservationId());
+  }
+
+  private ReservationStatus status(Reservation reservation) {
+    return reservationRepository.findById(reservation.getReservationId()).orElseThrow()
+        .getStatus();
+  }
+
+}
@@ -0,0 +1,131 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import planettask.domain.Book;
+import planettask.domain.Reservation;
+import planettask.domain.User;
+import planettask.model.BookDTO;
+import planettask.model.ReservationDTO;
+import planettask.model.ReservationStatus;
+import planettask.model.UserDTO;
+
+class DtoMapperTest {
+
+  private final DtoMapper dtoMapper = new DtoMapper();
+
+  // The mapper the services used before; the hand-written one has to agree with it
+  private final ModelMapper modelMapper = new ModelMapper();
+
+  @Test
+  void book_ShouldRoundTripEveryProperty() {
+    final Book book = book(1L);
+
+    final BookDTO bookDTO = dtoMapper.toDTO(book);
+
+    assertBook(book, bookDTO);
+    assertBook(book, modelMapper.map(book, BookDTO.class));
+    assertBook(dtoMapper.toEntity(bookDTO), bookDTO);
+    assertBook(modelMapper.map(bookDTO, Book.class), bookDTO);
+  }
+
+  @Test
+  void user_ShouldRoundTripEveryProperty() {
+    final User user = user(7L);
+
+    final UserDTO userDTO = dtoMapper.toDTO(user);
+
+    assertUser(user, userDTO);
+    assertUser(user, modelMapper.map(user, UserDTO.class));
+    assertUser(dtoMapper.toEntity(userDTO), userDTO);
+    assertUser(modelMapper.map(userDTO, User.class), userDTO);
+    // Reading them would load the user's lazy reservations
+    assertNull(userDTO.getReservations());
+  }
+
+  @Test
+  void reservation_ShouldMapUserAndBooks() {
+    final Reservation reservation = Reservation.builder()
+        .reservationId(3L)
+        .status(ReservationStatus.ACTIVE)
+        .user(user(7L))
+        .books(Set.of(book(1L), book(2L)))
+        .build();
+
+    final ReservationDTO reservationDTO = dtoMapper.toDTO(reservation);
+
+    assertEquals(3L, reservationDTO.getReservationId());
+    assertEquals(ReservationStatus.ACTIVE, reservationDTO.getStatus());
+    assertUser(reservation.getUser(), reservationDTO.getUser());
+    assertEquals(List.of(1L, 2L), reservationDTO.getBooks().stream()
+        .map(BookDTO::getId).sorted().toList());
+
+    final Reservation mapped = dtoMapper.toEntity(reservationDTO);
+
+    assertEquals(3L, mapped.getReservationId());
+    assertEquals(ReservationStatus.ACTIVE, mapped.getStatus());
+    assertUser(mapped.getUser(), reservationDTO.getUser());
+    final List<Book> books = mapped.getBooks().stream()
+        .sorted(Comparator.comparing(Book::getBookId)).toList();
+    assertEquals(2, books.size());
+    assertBook(books.get(0), dtoMapper.toDTO(book(1L)));
+    assertBook(books.get(1), dtoMapper.toDTO(book(2L)));
+  }
+
+  @Test
+  void map_ShouldKeepNulls() {
+    assertNull(dtoMapper.toDTO((Book) null));
+    assertNull(dtoMapper.toDTO((User) null));
+    assertNull(dtoMapper.toDTO((Reservation) null));
+    assertNull(dtoMapper.toEntity((BookDTO) null));
+    assertNull(dtoMapper.toEntity((UserDTO) null));
+    assertNull(dtoMapper.toEntity((ReservationDTO) null));
+
+    final ReservationDTO reservationDTO = dtoMapper.toDTO(new Reservation());
+
+    assertNull(reservationDTO.getUser());
+    assertNull(reservationDTO.getBooks());
+    assertNull(dtoMapper.toEntity(reservationDTO).getBooks());
+  }
+
+  private static Book book(final Long id) {
+    return Book.builder()
+        .bookId(id)
+        .title("Title " + id)
+        .isbn(String.format("978%010d", id))
+        .author("Author " + id)
+        .totalCopies(5)
+        .availableCopies(3)
+        .build();
+  }
+
+  private static User user(final Long id) {
+    return User.builder()
+        .userId(id)
+        .username("user" + id)
+        .email("user" + id + "@example.com")
+        .build();
+  }
+
+  private static void assertBook(final Book book, final BookDTO bookDTO) {
+    assertEquals(book.getBookId(), bookDTO.getId());
+    assertEquals(book.getTitle(), bookDTO.getTitle());
+    assertEquals(book.getIsbn(), bookDTO.getIsbn());
+    assertEquals(book.getAuthor(), bookDTO.getAuthor());
+    assertEquals(book.getTotalCopies(), bookDTO.getTotalCopies());
+    assertEquals(book.getAvailableCopies(), bookDTO.getAvailableCopies());
+  }
+
+  private static void assertUser(final User user, final UserDTO userDTO) {
+    assertEquals(user.getUserId(), userDTO.getUserId());
+    assertEquals(user.getUsername(), userDTO.getUsername());
+    assertEquals(user.getEmail(), userDTO.getEmail());
+  }
+
+}
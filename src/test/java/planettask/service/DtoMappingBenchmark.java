@@ -0,0 +1,124 @@
+package planettask.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import planettask.domain.Book;
+import planettask.domain.Reservation;
+import planettask.domain.User;
+import planettask.model.BookDTO;
+import planettask.model.ReservationDTO;
+import planettask.model.ReservationStatus;
+
+
+/**
+ * Compares {@code ModelMapper}, which the services used before, with {@link DtoMapper} on the
+ * values they map: a single book, a reservation with its user and books, and a page of 50 books,
+ * from entity to DTO and back.
+ * <p>
+ * Not run by the build; after {@code mvn test-compile}, run {@link #main} or
+ * {@code org.openjdk.jmh.Main DtoMappingBenchmark} on the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoMappingBenchmark {
+
+  @Param({"modelmapper", "dtomapper"})
+  private String mapper;
+
+  @Param({"book", "reservation", "page"})
+  private String value;
+
+  private ModelMapper modelMapper;
+  private DtoMapper dtoMapper;
+  private Reservation reservation;
+  private ReservationDTO reservationDTO;
+  private List<Book> books;
+  private List<BookDTO> bookDTOs;
+
+  @Setup
+  public void setUp() {
+    modelMapper = new ModelMapper();
+    dtoMapper = new DtoMapper();
+    final long size = "page".equals(value) ? 50 : 3;
+    books = LongStream.rangeClosed(1, size).mapToObj(DtoMappingBenchmark::book).toList();
+    bookDTOs = books.stream().map(dtoMapper::toDTO).toList();
+    reservation = Reservation.builder()
+        .reservationId(1L)
+        .status(ReservationStatus.ACTIVE)
+        .user(User.builder().userId(1L).username("user1").email("user1@example.com").build())
+        .books(Set.copyOf(books))
+        .build();
+    reservationDTO = dtoMapper.toDTO(reservation);
+  }
+
+  @Benchmark
+  public Object toDTO() {
+    final boolean reflective = "modelmapper".equals(mapper);
+    return switch (value) {
+      case "book" -> reflective
+          ? modelMapper.map(books.get(0), BookDTO.class)
+          : dtoMapper.toDTO(books.get(0));
+      case "reservation" -> reflective
+          ? modelMapper.map(reservation, ReservationDTO.class)
+          : dtoMapper.toDTO(reservation);
+      default -> reflective
+          ? books.stream().map(book -> modelMapper.map(book, BookDTO.class)).toList()
+          : books.stream().map(dtoMapper::toDTO).toList();
+    };
+  }
+
+  @Benchmark
+  public Object toEntity() {
+    final boolean reflective = "modelmapper".equals(mapper);
+    return switch (value) {
+      case "book" -> reflective
+          ? modelMapper.map(bookDTOs.get(0), Book.class)
+          : dtoMapper.toEntity(bookDTOs.get(0));
+      case "reservation" -> reflective
+          ? modelMapper.map(reservationDTO, Reservation.class)
+          : dtoMapper.toEntity(reservationDTO);
+      default -> reflective
+          ? bookDTOs.stream().map(bookDTO -> modelMapper.map(bookDTO, Book.class)).toList()
+          : bookDTOs.stream().map(dtoMapper::toEntity).toList();
+    };
+  }
+
+  private static Book book(final long id) {
+    return Book.builder()
+        .bookId(id)
+        .title("Title " + id)
+        .isbn(String.format("978%010d", id))
+        .author("Author " + id % 10)
+        .totalCopies(5)
+        .availableCopies(3)
+        .build();
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(DtoMappingBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+
+}
@@ -0,0 +1,168 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import planettask.config.HotBookProperties;
+import planettask.domain.Book;
+import planettask.repos.BookRepository;
+import planettask.repos.BookStockSlotRepository;
+
+@DataJpaTest
+@Import({HotBookManager.class, BookInventory.class})
+@EnableConfigurationProperties(HotBookProperties.class)
+@TestPropertySource(properties = {
+    "planet.inventory.hot-books.enabled=true",
+    "planet.inventory.hot-books.slots=4"
+})
+class HotBookManagerTest {
+
+  @Autowired
+  private HotBookManager hotBookManager;
+
+  @Autowired
+  private BookInventory bookInventory;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private BookStockSlotRepository slotRepository;
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private HotBookProperties properties;
+
+  private Book book;
+
+  @BeforeEach
+  void setUp() {
+    book = bookRepository.save(Book.builder()
+        .title("Project Hail Mary")
+        .isbn("9780593135204")
+        .author("Andy Weir")
+        .totalCopies(10)
+        .availableCopies(6)
+        .build());
+    entityManager.flush();
+  }
+
+  @Test
+  void promote_ShouldSpreadAvailableCopiesOverSlots() {
+    hotBookManager.promote(book.getBookId());
+    entityManager.flush();
+    entityManager.clear();
+
+    Book promoted = bookRepository.findById(book.getBookId()).orElseThrow();
+    assertTrue(promoted.isSharded());
+    assertEquals(0, promoted.getAvailableCopies());
+    assertEquals(4, slotRepository.countByBookId(book.getBookId()));
+    assertEquals(6, slotRepository.sumAvailableCopies(book.getBookId()));
+    assertEquals(6, bookInventory.availableCopies(promoted));
+  }
+
+  @Test
+  void take_ShouldDrainSlotsUntilNoCopyIsLeft() {
+    hotBookManager.promote(book.getBookId());
+    entityManager.flush();
+
+    for (int i = 0; i < 6; i++) {
+      assertTrue(bookInventory.take(List.of(book.getBookId())));
+    }
+    assertFalse(bookInventory.take(List.of(book.getBookId())));
+
+    bookInventory.release(List.of(book.getBookId()));
+    assertEquals(1, slotRepository.sumAvailableCopies(book.getBookId()));
+  }
+
+  @Test
+  void demote_ShouldFoldSlotsBackIntoTheBookRow() {
+    hotBookManager.promote(book.getBookId());
+    entityManager.flush();
+    bookInventory.take(List.of(book.getBookId()));
+
+    hotBookManager.demote(book.getBookId());
+    entityManager.flush();
+    entityManager.clear();
+
+    Book demoted = bookRepository.findById(book.getBookId()).orElseThrow();
+    assertFalse(demoted.isSharded());
+    assertEquals(5, demoted.getAvailableCopies());
+    assertEquals(0, slotRepository.countByBookId(book.getBookId()));
+    assertFalse(hotBookManager.isSharded(book.getBookId()));
+  }
+
+  @Test
+  void take_ShouldReachEverySlot_AfterSlotsSettingIsLowered() {
+    hotBookManager.promote(book.getBookId());
+    entityManager.flush();
+    properties.setSlots(2);
+    try {
+      for (int i = 0; i < 6; i++) {
+        assertTrue(hotBookManager.take(book.getBookId()));
+      }
+      assertFalse(hotBookManager.take(book.getBookId()));
+    } finally {
+      properties.setSlots(4);
+    }
+  }
+
+  @Test
+  void release_ShouldOnlyUseExistingSlots_AfterSlotsSettingIsRaised() {
+    hotBookManager.promote(book.getBookId());
+    entityManager.flush();
+    properties.setSlots(16);
+    try {
+      for (int i = 0; i < 20; i++) {
+        assertTrue(hotBookManager.release(book.getBookId()));
+      }
+    } finally {
+      properties.setSlots(4);
+    }
+
+    assertEquals(26, slotRepository.sumAvailableCopies(book.getBookId()));
+  }
+
+  @Test
+  void evaluate_ShouldDemoteBookItPromoted_WhenAttemptsDrop() {
+    hotBookManager.promote(book.getBookId());
+    entityManager.flush();
+
+    hotBookManager.evaluate();
+    entityManager.flush();
+    entityManager.clear();
+
+    assertFalse(bookRepository.findById(book.getBookId()).orElseThrow().isSharded());
+  }
+
+  @Test
+  void evaluate_ShouldLeaveBookPromotedByAnotherNode() {
+    new HotBookManager(bookRepository, slotRepository, transactionTemplate, properties)
+        .promote(book.getBookId());
+    entityManager.flush();
+
+    // This node sees none of the attempts that made the book hot on the other one
+    hotBookManager.evaluate();
+    entityManager.flush();
+    entityManager.clear();
+
+    assertTrue(bookRepository.findById(book.getBookId()).orElseThrow().isSharded());
+    assertTrue(hotBookManager.isSharded(book.getBookId()));
+  }
+}
@@ -0,0 +1,189 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import planettask.config.IdempotencyProperties;
+import planettask.model.ReservationDTO;
+
+class IdempotencyExecutorTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private IdempotencyProperties properties;
+  private InMemoryIdempotencyStore store;
+  private IdempotencyExecutor executor;
+  private AtomicInteger calls;
+
+  @BeforeEach
+  void setUp() {
+    properties = new IdempotencyProperties();
+    properties.setInFlightPollInterval(Duration.ofMillis(10));
+    meterRegistry = new SimpleMeterRegistry();
+    store = new InMemoryIdempotencyStore(properties);
+    executor = new IdempotencyExecutor(store, new ObjectMapper(), properties, meterRegistry);
+    calls = new AtomicInteger();
+  }
+
+  @Test
+  void execute_ShouldReplayStoredResponse_WhenKeyIsReused() throws Exception {
+    ResponseEntity<ReservationDTO> first = executor.execute("reserve", "1", "key-1", "1:[2]",
+        ReservationDTO.class, this::reserve);
+    ResponseEntity<ReservationDTO> replay = executor.execute("reserve", "1", "key-1", "1:[2]",
+        ReservationDTO.class, this::reserve);
+
+    assertEquals(1, calls.get());
+    assertEquals(HttpStatus.CREATED, replay.getStatusCode());
+    assertEquals(first.getBody().getReservationId(), replay.getBody().getReservationId());
+    assertEquals("true", replay.getHeaders().getFirst(IdempotencyExecutor.REPLAYED_HEADER));
+    assertNull(first.getHeaders().getFirst(IdempotencyExecutor.REPLAYED_HEADER));
+    assertEquals(1.0, meterRegistry.counter("idempotency.replays", "operation", "reserve").count());
+  }
+
+  @Test
+  void execute_ShouldRunEveryTime_WhenNoKeyIsGiven() throws Exception {
+    executor.execute("reserve", "1", null, "1:[2]", ReservationDTO.class, this::reserve);
+    executor.execute("reserve", "1", null, "1:[2]", ReservationDTO.class, this::reserve);
+
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void execute_ShouldReject_WhenKeyIsReusedForDifferentRequest() throws Exception {
+    executor.execute("reserve", "1", "key-1", "1:[2]", ReservationDTO.class, this::reserve);
+
+    ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+        () -> executor.execute("reserve", "1", "key-1", "1:[3]", ReservationDTO.class,
+            this::reserve));
+
+    assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ex.getStatusCode());
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void execute_ShouldRunAgain_WhenFirstAttemptFailed() throws Exception {
+    assertThrows(IllegalStateException.class,
+        () -> executor.execute("reserve", "1", "key-1", "1:[2]", ReservationDTO.class, () -> {
+          throw new IllegalStateException("database unavailable");
+        }));
+
+    executor.execute("reserve", "1", "key-1", "1:[2]", ReservationDTO.class, this::reserve);
+
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void execute_ShouldWaitForInFlightRequest_WhenDuplicateArrivesConcurrently() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<ResponseEntity<ReservationDTO>> first = CompletableFuture.supplyAsync(() -> {
+      try {
+        return executor.execute("reserve", "1", "key-1", "1:[2]", ReservationDTO.class, () -> {
+          started.countDown();
+          release.await();
+          return reserve();
+        });
+      } catch (Exception ex) {
+        throw new IllegalStateException(ex);
+      }
+    });
+    started.await();
+    CompletableFuture<ResponseEntity<ReservationDTO>> duplicate = CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            return executor.execute("reserve", "1", "key-1", "1:[2]", ReservationDTO.class,
+                this::reserve);
+          } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+          }
+        });
+
+    release.countDown();
+
+    assertEquals(first.get(5, TimeUnit.SECONDS).getBody().getReservationId(),
+        duplicate.get(5, TimeUnit.SECONDS).getBody().getReservationId());
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void execute_ShouldWaitForRequestOnAnotherNode_WhenDuplicateArrivesConcurrently()
+      throws Exception {
+    // A second node sharing the store, as all nodes share Redis
+    IdempotencyExecutor otherNode = new IdempotencyExecutor(store, new ObjectMapper(),
+        properties, meterRegistry);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<ResponseEntity<ReservationDTO>> first = CompletableFuture.supplyAsync(() -> {
+      try {
+        return executor.execute("reserve", "1", "key-1", "1:[2]", ReservationDTO.class, () -> {
+          started.countDown();
+          release.await();
+          return reserve();
+        });
+      } catch (Exception ex) {
+        throw new IllegalStateException(ex);
+      }
+    });
+    started.await();
+    CompletableFuture<ResponseEntity<ReservationDTO>> duplicate = CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            return otherNode.execute("reserve", "1", "key-1", "1:[2]", ReservationDTO.class,
+                this::reserve);
+          } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+          }
+        });
+
+    Thread.sleep(50);
+    release.countDown();
+
+    ResponseEntity<ReservationDTO> replay = duplicate.get(5, TimeUnit.SECONDS);
+    assertEquals(first.get(5, TimeUnit.SECONDS).getBody().getReservationId(),
+        replay.getBody().getReservationId());
+    assertEquals("true", replay.getHeaders().getFirst(IdempotencyExecutor.REPLAYED_HEADER));
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void execute_ShouldRejectDuplicateOnAnotherNode_WhenRequestRunsPastTimeout() {
+    properties.setInFlightTimeout(Duration.ofMillis(50));
+    store.claim("reserve:1:key-1", Duration.ofMinutes(1));
+
+    ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+        () -> executor.execute("reserve", "1", "key-1", "1:[2]", ReservationDTO.class,
+            this::reserve));
+
+    assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+    assertEquals(0, calls.get());
+  }
+
+  @Test
+  void execute_ShouldNotReplayAnotherUsersResponse_WhenKeyIsReused() throws Exception {
+    executor.execute("reserve", "1", "key-1", "1:[2]", ReservationDTO.class, this::reserve);
+    ResponseEntity<ReservationDTO> other = executor.execute("reserve", "2", "key-1", "2:[2]",
+        ReservationDTO.class, this::reserve);
+
+    assertEquals(2, calls.get());
+    assertNull(other.getHeaders().getFirst(IdempotencyExecutor.REPLAYED_HEADER));
+  }
+
+  private ResponseEntity<ReservationDTO> reserve() {
+    ReservationDTO reservation = new ReservationDTO();
+    reservation.setReservationId((long) calls.incrementAndGet());
+    return ResponseEntity.status(HttpStatus.CREATED).body(reservation);
+  }
+
+}
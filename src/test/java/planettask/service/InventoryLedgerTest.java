@@ -0,0 +1,105 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import planettask.config.InventoryLedgerProperties;
+import planettask.domain.Book;
+import planettask.domain.Reservation;
+import planettask.domain.User;
+import planettask.model.ReservationStatus;
+import planettask.repos.BookRepository;
+
+@DataJpaTest
+@Import(InventoryLedger.class)
+@EnableConfigurationProperties(InventoryLedgerProperties.class)
+@TestPropertySource(properties = {
+    "planet.inventory.ledger.enabled=true",
+    "planet.inventory.ledger.flush-interval=1h"
+})
+class InventoryLedgerTest {
+
+  @Autowired
+  private InventoryLedger ledger;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  private Book book;
+
+  @BeforeEach
+  void setUp() {
+    // The ledger outlives each test's rolled-back transaction, so drop deltas left over by others
+    ledger.flush();
+    book = bookRepository.save(Book.builder()
+        .title("Dune")
+        .isbn("9780441172719")
+        .author("Frank Herbert")
+        .totalCopies(2)
+        .availableCopies(2)
+        .build());
+    entityManager.flush();
+  }
+
+  @Test
+  void tryTake_ShouldTakeAllOrNothing() {
+    Book other = bookRepository.save(Book.builder()
+        .title("Emma")
+        .isbn("9780141439587")
+        .author("Jane Austen")
+        .totalCopies(1)
+        .availableCopies(0)
+        .build());
+
+    assertFalse(ledger.tryTake(List.of(book.getBookId(), other.getBookId())));
+    assertEquals(2, ledger.availableCopies(book.getBookId()));
+
+    assertTrue(ledger.tryTake(List.of(book.getBookId())));
+    assertTrue(ledger.tryTake(List.of(book.getBookId())));
+    assertFalse(ledger.tryTake(List.of(book.getBookId())));
+    assertEquals(0, ledger.availableCopies(book.getBookId()));
+  }
+
+  @Test
+  void flush_ShouldWriteAggregatedDeltas() {
+    ledger.tryTake(List.of(book.getBookId()));
+    ledger.tryTake(List.of(book.getBookId()));
+    ledger.release(List.of(book.getBookId()));
+
+    assertEquals(1, ledger.flush());
+    assertEquals(0, ledger.flush());
+
+    entityManager.clear();
+    assertEquals(1, bookRepository.findById(book.getBookId()).orElseThrow().getAvailableCopies());
+  }
+
+  @Test
+  void reconcile_ShouldRecomputeCopiesFromActiveReservations() {
+    User user = entityManager.persist(User.builder().username("reader").email("reader@example.com").build());
+    entityManager.persist(Reservation.builder()
+        .user(user)
+        .books(Set.of(book))
+        .status(ReservationStatus.ACTIVE)
+        .build());
+    entityManager.flush();
+
+    ledger.reconcile();
+
+    assertEquals(1, ledger.availableCopies(book.getBookId()));
+    assertEquals(1, bookRepository.findById(book.getBookId()).orElseThrow().getAvailableCopies());
+  }
+}
@@ -0,0 +1,85 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import planettask.config.InventoryRetryProperties;
+import planettask.domain.Book;
+
+class InventoryRetryExecutorTest {
+
+  private InventoryRetryProperties properties;
+  private SimpleMeterRegistry meterRegistry;
+  private InventoryRetryExecutor executor;
+
+  @BeforeEach
+  void setUp() {
+    properties = new InventoryRetryProperties();
+    properties.setMaxAttempts(3);
+    properties.setInitialBackoff(Duration.ofMillis(1));
+    properties.setMaxBackoff(Duration.ofMillis(2));
+    meterRegistry = new SimpleMeterRegistry();
+    executor = new InventoryRetryExecutor(properties, meterRegistry);
+  }
+
+  @Test
+  void execute_ShouldRetryUntilSuccess_WhenConflictIsTransient() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+
+    String result = executor.execute("reserve", () -> {
+      if (calls.incrementAndGet() < 3) {
+        throw new ObjectOptimisticLockingFailureException(Book.class, 1L);
+      }
+      return "done";
+    });
+
+    assertEquals("done", result);
+    assertEquals(3, calls.get());
+    assertEquals(2.0, meterRegistry.counter("inventory.retry.conflicts", "operation", "reserve").count());
+    assertEquals(2.0, meterRegistry.counter("inventory.retry.attempts", "operation", "reserve").count());
+  }
+
+  @Test
+  void execute_ShouldRethrow_WhenAttemptsAreExhausted() {
+    AtomicInteger calls = new AtomicInteger();
+
+    assertThrows(ObjectOptimisticLockingFailureException.class, () -> executor.execute("cancel", () -> {
+      calls.incrementAndGet();
+      throw new ObjectOptimisticLockingFailureException(Book.class, 1L);
+    }));
+
+    assertEquals(3, calls.get());
+    assertEquals(1.0, meterRegistry.counter("inventory.retry.exhausted", "operation", "cancel").count());
+  }
+
+  @Test
+  void execute_ShouldRunOnce_WhenRetriesAreDisabled() {
+    properties.setEnabled(false);
+    AtomicInteger calls = new AtomicInteger();
+
+    assertThrows(ObjectOptimisticLockingFailureException.class, () -> executor.execute("reserve", () -> {
+      calls.incrementAndGet();
+      throw new ObjectOptimisticLockingFailureException(Book.class, 1L);
+    }));
+
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void execute_ShouldNotRetry_OtherExceptions() {
+    AtomicInteger calls = new AtomicInteger();
+
+    assertThrows(IllegalStateException.class, () -> executor.execute("reserve", () -> {
+      calls.incrementAndGet();
+      throw new IllegalStateException("boom");
+    }));
+
+    assertEquals(1, calls.get());
+  }
+}
@@ -0,0 +1,113 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.web.server.ResponseStatusException;
+import planettask.domain.Book;
+import planettask.repos.BookRepository;
+import planettask.service.KeysetScroller.Window;
+
+@DataJpaTest
+class KeysetScrollerTest {
+
+  private static final KeysetScroller<Book> SCROLLER = new KeysetScroller<>(Book.class,
+      "bookId", Map.of("bookId", Long.class, "title", String.class, "totalCopies", Integer.class));
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @BeforeEach
+  void setUp() {
+    bookRepository.deleteAll();
+    // Repeated titles and copy counts, so slices have to break ties on the id
+    final String[] titles = {"Dune", "Emma", "Dune", "Ulysses", "Emma", "Dune", "Beloved"};
+    for (int i = 0; i < titles.length; i++) {
+      bookRepository.save(Book.builder()
+          .title(titles[i])
+          .isbn(String.valueOf(9_780_000_000_000L + i))
+          .author("Author")
+          .totalCopies(1 + i % 3)
+          .availableCopies(1)
+          .build());
+    }
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  @Test
+  void scroll_ShouldVisitEveryBookOnceInSortOrder_ByTitle() {
+    final List<Long> visited = scrollAll("title", Direction.ASC, 3);
+
+    assertEquals(ids(bookRepository.findAll(Sort.by("title", "bookId"))), visited);
+  }
+
+  @Test
+  void scroll_ShouldVisitEveryBookOnceInSortOrder_Descending() {
+    final List<Long> visited = scrollAll("totalCopies", Direction.DESC, 2);
+
+    assertEquals(ids(bookRepository.findAll(Sort.by(Direction.DESC, "totalCopies", "bookId"))),
+        visited);
+  }
+
+  @Test
+  void scroll_ShouldEndWithoutCursor_OnLastSlice() {
+    final Window window = scroll("bookId", Direction.ASC, 10, null);
+
+    assertEquals(7, window.ids().size());
+    assertFalse(window.hasNext());
+    assertNull(window.nextCursor());
+  }
+
+  @Test
+  void scroll_ShouldReject_CursorOfAnotherSortOrUnknownProperty() {
+    final String cursor = scroll("title", Direction.ASC, 2, null).nextCursor();
+
+    assertThrows(ResponseStatusException.class,
+        () -> scroll("title", Direction.DESC, 2, cursor));
+    assertThrows(ResponseStatusException.class,
+        () -> scroll("title", Direction.ASC, 2, "not a cursor"));
+    assertThrows(ResponseStatusException.class,
+        () -> scroll("isbn", Direction.ASC, 2, null));
+  }
+
+  private List<Long> scrollAll(final String property, final Direction direction, final int size) {
+    final List<Long> visited = new ArrayList<>();
+    String cursor = null;
+    do {
+      final Window window = scroll(property, direction, size, cursor);
+      visited.addAll(window.ids());
+      cursor = window.nextCursor();
+    } while (cursor != null);
+    // Only ids and sort keys were read, never the entities themselves
+    assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics()
+        .getEntityCount());
+    return visited;
+  }
+
+  private Window scroll(final String property, final Direction direction, final int size,
+      final String cursor) {
+    return SCROLLER.scroll(entityManager.getEntityManager(), property, direction, size, cursor);
+  }
+
+  private static List<Long> ids(final List<Book> books) {
+    return books.stream().map(Book::getBookId).toList();
+  }
+
+}
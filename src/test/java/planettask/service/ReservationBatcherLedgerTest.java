@@ -0,0 +1,134 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import planettask.cache.CacheMultiGet;
+import planettask.cache.PageCache;
+import planettask.config.GroupCommitProperties;
+import planettask.config.InventoryLedgerProperties;
+import planettask.domain.Book;
+import planettask.domain.User;
+import planettask.repos.BookRepository;
+import planettask.repos.ReservationRepository;
+import planettask.repos.UserRepository;
+
+/**
+ * A request of a batch that fails after taking its copies from the ledger, while the batch
+ * itself commits.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReservationBatcher.class, ReservationService.class, DtoMapper.class,
+    BookInventory.class, InventoryLedger.class, PageCache.class, CacheMultiGet.class,
+    NoOpCacheManager.class, SimpleMeterRegistry.class,
+    ReservationBatcherLedgerTest.FailingReservations.class})
+@EnableConfigurationProperties({GroupCommitProperties.class, InventoryLedgerProperties.class})
+@TestPropertySource(properties = {
+    "planet.reservation.group-commit.enabled=true",
+    "planet.reservation.group-commit.max-wait=50ms",
+    "planet.inventory.ledger.enabled=true",
+    "planet.inventory.ledger.flush-interval=1h"
+})
+class ReservationBatcherLedgerTest {
+
+  @Autowired
+  private ReservationBatcher reservationBatcher;
+
+  @Autowired
+  private InventoryLedger ledger;
+
+  @Autowired
+  private FailingReservations failingReservations;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  private Book book;
+
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    user = userRepository.save(User.builder()
+        .username("batcher")
+        .email("batcher@example.com")
+        .build());
+    book = bookRepository.save(Book.builder()
+        .title("Dune")
+        .isbn("9780441172719")
+        .author("Frank Herbert")
+        .totalCopies(2)
+        .availableCopies(2)
+        .build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    ledger.flush();
+    reservationRepository.deleteAll();
+    bookRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  void reserve_ShouldGiveBackCopiesAndDropEvents_OfFailedRequest() throws Exception {
+    failingReservations.failNext.set(true);
+
+    assertThrows(IllegalStateException.class,
+        () -> reservationBatcher.reserve(user.getUserId(), Set.of(book.getBookId())));
+    reservationBatcher.reserve(user.getUserId(), Set.of(book.getBookId()));
+
+    assertEquals(1, reservationRepository.count());
+    assertEquals(1, ledger.availableCopies(book.getBookId()));
+    assertEquals(List.of(List.of(book.getBookId())), failingReservations.taken);
+  }
+
+  /**
+   * Fails the next reservation once it has taken its copies, and records the copies taken by
+   * committed transactions.
+   */
+  static class FailingReservations {
+
+    final AtomicBoolean failNext = new AtomicBoolean();
+    final List<List<Long>> taken = new CopyOnWriteArrayList<>();
+
+    @EventListener
+    public void onReservationCreated(final ReservationCreatedEvent event) {
+      if (failNext.getAndSet(false)) {
+        throw new IllegalStateException("Reservation " + event.reservationId() + " failed");
+      }
+    }
+
+    @TransactionalEventListener
+    public void onCopiesTaken(final BookCopiesTakenEvent event) {
+      taken.add(List.copyOf(event.bookIds()));
+    }
+
+  }
+
+}
@@ -0,0 +1,122 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import planettask.cache.CacheMultiGet;
+import planettask.cache.PageCache;
+import planettask.config.GroupCommitProperties;
+import planettask.domain.Book;
+import planettask.domain.User;
+import planettask.model.ReservationDTO;
+import planettask.repos.BookRepository;
+import planettask.repos.ReservationRepository;
+import planettask.repos.UserRepository;
+import planettask.util.NotFoundException;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReservationBatcher.class, ReservationService.class, DtoMapper.class,
+    BookInventory.class, PageCache.class, CacheMultiGet.class, NoOpCacheManager.class,
+    SimpleMeterRegistry.class})
+@EnableConfigurationProperties(GroupCommitProperties.class)
+@TestPropertySource(properties = {
+    "planet.reservation.group-commit.enabled=true",
+    "planet.reservation.group-commit.max-wait=50ms"
+})
+class ReservationBatcherTest {
+
+  @Autowired
+  private ReservationBatcher reservationBatcher;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  private Book book;
+
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    user = userRepository.save(User.builder()
+        .username("batcher")
+        .email("batcher@example.com")
+        .build());
+    book = bookRepository.save(Book.builder()
+        .title("Dune")
+        .isbn("9780441172719")
+        .author("Frank Herbert")
+        .totalCopies(2)
+        .availableCopies(2)
+        .build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    reservationRepository.deleteAll();
+    bookRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  void reserve_ShouldIsolateFailedRequestsWithinBatch() throws Exception {
+    final ExecutorService callers = Executors.newFixedThreadPool(3);
+    final List<Future<ReservationDTO>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < 3; i++) {
+        final Callable<ReservationDTO> reserve =
+            () -> reservationBatcher.reserve(user.getUserId(), Set.of(book.getBookId()));
+        results.add(callers.submit(reserve));
+      }
+      int reserved = 0;
+      int rejected = 0;
+      for (Future<ReservationDTO> result : results) {
+        try {
+          result.get();
+          reserved++;
+        } catch (ExecutionException ex) {
+          rejected++;
+        }
+      }
+      assertEquals(2, reserved);
+      assertEquals(1, rejected);
+    } finally {
+      callers.shutdown();
+    }
+    assertEquals(2, reservationRepository.count());
+    assertEquals(0, bookRepository.findById(book.getBookId()).orElseThrow().getAvailableCopies());
+  }
+
+  @Test
+  void reserve_ShouldRethrowServiceException() {
+    assertThrows(NotFoundException.class,
+        () -> reservationBatcher.reserve(user.getUserId(), Set.of(-1L)));
+  }
+
+}
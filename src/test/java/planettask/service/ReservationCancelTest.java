@@ -0,0 +1,186 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import planettask.cache.CacheMultiGet;
+import planettask.cache.PageCache;
+import planettask.config.ReservationExpiryProperties;
+import planettask.domain.Book;
+import planettask.domain.Reservation;
+import planettask.domain.User;
+import planettask.model.ReservationStatus;
+import planettask.repos.BookRepository;
+import planettask.repos.ReservationRepository;
+import planettask.repos.UserRepository;
+
+/**
+ * A cancel racing another cancel or the expiry of the same reservation. The first transaction
+ * is held open until the second has read the reservation as active and is waiting on its row, so
+ * both would give the copies back if the status were only checked on the read.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReservationService.class, ReservationExpiryService.class, DtoMapper.class,
+    BookInventory.class, PageCache.class, CacheMultiGet.class, NoOpCacheManager.class,
+    SimpleMeterRegistry.class})
+@EnableConfigurationProperties(ReservationExpiryProperties.class)
+class ReservationCancelTest {
+
+  @Autowired
+  private ReservationService reservationService;
+
+  @Autowired
+  private ReservationExpiryService reservationExpiryService;
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  private Book book;
+
+  private Long reservationId;
+
+  @BeforeEach
+  void setUp() {
+    final User user = userRepository.save(User.builder()
+        .username("cancel")
+        .email("cancel@example.com")
+        .build());
+    book = bookRepository.save(Book.builder()
+        .title("Dune").isbn("9780441172719").author("Frank Herbert")
+        .totalCopies(5).availableCopies(4).build());
+    reservationId = reservationRepository.save(Reservation.builder()
+        .user(user)
+        .books(Set.of(book))
+        .status(ReservationStatus.ACTIVE)
+        .build()).getReservationId();
+  }
+
+  @AfterEach
+  void tearDown() {
+    reservationRepository.deleteAll();
+    bookRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  void cancelReservation_ShouldReleaseCopiesOnce_WhenCanceledTwiceConcurrently() throws Exception {
+    assertThrows(UnsupportedOperationException.class,
+        () -> race(() -> reservationService.cancelReservation(reservationId)));
+
+    assertEquals(ReservationStatus.CANCELED, status());
+    assertEquals(5, availableCopies());
+  }
+
+  @Test
+  void cancelReservation_ShouldReleaseCopiesOnce_WhenExpiredConcurrently() throws Exception {
+    assertThrows(UnsupportedOperationException.class,
+        () -> race(() -> reservationExpiryService.expire(List.of(reservationId))));
+
+    assertEquals(ReservationStatus.EXPIRED, status());
+    assertEquals(5, availableCopies());
+  }
+
+  @Test
+  void expire_ShouldSkipReservation_WhenCanceledConcurrently() throws Exception {
+    final CountDownLatch canceled = new CountDownLatch(1);
+    final CountDownLatch expiring = new CountDownLatch(1);
+    try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+      final Future<?> cancel = executor.submit(() -> transactionTemplate.executeWithoutResult(
+          status -> {
+            reservationService.cancelReservation(reservationId);
+            canceled.countDown();
+            await(expiring);
+          }));
+      canceled.await();
+      final Future<Integer> expire = executor.submit(() -> {
+        expiring.countDown();
+        return reservationExpiryService.expire(List.of(reservationId));
+      });
+
+      cancel.get();
+      assertEquals(0, expire.get());
+    }
+
+    assertEquals(ReservationStatus.CANCELED, status());
+    assertEquals(5, availableCopies());
+  }
+
+  /**
+   * Runs {@code first} in a transaction that commits only once a cancel of the same reservation
+   * has started, and rethrows what that cancel threw.
+   */
+  private void race(final Runnable first) throws Exception {
+    final CountDownLatch done = new CountDownLatch(1);
+    final CountDownLatch canceling = new CountDownLatch(1);
+    try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+      final Future<?> winner = executor.submit(() -> transactionTemplate.executeWithoutResult(
+          status -> {
+            first.run();
+            done.countDown();
+            await(canceling);
+          }));
+      done.await();
+      final Future<?> loser = executor.submit(() -> {
+        canceling.countDown();
+        reservationService.cancelReservation(reservationId);
+      });
+
+      winner.get();
+      try {
+        loser.get();
+      } catch (ExecutionException e) {
+        throw (Exception) e.getCause();
+      }
+    }
+  }
+
+  /**
+   * Gives the other thread time to read the reservation and block on its row lock.
+   */
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await();
+      Thread.sleep(200);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private ReservationStatus status() {
+    return reservationRepository.findById(reservationId).orElseThrow().getStatus();
+  }
+
+  private int availableCopies() {
+    return bookRepository.findById(book.getBookId()).orElseThrow().getAvailableCopies();
+  }
+
+}
@@ -0,0 +1,141 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import planettask.config.ReservationExpiryProperties;
+import planettask.domain.Book;
+import planettask.domain.JobCheckpoint;
+import planettask.domain.Reservation;
+import planettask.domain.User;
+import planettask.model.ReservationStatus;
+import planettask.repos.BookRepository;
+import planettask.repos.JobCheckpointRepository;
+import planettask.repos.ReservationRepository;
+import planettask.repos.UserRepository;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReservationExpiryService.class, BookInventory.class})
+@EnableConfigurationProperties(ReservationExpiryProperties.class)
+@TestPropertySource(properties = "planet.reservation.expiry.chunk-size=2")
+class ReservationExpiryServiceTest {
+
+  @Autowired
+  private ReservationExpiryService reservationExpiryService;
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private JobCheckpointRepository jobCheckpointRepository;
+
+  private Book dune;
+
+  private Book emma;
+
+  private List<Reservation> reservations;
+
+  @BeforeEach
+  void setUp() {
+    User user = userRepository.save(User.builder()
+        .username("expiry")
+        .email("expiry@example.com")
+        .build());
+    dune = bookRepository.save(Book.builder()
+        .title("Dune").isbn("9780441172719").author("Frank Herbert")
+        .totalCopies(10).availableCopies(5).build());
+    emma = bookRepository.save(Book.builder()
+        .title("Emma").isbn("9780141439587").author("Jane Austen")
+        .totalCopies(10).availableCopies(8).build());
+    reservations = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      reservations.add(reservationRepository.save(Reservation.builder()
+          .user(user)
+          .books(i < 2 ? Set.of(dune, emma) : Set.of(dune))
+          .status(ReservationStatus.ACTIVE)
+          .build()));
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    jobCheckpointRepository.deleteAll();
+    reservationRepository.deleteAll();
+    bookRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  void expireBefore_ShouldExpireAllChunksAndRestoreCopies() {
+    long expired = reservationExpiryService.expireBefore(OffsetDateTime.now().plusMinutes(1));
+
+    assertEquals(5, expired);
+    assertEquals(5, reservationRepository.findAll().stream()
+        .filter(reservation -> reservation.getStatus() == ReservationStatus.EXPIRED).count());
+    assertEquals(10, bookRepository.findById(dune.getBookId()).orElseThrow().getAvailableCopies());
+    assertEquals(10, bookRepository.findById(emma.getBookId()).orElseThrow().getAvailableCopies());
+    assertFalse(jobCheckpointRepository.existsById(ReservationExpiryService.JOB_NAME));
+  }
+
+  @Test
+  void expireBefore_ShouldSkipNewerReservations() {
+    long expired = reservationExpiryService.expireBefore(OffsetDateTime.now().minusDays(1));
+
+    assertEquals(0, expired);
+    assertEquals(5, bookRepository.findById(dune.getBookId()).orElseThrow().getAvailableCopies());
+  }
+
+  @Test
+  void expireBefore_ShouldResumeFromCheckpoint() {
+    OffsetDateTime cutoff = OffsetDateTime.now().plusMinutes(1);
+    jobCheckpointRepository.save(JobCheckpoint.builder()
+        .jobName(ReservationExpiryService.JOB_NAME)
+        .cutoff(cutoff)
+        .lastProcessedId(reservations.get(1).getReservationId())
+        .build());
+
+    long expired = reservationExpiryService.expireBefore(OffsetDateTime.now().minusDays(1));
+
+    assertEquals(3, expired);
+    assertEquals(ReservationStatus.ACTIVE, reservationRepository
+        .findById(reservations.get(0).getReservationId()).orElseThrow().getStatus());
+    assertEquals(8, bookRepository.findById(dune.getBookId()).orElseThrow().getAvailableCopies());
+    assertEquals(8, bookRepository.findById(emma.getBookId()).orElseThrow().getAvailableCopies());
+  }
+
+  @Test
+  void expireRange_ShouldOnlyExpireIdsWithinRange() {
+    long expired = reservationExpiryService.expireRange("partition-test",
+        OffsetDateTime.now().plusMinutes(1), reservations.get(0).getReservationId(),
+        reservations.get(2).getReservationId());
+
+    assertEquals(2, expired);
+    assertEquals(ReservationStatus.ACTIVE, reservationRepository
+        .findById(reservations.get(0).getReservationId()).orElseThrow().getStatus());
+    assertEquals(ReservationStatus.ACTIVE, reservationRepository
+        .findById(reservations.get(3).getReservationId()).orElseThrow().getStatus());
+    assertFalse(jobCheckpointRepository.existsById("partition-test"));
+  }
+
+}
@@ -0,0 +1,165 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort.Direction;
+import planettask.cache.CacheMultiGet;
+import planettask.cache.PageCache;
+import planettask.domain.Book;
+import planettask.domain.Reservation;
+import planettask.domain.User;
+import planettask.model.ReservationDTO;
+import planettask.model.ReservationStatus;
+import planettask.repos.ReservationRepository;
+
+/**
+ * Statements issued per read of reservations, so that an association loaded row by row fails
+ * the build, and for the reads behind endpoints, that no entity is loaded at all. Every read
+ * starts from an empty persistence context and with caching disabled, so the reads behind
+ * endpoints also query the current copies of the books, which they otherwise find cached.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@Import({ReservationService.class, DtoMapper.class, BookInventory.class, PageCache.class,
+    CacheMultiGet.class, NoOpCacheManager.class, SimpleMeterRegistry.class})
+class ReservationFetchPlanTest {
+
+  private static final int USERS = 3;
+  private static final int RESERVATIONS_PER_USER = 4;
+
+  @Autowired
+  private ReservationService reservationService;
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private Long userId;
+  private Long reservationId;
+
+  @BeforeEach
+  void setUp() {
+    final Book[] books = new Book[3];
+    for (int i = 0; i < books.length; i++) {
+      books[i] = entityManager.persist(Book.builder()
+          .title("Book " + i)
+          .isbn(String.valueOf(9_780_000_000_000L + i))
+          .author("Author")
+          .totalCopies(100)
+          .availableCopies(100)
+          .build());
+    }
+    for (int u = 0; u < USERS; u++) {
+      final User user = entityManager.persist(User.builder()
+          .username("reader" + u)
+          .email("reader" + u + "@example.com")
+          .build());
+      userId = user.getUserId();
+      for (int r = 0; r < RESERVATIONS_PER_USER; r++) {
+        reservationId = entityManager.persist(Reservation.builder()
+            .user(user)
+            .books(Set.of(books[r % books.length], books[(r + 1) % books.length]))
+            .status(ReservationStatus.ACTIVE)
+            .build()).getReservationId();
+      }
+    }
+    entityManager.flush();
+  }
+
+  @Test
+  void findAll_ShouldReadIdsThenRowsThenCopies_WithoutLoadingEntities() {
+    final List<ReservationDTO> page = projected(3,
+        () -> reservationService.findAll(PageRequest.of(0, 10)));
+
+    assertEquals(10, page.size());
+    assertEquals(2, page.getFirst().getBooks().size());
+  }
+
+  @Test
+  void scroll_ShouldReadIdsThenRowsThenCopies_WithoutLoadingEntities() {
+    final int size = projected(3,
+        () -> reservationService.scroll("reservationId", Direction.ASC, 10, null))
+        .getContent().size();
+
+    assertEquals(10, size);
+  }
+
+  @Test
+  void get_ShouldReadRowsThenCopies_WithoutLoadingEntities() {
+    final ReservationDTO reservation = projected(2, () -> reservationService.get(reservationId));
+
+    assertEquals(userId, reservation.getUser().getUserId());
+    assertEquals(2, reservation.getBooks().size());
+  }
+
+  @Test
+  void getReservationsByUserId_ShouldReadRowsThenCopies_WithoutLoadingEntities() {
+    final Set<ReservationDTO> reservations = projected(2,
+        () -> reservationService.getReservationsByUserId(userId));
+
+    assertEquals(RESERVATIONS_PER_USER, reservations.size());
+    reservations.forEach(reservation -> assertEquals(2, reservation.getBooks().size()));
+  }
+
+  @Test
+  void findAll_ShouldBatchFetchAssociations_OutsideAnyFetchPlan() {
+    final long loaded = statements(3, () -> reservationRepository.findAll().stream()
+        .filter(reservation -> reservation.getUser().getUsername() != null)
+        .mapToInt(reservation -> reservation.getBooks().size())
+        .sum());
+
+    assertEquals(USERS * RESERVATIONS_PER_USER * 2, loaded);
+  }
+
+  @Test
+  void findByStatusAndDateCreatedBefore_ShouldLoadBooksInOneStatement() {
+    final int books = statements(1, () -> reservationRepository.findByStatusAndDateCreatedBefore(
+        ReservationStatus.ACTIVE, OffsetDateTime.now().plusMinutes(1)).stream()
+        .mapToInt(reservation -> reservation.getBooks().size())
+        .sum());
+
+    assertEquals(USERS * RESERVATIONS_PER_USER * 2, books);
+  }
+
+  private <T> T statements(final long expected, final Supplier<T> read) {
+    entityManager.clear();
+    statistics().clear();
+    final T result = read.get();
+    assertEquals(expected, statistics().getPrepareStatementCount(), "SQL statements");
+    return result;
+  }
+
+  private <T> T projected(final long expectedStatements, final Supplier<T> read) {
+    final T result = statements(expectedStatements, read);
+    assertEquals(0, statistics().getEntityLoadCount(), "entities loaded");
+    return result;
+  }
+
+  private Statistics statistics() {
+    return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+}
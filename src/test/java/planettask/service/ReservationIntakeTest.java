@@ -0,0 +1,125 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import planettask.config.AsyncReservationProperties;
+import planettask.config.InventoryRetryProperties;
+import planettask.model.ReservationDTO;
+import planettask.model.ReservationTicketDTO;
+import planettask.model.TicketStatus;
+
+class ReservationIntakeTest {
+
+  private ReservationService reservationService;
+  private AsyncReservationProperties properties;
+  private SimpleMeterRegistry meterRegistry;
+  private ReservationIntake intake;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    reservationService = mock(ReservationService.class);
+    properties = new AsyncReservationProperties();
+    properties.setQueueCapacity(1);
+    properties.setWorkers(2);
+    meterRegistry = new SimpleMeterRegistry();
+    final ObjectProvider<ReservationBatcher> noBatcher = mock(ObjectProvider.class);
+    intake = new ReservationIntake(reservationService,
+        new InventoryRetryExecutor(new InventoryRetryProperties(), meterRegistry), noBatcher,
+        properties, meterRegistry);
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (intake.isRunning()) {
+      intake.stop();
+    }
+  }
+
+  @Test
+  void submit_ShouldCompleteTicket_WhenReservationSucceeds() throws Exception {
+    ReservationDTO reservation = new ReservationDTO();
+    reservation.setReservationId(7L);
+    when(reservationService.reserveBooks(1L, Set.of(2L))).thenReturn(reservation);
+    intake.start();
+
+    ReservationTicketDTO ticket = intake.submit(1L, Set.of(2L));
+
+    ReservationTicketDTO finished = awaitCompletion(ticket.getTicketId());
+    assertEquals(TicketStatus.COMPLETED, finished.getStatus());
+    assertEquals(7L, finished.getReservation().getReservationId());
+    assertNotNull(finished.getCompletedAt());
+  }
+
+  @Test
+  void submit_ShouldFailTicket_WhenReservationFails() throws Exception {
+    when(reservationService.reserveBooks(1L, Set.of(2L)))
+        .thenThrow(new Exception("Book 'Dune' is not available for reservation"));
+    intake.start();
+
+    ReservationTicketDTO ticket = intake.submit(1L, Set.of(2L));
+
+    ReservationTicketDTO finished = awaitCompletion(ticket.getTicketId());
+    assertEquals(TicketStatus.FAILED, finished.getStatus());
+    assertEquals("Book 'Dune' is not available for reservation", finished.getError());
+  }
+
+  @Test
+  void submit_ShouldRejectWithTooManyRequests_WhenQueueIsFull() {
+    // Running, but with nothing draining the queue
+    properties.setWorkers(0);
+    intake.start();
+    intake.submit(1L, Set.of(2L));
+
+    ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+        () -> intake.submit(1L, Set.of(3L)));
+
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS, ex.getStatusCode());
+    assertEquals(1.0, meterRegistry.counter("reservation.intake.rejected").count());
+    assertEquals(1.0, meterRegistry.get("reservation.intake.queue.depth").gauge().value());
+  }
+
+  @Test
+  void submit_ShouldRejectWithServiceUnavailable_WhenStopped() {
+    intake.start();
+    intake.stop();
+
+    ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+        () -> intake.submit(1L, Set.of(2L)));
+
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+    assertEquals(0.0, meterRegistry.get("reservation.intake.queue.depth").gauge().value());
+  }
+
+  @Test
+  void submit_ShouldRejectWithBadRequest_WhenTooManyBooks() {
+    ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+        () -> intake.submit(1L, Set.of(1L, 2L, 3L, 4L)));
+
+    assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+  }
+
+  private ReservationTicketDTO awaitCompletion(String ticketId) throws InterruptedException {
+    final long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    ReservationTicketDTO ticket = intake.getTicket(ticketId).orElseThrow();
+    while (ticket.getCompletedAt() == null && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+      ticket = intake.getTicket(ticketId).orElseThrow();
+    }
+    return ticket;
+  }
+
+}
@@ -5,18 +5,21 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.time.OffsetDateTime;
-import java.util.HashSet;
-import java.util.Set;
-import planettask.domain.Book;
-import planettask.domain.Reservation;
-import planettask.model.ReservationStatus;
-import planettask.repos.BookRepository;
+import java.util.List;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+import planettask.config.ReservationExpiryProperties;
+import planettask.domain.JobCheckpoint;
+import planettask.repos.JobCheckpointRepository;
 import planettask.repos.ReservationRepository;
+import planettask.repos.ReservationRepository.IdRange;
 
 class ReservationSchedulerTest {
 
@@ -24,145 +27,118 @@ class ReservationSchedulerTest {
   private ReservationRepository reservationRepository;
 
   @Mock
-  private BookRepository bookRepository;
+  private JobCheckpointRepository jobCheckpointRepository;
+
+  @Mock
+  private Scheduler scheduler;
+
+  private ReservationExpiryProperties properties = new ReservationExpiryProperties();
 
-  @InjectMocks
   private ReservationScheduler reservationScheduler;
 
   @BeforeEach
   void setUp() {
     MockitoAnnotations.openMocks(this);
+    properties.setPartitions(4);
+    reservationScheduler = new ReservationScheduler(reservationRepository,
+        jobCheckpointRepository, scheduler, properties);
   }
 
   @Test
-  void expireOldReservations_ShouldUpdateStatusAndRestoreBooks() {
-    OffsetDateTime sevenDaysAgo = OffsetDateTime.now().minusDays(10);
-    Reservation oldReservation = new Reservation();
-    oldReservation.setStatus(ReservationStatus.ACTIVE);
-    oldReservation.setDateCreated(sevenDaysAgo);
+  void expireOldReservations_ShouldSplitIdRangeIntoPartitions() throws Exception {
+    when(reservationRepository.findExpirableIdRange(any())).thenReturn(range(101L, 500L));
 
-    Book book1 = new Book();
-    book1.setAvailableCopies(2);
-    Book book2 = new Book();
-    book2.setAvailableCopies(1);
-
-    Set<Book> books = new HashSet<>();
-    books.add(book1);
-    books.add(book2);
-
-    oldReservation.setBooks(books);
+    reservationScheduler.expireOldReservations();
 
-    Set<Reservation> oldReservations = Set.of(oldReservation);
+    ArgumentCaptor<JobDetail> jobs = ArgumentCaptor.forClass(JobDetail.class);
+    verify(scheduler, times(4)).scheduleJob(jobs.capture(), any(Trigger.class));
+    List<JobDetail> partitions = jobs.getAllValues();
+    assertEquals(100L, partitions.get(0).getJobDataMap().getLong(ReservationExpiryPartitionJob.AFTER_ID));
+    assertEquals(200L, partitions.get(0).getJobDataMap().getLong(ReservationExpiryPartitionJob.TO_ID));
+    assertEquals(200L, partitions.get(1).getJobDataMap().getLong(ReservationExpiryPartitionJob.AFTER_ID));
+    assertEquals(500L, partitions.get(3).getJobDataMap().getLong(ReservationExpiryPartitionJob.TO_ID));
+    assertTrue(partitions.get(0).requestsRecovery());
+
+    ArgumentCaptor<JobCheckpoint> checkpoints = ArgumentCaptor.forClass(JobCheckpoint.class);
+    verify(jobCheckpointRepository, times(4)).save(checkpoints.capture());
+    OffsetDateTime cutoff = checkpoints.getValue().getCutoff();
+    assertEquals(OffsetDateTime.now().minusDays(ReservationScheduler.DAYS_TO_EXPIRE).toLocalDate(),
+        cutoff.toLocalDate());
+  }
 
-    when(reservationRepository.findByStatusAndDateCreatedBefore(eq(ReservationStatus.ACTIVE), any()))
-        .thenReturn(oldReservations);
+  @Test
+  void expireOldReservations_ShouldUseFewerPartitions_WhenRangeIsSmall() throws Exception {
+    when(reservationRepository.findExpirableIdRange(any())).thenReturn(range(7L, 8L));
 
     reservationScheduler.expireOldReservations();
 
-    assertEquals(ReservationStatus.EXPIRED, oldReservation.getStatus());
-
-    // Books should have their available copies increased
-    assertEquals(3, book1.getAvailableCopies()); // 2 → 3
-    assertEquals(2, book2.getAvailableCopies()); // 1 → 2
-
-    verify(bookRepository, times(1)).saveAll(books);
-    verify(reservationRepository, times(1)).saveAll(oldReservations);
+    verify(scheduler, times(2)).scheduleJob(any(JobDetail.class), any(Trigger.class));
   }
 
   @Test
-  void expireOldReservations_ShouldDoNothingIfNoOldReservations() {
-    OffsetDateTime now = OffsetDateTime.now();
-    Reservation oldReservation = new Reservation();
-    oldReservation.setStatus(ReservationStatus.ACTIVE);
-    oldReservation.setDateCreated(now);
-
-    Book book1 = new Book();
-    book1.setAvailableCopies(2);
-    Book book2 = new Book();
-    book2.setAvailableCopies(1);
+  void expireOldReservations_ShouldDoNothingIfNoOldReservations() throws Exception {
+    when(reservationRepository.findExpirableIdRange(any())).thenReturn(range(null, null));
 
-    Set<Book> books = new HashSet<>();
-    books.add(book1);
-    books.add(book2);
+    reservationScheduler.expireOldReservations();
 
-    oldReservation.setBooks(books);
-    Set<Reservation> oldReservations = Set.of(oldReservation);
+    verifyNoInteractions(scheduler);
+    verify(jobCheckpointRepository, never()).save(any());
+  }
 
-    when(reservationRepository.findByStatusAndDateCreatedBefore(ReservationStatus.ACTIVE, now))
-        .thenReturn(oldReservations);
+  @Test
+  void expireOldReservations_ShouldNotOverlapUnfinishedRun() throws Exception {
+    when(jobCheckpointRepository.findByJobNameStartingWith(ReservationScheduler.PARTITION_PREFIX))
+        .thenReturn(List.of(checkpoint(ReservationScheduler.PARTITION_PREFIX + "0", 150L, 200L)));
+    when(scheduler.checkExists(any(JobKey.class))).thenReturn(true);
 
     reservationScheduler.expireOldReservations();
 
-    assertEquals(ReservationStatus.ACTIVE, oldReservation.getStatus());
-
-    assertEquals(2, book1.getAvailableCopies()); // 2 → 3
-    assertEquals(1, book2.getAvailableCopies()); // 1 → 2
+    verify(scheduler, never()).scheduleJob(any(JobDetail.class), any(Trigger.class));
+    verifyNoInteractions(reservationRepository);
   }
 
   @Test
-  public void testReservationsExpired() {
-    // Given
-    Reservation reservation = new Reservation();
-    reservation.setStatus(ReservationStatus.ACTIVE);
-    reservation.setDateCreated(OffsetDateTime.now().minusDays(10));
-    // Mock books
-    Book book1 = new Book();
-    book1.setAvailableCopies(2);
-    Book book2 = new Book();
-    book2.setAvailableCopies(1);
-
-    Set<Book> books = new HashSet<>();
-    books.add(book1);
-    books.add(book2);
-
-    reservation.setBooks(books);
-    Set<Reservation> oldReservations = Set.of(reservation);
-    when(reservationRepository.findByStatusAndDateCreatedBefore(any(), any())).thenReturn(oldReservations);
-    // When
+  void expireOldReservations_ShouldReschedulePartition_WhenItsJobFailed() throws Exception {
+    String failed = ReservationScheduler.PARTITION_PREFIX + "2";
+    when(jobCheckpointRepository.findByJobNameStartingWith(ReservationScheduler.PARTITION_PREFIX))
+        .thenReturn(List.of(checkpoint(ReservationScheduler.PARTITION_PREFIX + "1", 150L, 200L),
+            checkpoint(failed, 250L, 300L)));
+    // Quartz deleted the failed partition's one-shot job; the other one is still running
+    when(scheduler.checkExists(JobKey.jobKey(ReservationScheduler.PARTITION_PREFIX + "1",
+        ReservationScheduler.JOB_GROUP))).thenReturn(true);
+
     reservationScheduler.expireOldReservations();
-    // Then
-    verify(reservationRepository).saveAll(oldReservations);
-    verify(bookRepository).saveAll(any());
+
+    ArgumentCaptor<JobDetail> jobs = ArgumentCaptor.forClass(JobDetail.class);
+    verify(scheduler).scheduleJob(jobs.capture(), any(Trigger.class));
+    assertEquals(failed, jobs.getValue().getKey().getName());
+    assertEquals(250L, jobs.getValue().getJobDataMap().getLong(ReservationExpiryPartitionJob.AFTER_ID));
+    assertEquals(300L, jobs.getValue().getJobDataMap().getLong(ReservationExpiryPartitionJob.TO_ID));
+    verify(jobCheckpointRepository, never()).save(any());
+    verifyNoInteractions(reservationRepository);
   }
-  @Test
-  public void testBookCopiesRestored() {
-    // Given
-    Reservation reservation = new Reservation();
-    reservation.setStatus(ReservationStatus.ACTIVE);
-    reservation.setDateCreated(OffsetDateTime.now().minusDays(10));
-    Book book = new Book();
-    book.setAvailableCopies(2);
-    reservation.setBooks(Set.of(book));
-    Set<Reservation> oldReservations = Set.of(reservation);
-    when(reservationRepository.findByStatusAndDateCreatedBefore(any(), any())).thenReturn(oldReservations);
-    // When
-    reservationScheduler.expireOldReservations();
-    // Then
-    assertEquals(3, book.getAvailableCopies());
+
+  private JobCheckpoint checkpoint(String name, Long lastProcessedId, Long toId) {
+    return JobCheckpoint.builder()
+        .jobName(name)
+        .cutoff(OffsetDateTime.now().minusDays(ReservationScheduler.DAYS_TO_EXPIRE))
+        .lastProcessedId(lastProcessedId)
+        .toId(toId)
+        .build();
   }
-  @Test
-  public void testReservationStatusUpdated() {
-    // Given
-    Reservation reservation = new Reservation();
-    reservation.setStatus(ReservationStatus.ACTIVE);
-    reservation.setDateCreated(OffsetDateTime.now().minusDays(10));
-    // Mock books
-    Book book1 = new Book();
-    book1.setAvailableCopies(2);
-    Book book2 = new Book();
-    book2.setAvailableCopies(1);
-
-    Set<Book> books = new HashSet<>();
-    books.add(book1);
-    books.add(book2);
-
-    reservation.setBooks(books);
-    Set<Reservation> oldReservations = Set.of(reservation);
-    when(reservationRepository.findByStatusAndDateCreatedBefore(any(), any())).thenReturn(oldReservations);
-    // When
-    reservationScheduler.expireOldReservations();
-    // Then
-    assertEquals(ReservationStatus.EXPIRED, reservation.getStatus());
+
+  private IdRange range(Long minId, Long maxId) {
+    return new IdRange() {
+      @Override
+      public Long getMinId() {
+        return minId;
+      }
+
+      @Override
+      public Long getMaxId() {
+        return maxId;
+      }
+    };
   }
 
 }
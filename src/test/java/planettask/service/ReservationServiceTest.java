@@ -4,16 +4,19 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
-import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.time.OffsetDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
@@ -21,12 +24,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import planettask.cache.CacheMultiGet;
+import planettask.cache.CacheNames;
+import planettask.cache.PageCache;
 import planettask.domain.Book;
 import planettask.domain.Reservation;
 import planettask.domain.User;
@@ -36,7 +47,9 @@ import planettask.model.ReservationStatus;
 import planettask.model.UserDTO;
 import planettask.repos.BookRepository;
 import planettask.repos.ReservationRepository;
+import planettask.repos.ReservationRepository.ReservationBookRow;
 import planettask.repos.UserRepository;
+import planettask.repos.WaitlistEntryRepository;
 import planettask.util.NotFoundException;
 
 @ExtendWith(MockitoExtension.class)
@@ -48,9 +61,22 @@ class ReservationServiceTest {
   private UserRepository userRepository;
   @Mock
   private BookRepository bookRepository;
+  @Mock
+  private BookInventory bookInventory;
+  @Mock
+  private WaitlistEntryRepository waitlistEntryRepository;
+
+  @Spy
+  private DtoMapper dtoMapper;
 
   @Mock
-  private ModelMapper modelMapper;
+  private ApplicationEventPublisher eventPublisher;
+
+  private final CacheManager cacheManager = new ConcurrentMapCacheManager();
+
+  @Spy
+  private PageCache pageCache = new PageCache(cacheManager, new CacheMultiGet(
+      new StaticListableBeanFactory().getBeanProvider(RedisConnectionFactory.class)));
 
   @InjectMocks
   private ReservationService reservationService;
@@ -106,24 +132,19 @@ class ReservationServiceTest {
   @Test
   void findAll_ShouldReturnListOfReservations() {
     Pageable pageable = PageRequest.of(0, 5);
-    Page<Reservation> reservationPage = new PageImpl<>(List.of(reservation));
-
-    when(reservationRepository.findAll(pageable)).thenReturn(reservationPage);
-    when(modelMapper.map(any(Reservation.class), eq(ReservationDTO.class))).thenReturn(reservationDTO);
+    when(reservationRepository.findIdsBy(pageable)).thenReturn(new SliceImpl<>(List.of(1L)));
+    when(reservationRepository.findRowsByIdIn(List.of(1L))).thenReturn(List.of(row()));
 
     List<ReservationDTO> result = reservationService.findAll(pageable);
 
     assertEquals(1, result.size());
     assertEquals(1L, result.getFirst().getReservationId());
-    verify(reservationRepository).findAll(pageable);
+    verify(reservationRepository).findIdsBy(pageable);
   }
 
   @Test
   void get_ShouldReturnReservationDTO_WhenReservationExists() {
-    when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation));
-    when(modelMapper.map(reservation, ReservationDTO.class)).thenReturn(reservationDTO);
-    when(modelMapper.map(user, UserDTO.class)).thenReturn(userDTO);
-    when(modelMapper.map(any(Book.class), eq(BookDTO.class))).thenReturn(new BookDTO());
+    when(reservationRepository.findRowsByIdIn(List.of(1L))).thenReturn(List.of(row()));
 
     ReservationDTO result = reservationService.get(1L);
 
@@ -131,22 +152,52 @@ class ReservationServiceTest {
     assertEquals(1L, result.getReservationId());
     assertEquals(userDTO, result.getUser());
     assertEquals(bookDTOs.size(), result.getBooks().size());
+    assertEquals("Test Book", result.getBooks().iterator().next().getTitle());
+
+    verify(reservationRepository, times(1)).findRowsByIdIn(List.of(1L));
+  }
+
+  @Test
+  void get_ShouldReportCopiesAsBookInventoryCountsThem() {
+    when(reservationRepository.findRowsByIdIn(List.of(1L))).thenReturn(List.of(row()));
+    when(bookRepository.findDTOsByIdIn(List.of(1L))).thenReturn(List.of(bookDTO));
+    // The ledger, when enabled, knows better than the projected column
+    when(bookInventory.availableCopies(book.getBookId(), book.getAvailableCopies()))
+        .thenReturn(7);
 
-    verify(reservationRepository, times(1)).findById(1L);
+    ReservationDTO result = reservationService.get(1L);
+
+    assertEquals(7, result.getBooks().iterator().next().getAvailableCopies());
+  }
+
+  @Test
+  void get_ShouldReportCurrentCopies_WhenReservationIsCached() {
+    when(reservationRepository.findRowsByIdIn(List.of(1L))).thenReturn(List.of(row()));
+    when(bookRepository.findDTOsByIdIn(List.of(1L))).thenReturn(List.of(bookDTO));
+    when(bookInventory.availableCopies(eq(1L), anyInt()))
+        .thenAnswer(invocation -> invocation.getArgument(1));
+    reservationService.get(1L);
+
+    // What a reservation of the book by someone else evicts
+    bookDTO.setAvailableCopies(1);
+    cacheManager.getCache(CacheNames.BOOK).evict(1L);
+    ReservationDTO result = reservationService.get(1L);
+
+    assertEquals(1, result.getBooks().iterator().next().getAvailableCopies());
+    verify(reservationRepository, times(1)).findRowsByIdIn(List.of(1L));
   }
 
   @Test
   void get_ShouldThrowNotFoundException_WhenReservationDoesNotExist() {
-    when(reservationRepository.findById(1L)).thenReturn(Optional.empty());
+    when(reservationRepository.findRowsByIdIn(List.of(1L))).thenReturn(List.of());
 
     assertThrows(NotFoundException.class, () -> reservationService.get(1L));
 
-    verify(reservationRepository, times(1)).findById(1L);
-    verifyNoMoreInteractions(modelMapper);
+    verify(reservationRepository, times(1)).findRowsByIdIn(List.of(1L));
+    verifyNoInteractions(dtoMapper);
   }
   @Test
   void create_ShouldReturnReservationId_WhenSuccessful() {
-    when(modelMapper.map(reservationDTO, Reservation.class)).thenReturn(reservation);
     when(reservationRepository.save(any(Reservation.class))).thenReturn(reservation);
 
     Long reservationId = reservationService.create(reservationDTO);
@@ -166,15 +217,25 @@ class ReservationServiceTest {
   @Test
   void cancelReservation_ShouldUpdateStatusAndIncreaseBookCopies() {
     when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation));
-    when(reservationRepository.save(any(Reservation.class))).thenReturn(reservation);
-    when(modelMapper.map(any(Reservation.class), eq(ReservationDTO.class))).thenReturn(reservationDTO);
+    when(reservationRepository.cancel(eq(1L), any(OffsetDateTime.class))).thenReturn(1);
 
     reservationService.cancelReservation(1L);
 
     assertEquals(ReservationStatus.CANCELED, reservation.getStatus());
-    assertEquals(3, book.getAvailableCopies());
-    verify(reservationRepository).save(reservation);
-    verify(bookRepository).saveAll(anySet());
+    verify(reservationRepository, never()).save(any(Reservation.class));
+    verify(bookInventory).release(List.of(1L));
+    verify(bookRepository, never()).saveAll(anySet());
+  }
+
+  @Test
+  void cancelReservation_ShouldNotReleaseCopies_WhenCanceledOrExpiredConcurrently() {
+    when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation));
+    when(reservationRepository.cancel(eq(1L), any(OffsetDateTime.class))).thenReturn(0);
+
+    assertThrows(UnsupportedOperationException.class,
+        () -> reservationService.cancelReservation(1L));
+
+    verify(bookInventory, never()).release(any());
   }
 
   @Test
@@ -184,38 +245,65 @@ class ReservationServiceTest {
 
     assertThrows(UnsupportedOperationException.class, () -> reservationService.cancelReservation(1L));
 
-    verify(reservationRepository, never()).save(any(Reservation.class));
+    verify(reservationRepository, never()).cancel(any(), any());
   }
 
   @Test
   void reserveBooks_ShouldCreateReservation_WhenBooksAvailable() throws Exception {
     when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-    when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+    when(bookRepository.findAllById(Set.of(1L))).thenReturn(List.of(book));
+    when(bookInventory.availableCopies(book)).thenReturn(2);
+    when(bookInventory.take(Set.of(1L))).thenReturn(true);
     when(reservationRepository.save(any(Reservation.class))).thenReturn(reservation);
-    when(modelMapper.map(any(Reservation.class), eq(ReservationDTO.class))).thenReturn(reservationDTO);
-    when(modelMapper.map(any(User.class), eq(UserDTO.class))).thenReturn(userDTO);
-    when(modelMapper.map(any(Book.class), eq(BookDTO.class))).thenReturn(bookDTO);
 
     ReservationDTO result = reservationService.reserveBooks(1L, Set.of(1L));
 
     assertNotNull(result);
-    assertEquals(1, book.getAvailableCopies());
+    assertEquals(1, result.getBooks().iterator().next().getAvailableCopies());
+    verify(bookInventory).take(Set.of(1L));
+    verify(bookRepository, never()).saveAll(anySet());
     verify(reservationRepository).save(any(Reservation.class));
-    verify(bookRepository).saveAll(anySet());
   }
 
   @Test
   void reserveBooks_ShouldThrowException_WhenBookNotAvailable() {
     book.setAvailableCopies(0);
     when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-    when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+    when(bookRepository.findAllById(Set.of(1L))).thenReturn(List.of(book));
+    when(bookInventory.availableCopies(book)).thenReturn(0);
 
     Exception exception = assertThrows(Exception.class, () -> reservationService.reserveBooks(1L, Set.of(1L)));
     assertEquals("Book 'Test Book' is not available for reservation", exception.getMessage());
 
+    verify(bookInventory, never()).take(anySet());
     verify(reservationRepository, never()).save(any(Reservation.class));
   }
 
+  @Test
+  void reserveBooks_ShouldThrowException_WhenConcurrentReservationTookLastCopy() {
+    when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+    when(bookRepository.findAllById(Set.of(1L))).thenReturn(List.of(book));
+    when(bookInventory.availableCopies(book)).thenReturn(2);
+    when(bookInventory.take(Set.of(1L))).thenReturn(false);
+
+    Exception exception = assertThrows(Exception.class, () -> reservationService.reserveBooks(1L, Set.of(1L)));
+    assertEquals("One or more books are no longer available for reservation", exception.getMessage());
+
+    verify(reservationRepository, never()).save(any(Reservation.class));
+  }
+
+  @Test
+  void reserveBooks_ShouldThrowNotFoundException_WhenBookDoesNotExist() {
+    when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+    when(bookRepository.findAllById(Set.of(2L))).thenReturn(List.of());
+
+    NotFoundException exception = assertThrows(NotFoundException.class,
+        () -> reservationService.reserveBooks(1L, Set.of(2L)));
+    assertEquals("Book not found with id 2", exception.getMessage());
+
+    verify(bookInventory, never()).take(anySet());
+  }
+
   @Test
   void reserveBooks_ShouldThrowException_WhenMoreThanMaxBooksReserved() {
     Set<Long> bookIds = Set.of(1L, 2L, 3L, 4L);
@@ -227,13 +315,28 @@ class ReservationServiceTest {
 
   @Test
   void getReservationsByUserId_ShouldReturnReservations() {
-    when(reservationRepository.findByUserId(1L)).thenReturn(Set.of(reservation));
-    when(modelMapper.map(any(Reservation.class), eq(ReservationDTO.class))).thenReturn(reservationDTO);
+    when(reservationRepository.findRowsByUserId(1L)).thenReturn(List.of(row()));
 
     Set<ReservationDTO> result = reservationService.getReservationsByUserId(1L);
 
     assertEquals(1, result.size());
-    verify(reservationRepository).findByUserId(1L);
+    verify(reservationRepository).findRowsByUserId(1L);
+  }
+
+  private ReservationBookRow row() {
+    final Map<String, Object> row = new HashMap<>();
+    row.put("reservationId", reservation.getReservationId());
+    row.put("status", reservation.getStatus());
+    row.put("userId", user.getUserId());
+    row.put("username", user.getUsername());
+    row.put("email", user.getEmail());
+    row.put("bookId", book.getBookId());
+    row.put("title", book.getTitle());
+    row.put("isbn", book.getIsbn());
+    row.put("author", book.getAuthor());
+    row.put("totalCopies", book.getTotalCopies());
+    row.put("availableCopies", book.getAvailableCopies());
+    return new SpelAwareProxyProjectionFactory().createProjection(ReservationBookRow.class, row);
   }
 }
 
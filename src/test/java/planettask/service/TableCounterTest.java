@@ -0,0 +1,115 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import planettask.cache.CacheNames;
+import planettask.config.PaginationProperties;
+import planettask.service.TableCounter.Strategy;
+import planettask.service.TableCounter.Table;
+import planettask.service.TableCounter.Total;
+
+@ExtendWith(MockitoExtension.class)
+class TableCounterTest {
+
+  private static final String COUNT_BOOKS = "SELECT count(*) FROM books";
+
+  @Mock
+  private JdbcTemplate jdbcTemplate;
+
+  private ConcurrentMapCacheManager cacheManager;
+  private PaginationProperties properties;
+  private TableCounter tableCounter;
+
+  @BeforeEach
+  void setUp() {
+    when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<String>>any()))
+        .thenReturn("PostgreSQL");
+    cacheManager = new ConcurrentMapCacheManager(CacheNames.TABLE_COUNT);
+    properties = new PaginationProperties();
+    tableCounter = new TableCounter(jdbcTemplate, cacheManager, properties);
+  }
+
+  @Test
+  void count_ShouldCacheExactCount_UntilEvicted() {
+    when(jdbcTemplate.queryForObject(COUNT_BOOKS, Long.class)).thenReturn(7L, 8L);
+
+    assertEquals(new Total(Strategy.EXACT, 7L), tableCounter.count(Table.BOOKS));
+    assertEquals(7L, tableCounter.count(Table.BOOKS).count());
+    cacheManager.getCache(CacheNames.TABLE_COUNT).evict(Table.BOOKS.name());
+    assertEquals(8L, tableCounter.count(Table.BOOKS).count());
+
+    verify(jdbcTemplate, times(2)).queryForObject(COUNT_BOOKS, Long.class);
+  }
+
+  @Test
+  void count_ShouldUseStatistics_WhenEstimated() {
+    properties.setCountStrategy(Strategy.ESTIMATED);
+    when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("books")))
+        .thenReturn(1_000_000L);
+
+    final Total total = tableCounter.count(Table.BOOKS);
+
+    assertEquals(new Total(Strategy.ESTIMATED, 1_000_000L), total);
+    assertEquals("estimated", total.toHeaders().getFirst(TableCounter.STRATEGY_HEADER));
+    verify(jdbcTemplate, never()).queryForObject(COUNT_BOOKS, Long.class);
+  }
+
+  @Test
+  void count_ShouldFallBackToExact_WhenStatisticsAreMissingOrFail() {
+    properties.setCountStrategy(Strategy.ESTIMATED);
+    when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("books")))
+        .thenReturn(-1L, 5L);
+    when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("users")))
+        .thenThrow(new QueryTimeoutException("estimate"));
+    when(jdbcTemplate.queryForObject(COUNT_BOOKS, Long.class)).thenReturn(3L);
+    when(jdbcTemplate.queryForObject("SELECT count(*) FROM users", Long.class)).thenReturn(4L);
+
+    assertEquals(new Total(Strategy.EXACT, 3L), tableCounter.count(Table.BOOKS));
+    assertEquals(new Total(Strategy.EXACT, 4L), tableCounter.count(Table.USERS));
+    // A failed read only affects that call
+    assertEquals(new Total(Strategy.ESTIMATED, 5L), tableCounter.count(Table.BOOKS));
+  }
+
+  @Test
+  void count_ShouldNotEstimate_OnDatabasesOtherThanPostgres() {
+    when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<String>>any()))
+        .thenReturn("H2");
+    tableCounter = new TableCounter(jdbcTemplate, cacheManager, properties);
+    properties.setCountStrategy(Strategy.ESTIMATED);
+    when(jdbcTemplate.queryForObject(COUNT_BOOKS, Long.class)).thenReturn(3L);
+
+    assertEquals(new Total(Strategy.EXACT, 3L), tableCounter.count(Table.BOOKS));
+    verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Long.class), eq("books"));
+  }
+
+  @Test
+  void count_ShouldReportNoTotal_WhenNone() {
+    properties.setCountStrategy(Strategy.NONE);
+
+    final Total total = tableCounter.count(Table.RESERVATIONS);
+
+    assertNull(total.count());
+    assertNull(total.toHeaders().getFirst(TableCounter.COUNT_HEADER));
+    verify(jdbcTemplate).execute(ArgumentMatchers.<ConnectionCallback<String>>any());
+    verifyNoMoreInteractions(jdbcTemplate);
+  }
+
+}
@@ -0,0 +1,98 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.function.Supplier;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort.Direction;
+import planettask.cache.CacheMultiGet;
+import planettask.cache.NegativeCache;
+import planettask.cache.PageCache;
+import planettask.domain.User;
+import planettask.model.UserDTO;
+
+/**
+ * Statements issued per read of users behind the endpoints, and that none of them loads an
+ * entity, which would also load the user's reservations. Every read starts from an empty
+ * persistence context and with caching disabled.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@Import({UserService.class, DtoMapper.class, NegativeCache.class, PageCache.class,
+    CacheMultiGet.class, NoOpCacheManager.class, SimpleMeterRegistry.class})
+class UserFetchPlanTest {
+
+  private static final int USERS = 12;
+
+  @Autowired
+  private UserService userService;
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  private User user;
+
+  @BeforeEach
+  void setUp() {
+    for (int i = 0; i < USERS; i++) {
+      user = entityManager.persist(User.builder()
+          .username("reader" + i)
+          .email("reader" + i + "@example.com")
+          .build());
+    }
+    entityManager.flush();
+  }
+
+  @Test
+  void findAll_ShouldReadPageInOneStatement_WithoutLoadingEntities() {
+    final List<UserDTO> page = projected(1, () -> userService.findAll(PageRequest.of(0, 10)));
+
+    assertEquals(10, page.size());
+  }
+
+  @Test
+  void scroll_ShouldReadIdsThenRows_WithoutLoadingEntities() {
+    final int size = projected(2,
+        () -> userService.scroll("username", Direction.ASC, 10, null)).getContent().size();
+
+    assertEquals(10, size);
+  }
+
+  @Test
+  void get_ShouldReadRowInOneStatement_WithoutLoadingEntities() {
+    final UserDTO found = projected(1, () -> userService.get(user.getUserId()));
+
+    assertEquals(user.getUsername(), found.getUsername());
+  }
+
+  private <T> T projected(final long expectedStatements, final Supplier<T> read) {
+    entityManager.clear();
+    statistics().clear();
+    final T result = read.get();
+    assertEquals(expectedStatements, statistics().getPrepareStatementCount(), "SQL statements");
+    assertEquals(0, statistics().getEntityLoadCount(), "entities loaded");
+    return result;
+  }
+
+  private Statistics statistics() {
+    return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+}
@@ -3,13 +3,13 @@ package planettask.service;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,12 +17,19 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import planettask.cache.CacheMultiGet;
+import planettask.cache.NegativeCache;
+import planettask.cache.PageCache;
 import planettask.domain.User;
 import planettask.model.UserDTO;
 import planettask.repos.UserRepository;
@@ -34,8 +41,19 @@ class UserServiceTest {
   @Mock
   private UserRepository userRepository;
 
+  @Spy
+  private DtoMapper dtoMapper;
+
+  @Spy
+  private NegativeCache negativeCache = new NegativeCache(new ConcurrentMapCacheManager(),
+      new SimpleMeterRegistry());
+
   @Mock
-  private ModelMapper modelMapper;
+  private ApplicationEventPublisher eventPublisher;
+
+  @Spy
+  private PageCache pageCache = new PageCache(new ConcurrentMapCacheManager(), new CacheMultiGet(
+      new StaticListableBeanFactory().getBeanProvider(RedisConnectionFactory.class)));
 
   @InjectMocks
   private UserService userService;
@@ -57,11 +75,9 @@ class UserServiceTest {
   @Test
   void findAll_ShouldReturnUserDTOList_WhenUsersExist() {
     Pageable pageable = PageRequest.of(0, 10);
-    List<User> userList = List.of(user);
-    Page<User> userPage = new PageImpl<>(userList);
+    Slice<UserDTO> userPage = new SliceImpl<>(List.of(userDTO));
 
-    when(userRepository.findAll(pageable)).thenReturn(userPage);
-    when(modelMapper.map(any(User.class), eq(UserDTO.class))).thenReturn(userDTO);
+    when(userRepository.findDTOsBy(pageable)).thenReturn(userPage);
 
     List<UserDTO> result = userService.findAll(pageable);
 
@@ -69,13 +85,12 @@ class UserServiceTest {
     assertEquals(1, result.size());
     assertEquals(userDTO.getEmail(), result.getFirst().getEmail());
 
-    verify(userRepository, times(1)).findAll(pageable);
+    verify(userRepository, times(1)).findDTOsBy(pageable);
   }
 
   @Test
   void get_ShouldReturnUserDTO_WhenUserExists() {
-    when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-    when(modelMapper.map(user, UserDTO.class)).thenReturn(userDTO);
+    when(userRepository.findDTOById(1L)).thenReturn(Optional.of(userDTO));
 
     UserDTO result = userService.get(1L);
 
@@ -83,23 +98,32 @@ class UserServiceTest {
     assertEquals(userDTO.getUserId(), result.getUserId());
     assertEquals(userDTO.getEmail(), result.getEmail());
 
-    verify(userRepository, times(1)).findById(1L);
+    verify(userRepository, times(1)).findDTOById(1L);
   }
 
   @Test
   void get_ShouldThrowNotFoundException_WhenUserDoesNotExist() {
-    when(userRepository.findById(1L)).thenReturn(Optional.empty());
+    when(userRepository.findDTOById(1L)).thenReturn(Optional.empty());
+
+    assertThrows(NotFoundException.class, () -> userService.get(1L));
 
+    verify(userRepository, times(1)).findDTOById(1L);
+    verifyNoInteractions(dtoMapper);
+  }
+
+  @Test
+  void get_ShouldNotQueryAgain_WhenUserWasRecentlyNotFound() {
+    when(userRepository.findDTOById(1L)).thenReturn(Optional.empty());
+
+    assertThrows(NotFoundException.class, () -> userService.get(1L));
     assertThrows(NotFoundException.class, () -> userService.get(1L));
 
-    verify(userRepository, times(1)).findById(1L);
-    verifyNoMoreInteractions(modelMapper);
+    verify(userRepository, times(1)).findDTOById(1L);
   }
 
   @Test
   void create_ShouldReturnUserId_WhenUserIsCreatedSuccessfully() {
     when(userRepository.existsByEmailIgnoreCase(userDTO.getEmail())).thenReturn(false);
-    when(modelMapper.map(userDTO, User.class)).thenReturn(user);
     when(userRepository.save(user)).thenReturn(user);
 
     Long result = userService.create(userDTO);
@@ -109,6 +133,7 @@ class UserServiceTest {
 
     verify(userRepository, times(1)).existsByEmailIgnoreCase(userDTO.getEmail());
     verify(userRepository, times(1)).save(user);
+    verify(eventPublisher).publishEvent(new UserCreatedEvent(1L));
   }
 
   @Test
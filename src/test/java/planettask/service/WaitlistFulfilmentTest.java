@@ -0,0 +1,190 @@
+package planettask.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import planettask.cache.CacheMultiGet;
+import planettask.cache.PageCache;
+import planettask.config.InventoryRetryProperties;
+import planettask.config.WaitlistProperties;
+import planettask.domain.Book;
+import planettask.domain.User;
+import planettask.domain.WaitlistEntry;
+import planettask.model.ReservationDTO;
+import planettask.model.WaitlistEntryDTO;
+import planettask.model.WaitlistStatus;
+import planettask.repos.BookRepository;
+import planettask.repos.ReservationRepository;
+import planettask.repos.UserRepository;
+import planettask.repos.WaitlistEntryRepository;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({WaitlistFulfilment.class, WaitlistService.class, ReservationService.class,
+    DtoMapper.class, BookInventory.class, InventoryRetryExecutor.class, PageCache.class,
+    CacheMultiGet.class, NoOpCacheManager.class, SimpleMeterRegistry.class})
+@EnableConfigurationProperties({WaitlistProperties.class, InventoryRetryProperties.class})
+class WaitlistFulfilmentTest {
+
+  @Autowired
+  private WaitlistFulfilment waitlistFulfilment;
+
+  @Autowired
+  private WaitlistService waitlistService;
+
+  @Autowired
+  private ReservationService reservationService;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  @Autowired
+  private WaitlistEntryRepository waitlistEntryRepository;
+
+  private Book book;
+
+  private List<User> users;
+
+  @BeforeEach
+  void setUp() {
+    book = bookRepository.save(Book.builder()
+        .title("Dune")
+        .isbn("9780441172719")
+        .author("Frank Herbert")
+        .totalCopies(2)
+        .availableCopies(0)
+        .build());
+    users = userRepository.saveAll(List.of(
+        User.builder().username("first").email("first@example.com").build(),
+        User.builder().username("second").email("second@example.com").build(),
+        User.builder().username("third").email("third@example.com").build()));
+  }
+
+  @AfterEach
+  void tearDown() {
+    waitlistEntryRepository.deleteAll();
+    reservationRepository.deleteAll();
+    bookRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  void fulfil_ShouldServeWaitersInOrder_WhileCopiesLast() {
+    List<WaitlistEntryDTO> entries = users.stream()
+        .map(user -> waitlistService.join(user.getUserId(), book.getBookId()))
+        .toList();
+    assertEquals(2L, entries.get(2).getPosition());
+    returnCopies(2);
+
+    assertEquals(2, waitlistFulfilment.fulfil(book.getBookId()));
+
+    assertNotNull(status(entries.get(0)).getReservationId());
+    assertEquals(WaitlistStatus.FULFILLED, status(entries.get(1)).getStatus());
+    assertEquals(WaitlistStatus.WAITING, status(entries.get(2)).getStatus());
+    assertEquals(0L, status(entries.get(2)).getPosition());
+    assertEquals(2, reservationRepository.count());
+  }
+
+  @Test
+  void cancelReservation_ShouldHandReturnedCopyToWaiter() throws Exception {
+    returnCopies(1);
+    ReservationDTO reservation = reservationService.reserveBooks(users.get(0).getUserId(),
+        Set.of(book.getBookId()));
+    WaitlistEntryDTO entry = waitlistService.join(users.get(1).getUserId(), book.getBookId());
+
+    reservationService.cancelReservation(reservation.getReservationId());
+
+    final long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (status(entry).getStatus() == WaitlistStatus.WAITING && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+    assertEquals(WaitlistStatus.FULFILLED, status(entry).getStatus());
+  }
+
+  @Test
+  void reserveBooks_ShouldNotTakeCopyAheadOfWaiters() throws Exception {
+    WaitlistEntryDTO entry = waitlistService.join(users.get(0).getUserId(), book.getBookId());
+    returnCopies(1);
+
+    Exception ex = assertThrows(Exception.class, () -> reservationService.reserveBooks(
+        users.get(1).getUserId(), Set.of(book.getBookId())));
+    assertEquals("Book 'Dune' is held for its waitlist", ex.getMessage());
+    // Queues up behind the first waiter instead
+    WaitlistEntryDTO second = waitlistService.join(users.get(1).getUserId(), book.getBookId());
+
+    assertEquals(1, waitlistFulfilment.fulfil(book.getBookId()));
+    assertEquals(WaitlistStatus.FULFILLED, status(entry).getStatus());
+    assertEquals(WaitlistStatus.WAITING, status(second).getStatus());
+  }
+
+  @Test
+  void join_ShouldAllowOneWaitingEntryPerUserAndBook() {
+    waitlistService.join(users.get(0).getUserId(), book.getBookId());
+
+    // What a concurrent join that passed the existence check runs into
+    assertThrows(DataIntegrityViolationException.class,
+        () -> waitlistEntryRepository.saveAndFlush(WaitlistEntry.builder()
+            .user(users.get(0))
+            .book(book)
+            .status(WaitlistStatus.WAITING)
+            .build()));
+    ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+        () -> waitlistService.join(users.get(0).getUserId(), book.getBookId()));
+    assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+  }
+
+  @Test
+  void join_ShouldAllowWaitingAgain_AfterEntryIsFinished() {
+    WaitlistEntryDTO first = waitlistService.join(users.get(0).getUserId(), book.getBookId());
+    waitlistService.cancel(first.getWaitlistEntryId());
+    WaitlistEntryDTO second = waitlistService.join(users.get(0).getUserId(), book.getBookId());
+    waitlistService.discard(second.getWaitlistEntryId());
+
+    assertEquals(WaitlistStatus.WAITING,
+        waitlistService.join(users.get(0).getUserId(), book.getBookId()).getStatus());
+    assertEquals(3, waitlistEntryRepository.count());
+  }
+
+  @Test
+  void join_ShouldReject_WhenBookIsAvailable() {
+    returnCopies(1);
+
+    assertThrows(ResponseStatusException.class,
+        () -> waitlistService.join(users.get(0).getUserId(), book.getBookId()));
+  }
+
+  private void returnCopies(int copies) {
+    Book current = bookRepository.findById(book.getBookId()).orElseThrow();
+    current.setAvailableCopies(copies);
+    bookRepository.save(current);
+  }
+
+  private WaitlistEntryDTO status(WaitlistEntryDTO entry) {
+    return waitlistService.getByUserId(entry.getUserId()).getFirst();
+  }
+
+}